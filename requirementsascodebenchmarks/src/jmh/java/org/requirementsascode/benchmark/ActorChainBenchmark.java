@@ -0,0 +1,79 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.AbstractActor;
+import org.requirementsascode.Model;
+
+/**
+ * Measures the throughput of a chain of actors. Each actor publishes the
+ * message it receives to the next actor, with .to(...). The last actor of the
+ * chain handles the message.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ActorChainBenchmark {
+	@Param({ "1", "10", "100" })
+	private int chainLength;
+
+	private AbstractActor firstActor;
+	private Ping ping;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		AbstractActor nextActor = new HandlingActor();
+		for (int i = 0; i < chainLength; i++) {
+			nextActor = new PublishingActor(nextActor);
+		}
+		this.firstActor = nextActor;
+		this.ping = new Ping();
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		firstActor.reactTo(ping);
+		return pingsHandled;
+	}
+
+	private class PublishingActor extends AbstractActor {
+		private final AbstractActor nextActor;
+
+		PublishingActor(AbstractActor nextActor) {
+			this.nextActor = nextActor;
+		}
+
+		@Override
+		public Model behavior() {
+			Model model = Model.builder()
+				.on(Ping.class).systemPublish(ping -> ping).to(nextActor)
+				.build();
+			return model;
+		}
+	}
+
+	private class HandlingActor extends AbstractActor {
+		@Override
+		public Model behavior() {
+			Model model = Model.builder()
+				.on(Ping.class).system(this::handlePing)
+				.build();
+			return model;
+		}
+
+		private void handlePing(Ping ping) {
+			pingsHandled++;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.requirementsascode.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.requirementsascode.AbstractActor;
+import org.requirementsascode.ActorSystem;
+import org.requirementsascode.Model;
+
+/**
+ * Measures the round trip latency of a message sent to one of many actors
+ * spawned by an actor system. All actors share the same model. The setup prints
+ * the heap retained per actor, after each actor has reacted once.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ActorSystemBenchmark {
+	private static final String PONG = "Pong";
+
+	@Param({ "1000000" })
+	private int actorCount;
+
+	private ActorSystem actorSystem;
+	private PingActor[] actors;
+	private Ping ping;
+
+	@Setup
+	public void setup() {
+		Model model = Model.builder()
+			.on(Ping.class).systemPublish(ping -> PONG)
+			.build();
+		this.actorSystem = ActorSystem.create();
+		this.actors = new PingActor[actorCount];
+		this.ping = new Ping();
+
+		long usedHeapBefore = usedHeapAfterGc();
+		for (int i = 0; i < actorCount; i++) {
+			actors[i] = actorSystem.spawn(new PingActor(model));
+		}
+		CompletableFuture<?>[] futureEvents = new CompletableFuture<?>[actorCount];
+		for (int i = 0; i < actorCount; i++) {
+			futureEvents[i] = actors[i].reactToAsync(ping);
+		}
+		CompletableFuture.allOf(futureEvents).join();
+		futureEvents = null;
+		long usedHeapAfter = usedHeapAfterGc();
+
+		System.out.printf("%n%d actors, virtual threads: %b, retained heap per actor: %d bytes%n", actorCount,
+			actorSystem.usesVirtualThreads(), (usedHeapAfter - usedHeapBefore) / actorCount);
+	}
+
+	private long usedHeapAfterGc() {
+		MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memoryBean.getHeapMemoryUsage().getUsed();
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		actorSystem.shutdown();
+		actorSystem.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public Optional<Object> roundTripToRandomActor() {
+		PingActor actor = actors[ThreadLocalRandom.current().nextInt(actorCount)];
+		return actor.reactToAsync(ping).join();
+	}
+
+	private static class PingActor extends AbstractActor {
+		private final Model behavior;
+
+		PingActor(Model behavior) {
+			this.behavior = behavior;
+		}
+
+		@Override
+		public Model behavior() {
+			return behavior;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.builder.FlowPart;
+import org.requirementsascode.builder.StepPart;
+import org.requirementsascode.builder.UseCasePart;
+
+/**
+ * Measures the throughput of a runner whose basic flow has many steps, and an
+ * alternative flow that can start after any of them. So for each message, the
+ * runner needs to check whether it is at the right position for the
+ * alternative flow.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AfterManyStepsBenchmark {
+	@Param({ "10", "100", "1000" })
+	private int numberOfSteps;
+
+	private ModelRunner modelRunner;
+	private Ping ping;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel(numberOfSteps);
+		this.modelRunner = new ModelRunner().run(model);
+		this.ping = new Ping();
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		modelRunner.reactTo(ping);
+		return pingsHandled;
+	}
+
+	private Model buildModel(int numberOfSteps) {
+		String[] stepNames = new String[numberOfSteps];
+		UseCasePart useCasePart = Model.builder().useCase("Use case");
+		FlowPart basicFlow = useCasePart.basicFlow();
+
+		StepPart stepPart = null;
+		for (int i = 0; i < numberOfSteps; i++) {
+			stepNames[i] = "S" + i;
+			stepPart = i == 0 ? basicFlow.step(stepNames[i]) : stepPart.user(Ping.class).system(this::handlePing).step(stepNames[i]);
+		}
+		stepPart.user(Ping.class).system(this::handlePing);
+
+		Model model = useCasePart
+			.flow("Restart").after(stepNames[numberOfSteps - 1])
+				.step("Restart").continuesAt(stepNames[0])
+			.flow("Alternative").after(stepNames).condition(() -> false)
+				.step("Alternative").user(Ping.class).system(this::handlePing)
+			.build();
+		return model;
+	}
+
+	private void handlePing(Ping ping) {
+		pingsHandled++;
+	}
+}
@@ -0,0 +1,83 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.builder.FlowPart;
+import org.requirementsascode.builder.StepPart;
+import org.requirementsascode.builder.UseCasePart;
+
+/**
+ * Measures the throughput of a runner whose basic flow has 10 steps, and many
+ * alternative flows that each start after one of them. For each message, only
+ * the alternative flows after the latest step are at the right position, so
+ * only their conditions are evaluated.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AlternativeFlowsBenchmark {
+	private static final int NUMBER_OF_BASIC_FLOW_STEPS = 10;
+
+	@Param({ "10", "100", "1000" })
+	private int numberOfAlternativeFlows;
+
+	private ModelRunner modelRunner;
+	private Ping ping;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel(numberOfAlternativeFlows);
+		this.modelRunner = new ModelRunner().run(model);
+		this.ping = new Ping();
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		modelRunner.reactTo(ping);
+		return pingsHandled;
+	}
+
+	private Model buildModel(int numberOfAlternativeFlows) {
+		String[] stepNames = new String[NUMBER_OF_BASIC_FLOW_STEPS];
+		UseCasePart useCasePart = Model.builder().useCase("Use case");
+		FlowPart basicFlow = useCasePart.basicFlow();
+
+		StepPart stepPart = null;
+		for (int i = 0; i < NUMBER_OF_BASIC_FLOW_STEPS; i++) {
+			stepNames[i] = "S" + i;
+			stepPart = i == 0 ? basicFlow.step(stepNames[i]) : stepPart.user(Ping.class).system(this::handlePing).step(stepNames[i]);
+		}
+		stepPart.user(Ping.class).system(this::handlePing);
+
+		useCasePart
+			.flow("Restart").after(stepNames[NUMBER_OF_BASIC_FLOW_STEPS - 1])
+				.step("Restart").continuesAt(stepNames[0]);
+
+		for (int i = 0; i < numberOfAlternativeFlows; i++) {
+			String afterStepName = stepNames[i % NUMBER_OF_BASIC_FLOW_STEPS];
+			useCasePart
+				.flow("Alternative " + i).after(afterStepName).condition(() -> false)
+					.step("Alternative step " + i).user(Ping.class).system(this::handlePing);
+		}
+
+		Model model = useCasePart.build();
+		return model;
+	}
+
+	private void handlePing(Ping ping) {
+		pingsHandled++;
+	}
+}
@@ -0,0 +1,60 @@
+package org.requirementsascode.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.requirementsascode.ConcurrentModelRunner;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+
+/**
+ * Measures the throughput of 32 threads that share a single model runner. The
+ * runner is either wrapped in a synchronized block, or in a concurrent model
+ * runner.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+public class ConcurrentModelRunnerBenchmark {
+	private ModelRunner synchronizedModelRunner;
+	private ConcurrentModelRunner concurrentModelRunner;
+	private Ping ping;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = Model.builder()
+			.on(Ping.class).system(this::handlePing)
+			.build();
+		this.synchronizedModelRunner = new ModelRunner().run(model);
+		this.concurrentModelRunner = new ConcurrentModelRunner(new ModelRunner().run(model));
+		this.ping = new Ping();
+	}
+
+	private void handlePing(Ping ping) {
+		pingsHandled++;
+	}
+
+	@Benchmark
+	public Optional<Object> synchronizedReactTo() {
+		synchronized (synchronizedModelRunner) {
+			return synchronizedModelRunner.reactTo(ping);
+		}
+	}
+
+	@Benchmark
+	public Optional<Object> concurrentReactTo() {
+		return concurrentModelRunner.reactTo(ping);
+	}
+}
@@ -0,0 +1,98 @@
+package org.requirementsascode.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.queue.EventQueue;
+import org.requirementsascode.queue.ForwardingEventQueue;
+import org.requirementsascode.queue.ProducerType;
+import org.requirementsascode.queue.RingBufferEventQueue;
+import org.requirementsascode.queue.WaitStrategy;
+
+/**
+ * Measures the throughput of a single producer that feeds a model runner
+ * through an event queue. Each operation is a message put into the queue and
+ * handled by the runner on the queue's consumer thread.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EventQueueBenchmark {
+	private static final int CAPACITY = 1024;
+	private static final int MESSAGES_PER_INVOCATION = 10_000;
+
+	@Param({ "EventQueue", "RingBufferSingleProducer", "RingBufferMultiProducer" })
+	private String queueType;
+
+	@Param({ "BUSY_SPIN", "PARK" })
+	private WaitStrategy waitStrategy;
+
+	private ForwardingEventQueue queue;
+	private ModelRunner modelRunner;
+	private AtomicLong messagesHandled;
+	private long messagesPut;
+	private Ping ping;
+
+	@Setup
+	public void setup() {
+		Model model = Model.builder()
+			.on(Ping.class).system(ping -> {})
+			.build();
+		this.modelRunner = new ModelRunner().run(model);
+		this.messagesHandled = new AtomicLong();
+		this.messagesPut = 0;
+		this.ping = new Ping();
+
+		Consumer<List<Object>> batchConsumer = this::handleBatch;
+		if ("EventQueue".equals(queueType)) {
+			this.queue = EventQueue.builder().capacity(CAPACITY).consumeBatchesWith(batchConsumer);
+		} else {
+			ProducerType producerType = "RingBufferSingleProducer".equals(queueType) ? ProducerType.SINGLE
+				: ProducerType.MULTI;
+			this.queue = RingBufferEventQueue.builder().capacity(CAPACITY).producers(producerType)
+				.waitStrategy(waitStrategy).consumeBatchesWith(batchConsumer);
+		}
+	}
+
+	private void handleBatch(List<Object> batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			modelRunner.reactTo(batch.get(i));
+		}
+		messagesHandled.lazySet(messagesHandled.get() + batch.size());
+	}
+
+	@TearDown
+	public void tearDown() {
+		queue.stop();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+	public long putAndHandleMessages() {
+		for (int i = 0; i < MESSAGES_PER_INVOCATION; i++) {
+			queue.put(ping);
+		}
+		messagesPut += MESSAGES_PER_INVOCATION;
+		while (messagesHandled.get() < messagesPut) {
+			// Wait for the consumer to catch up, without taking its CPU away
+			Thread.yield();
+		}
+		return messagesPut;
+	}
+}
@@ -0,0 +1,71 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.builder.FlowlessSystemPart;
+
+/**
+ * Measures the throughput of a runner whose model consists of many flowless
+ * steps that all react to the same message class. Each step has a condition,
+ * and for each message, the condition of a different step is true. So the
+ * runner needs to evaluate the conditions of all steps.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FlowlessStepsBenchmark {
+	@Param({ "10", "100", "1000", "10000" })
+	private int numberOfSteps;
+
+	private ModelRunner modelRunner;
+	private Ping ping;
+	private int selectedStep;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel(numberOfSteps);
+		this.modelRunner = new ModelRunner().run(model);
+		this.ping = new Ping();
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		selectedStep = (selectedStep + 1) % numberOfSteps;
+		modelRunner.reactTo(ping);
+		return pingsHandled;
+	}
+
+	private Model buildModel(int numberOfSteps) {
+		FlowlessSystemPart<Ping> systemPart = Model.builder()
+			.condition(() -> isSelected(0)).on(Ping.class).system(this::handlePing);
+
+		for (int i = 1; i < numberOfSteps; i++) {
+			final int stepIndex = i;
+			systemPart = systemPart.condition(() -> isSelected(stepIndex)).on(Ping.class).system(this::handlePing);
+		}
+
+		Model model = systemPart.build();
+		return model;
+	}
+
+	private boolean isSelected(int stepIndex) {
+		return selectedStep == stepIndex;
+	}
+
+	private void handlePing(Ping ping) {
+		pingsHandled++;
+	}
+}
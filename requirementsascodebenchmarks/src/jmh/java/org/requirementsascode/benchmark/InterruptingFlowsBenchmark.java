@@ -0,0 +1,76 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.builder.UseCasePart;
+
+/**
+ * Measures the throughput of a runner whose model consists of many flows that
+ * can start anytime, if their condition is true. Each of these flows has an
+ * interrupting step, and for each message, the condition of a different flow is
+ * true. So the runner needs to evaluate the conditions of all flows, and the
+ * basic flow needs to check that none of them interrupts it.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InterruptingFlowsBenchmark {
+	@Param({ "10", "100", "1000" })
+	private int numberOfInterruptingFlows;
+
+	private ModelRunner modelRunner;
+	private Ping ping;
+	private int selectedFlow;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel(numberOfInterruptingFlows);
+		this.modelRunner = new ModelRunner().run(model);
+		this.ping = new Ping();
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		selectedFlow = (selectedFlow + 1) % numberOfInterruptingFlows;
+		modelRunner.reactTo(ping);
+		return pingsHandled;
+	}
+
+	private Model buildModel(int numberOfInterruptingFlows) {
+		UseCasePart useCasePart = Model.builder().useCase("Use case");
+		useCasePart
+			.basicFlow()
+				.step("Basic step").user(Ping.class).system(this::handlePing);
+
+		for (int i = 0; i < numberOfInterruptingFlows; i++) {
+			final int flowIndex = i;
+			useCasePart
+				.flow("Interrupting flow " + i).anytime().condition(() -> isSelected(flowIndex))
+					.step("Interrupting step " + i).user(Ping.class).system(this::handlePing);
+		}
+
+		Model model = useCasePart.build();
+		return model;
+	}
+
+	private boolean isSelected(int flowIndex) {
+		return selectedFlow == flowIndex;
+	}
+
+	private void handlePing(Ping ping) {
+		pingsHandled++;
+	}
+}
@@ -0,0 +1,9 @@
+package org.requirementsascode.benchmark;
+
+/**
+ * The message the benchmarks send to the model runners.
+ *
+ * @author b_muth
+ */
+public class Ping {
+}
@@ -0,0 +1,84 @@
+package org.requirementsascode.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.builder.FlowPart;
+import org.requirementsascode.builder.StepPart;
+import org.requirementsascode.builder.UseCasePart;
+
+/**
+ * Measures the throughput of queries that ask a runner which messages it can
+ * react to, for a basic flow with many steps and an alternative flow that can
+ * start after any of them. The runner state doesn't change between queries.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QueryBenchmark {
+	@Param({ "10", "100", "1000" })
+	private int numberOfSteps;
+
+	private ModelRunner modelRunner;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel(numberOfSteps);
+		this.modelRunner = new ModelRunner().run(model);
+	}
+
+	@Benchmark
+	public boolean canReactToHandledMessage() {
+		return modelRunner.canReactTo(Ping.class);
+	}
+
+	@Benchmark
+	public boolean canReactToUnhandledMessage() {
+		return modelRunner.canReactTo(Pong.class);
+	}
+
+	@Benchmark
+	public Set<Class<?>> getReactToTypes() {
+		return modelRunner.getReactToTypes();
+	}
+
+	private Model buildModel(int numberOfSteps) {
+		String[] stepNames = new String[numberOfSteps];
+		UseCasePart useCasePart = Model.builder().useCase("Use case");
+		FlowPart basicFlow = useCasePart.basicFlow();
+
+		StepPart stepPart = null;
+		for (int i = 0; i < numberOfSteps; i++) {
+			stepNames[i] = "S" + i;
+			stepPart = i == 0 ? basicFlow.step(stepNames[i]) : stepPart.user(Ping.class).system(this::handlePing).step(stepNames[i]);
+		}
+		stepPart.user(Ping.class).system(this::handlePing);
+
+		Model model = useCasePart
+			.flow("Alternative").after(stepNames).condition(() -> false)
+				.step("Alternative").user(Pong.class).system(this::handlePong)
+			.build();
+		return model;
+	}
+
+	private void handlePing(Ping ping) {
+	}
+
+	private void handlePong(Pong pong) {
+	}
+
+	public static class Pong {
+	}
+}
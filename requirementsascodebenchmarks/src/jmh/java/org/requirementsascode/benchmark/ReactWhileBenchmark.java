@@ -0,0 +1,77 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+
+/**
+ * Measures the throughput of a runner whose basic flow has a step that reacts
+ * in a reactWhile loop. After the specified number of iterations, an
+ * alternative flow exits the loop autonomously, and continues at the loop
+ * again.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReactWhileBenchmark {
+	@Param({ "1", "10", "100" })
+	private int loopLength;
+
+	private ModelRunner modelRunner;
+	private Ping ping;
+	private int iteration;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel();
+		this.modelRunner = new ModelRunner().run(model);
+		this.ping = new Ping();
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		modelRunner.reactTo(ping);
+		return pingsHandled;
+	}
+
+	private Model buildModel() {
+		Model model = Model.builder()
+			.useCase("Use case")
+				.basicFlow()
+					.step("Loop").user(Ping.class).system(this::handlePing).reactWhile(this::isLooping)
+				.flow("Exit").after("Loop").condition(this::isLoopFinished)
+					.step("Exit").system(this::exitLoop)
+					.step("Restart").continuesAt("Loop")
+			.build();
+		return model;
+	}
+
+	private boolean isLooping() {
+		return iteration < loopLength;
+	}
+
+	private boolean isLoopFinished() {
+		return !isLooping();
+	}
+
+	private void handlePing(Ping ping) {
+		iteration++;
+		pingsHandled++;
+	}
+
+	private void exitLoop() {
+		iteration = 0;
+	}
+}
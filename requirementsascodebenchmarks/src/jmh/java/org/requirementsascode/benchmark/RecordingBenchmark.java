@@ -0,0 +1,73 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+
+/**
+ * Measures the throughput of a runner with recording switched on and off. To
+ * keep the recorded step names and messages from growing without bounds,
+ * recording is restarted every {@value #MESSAGES_PER_RECORDING} messages.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecordingBenchmark {
+	private static final int MESSAGES_PER_RECORDING = 1024;
+
+	@Param({ "false", "true" })
+	private boolean isRecording;
+
+	private ModelRunner modelRunner;
+	private Ping ping;
+	private int messagesRecorded;
+	private long pingsHandled;
+
+	@Setup
+	public void setup() {
+		Model model = buildModel();
+		this.modelRunner = new ModelRunner().run(model);
+		this.ping = new Ping();
+		if (isRecording) {
+			modelRunner.startRecording();
+		}
+	}
+
+	@Benchmark
+	public long reactToMessage() {
+		modelRunner.reactTo(ping);
+		if (isRecording && ++messagesRecorded == MESSAGES_PER_RECORDING) {
+			messagesRecorded = 0;
+			modelRunner.startRecording();
+		}
+		return pingsHandled;
+	}
+
+	private Model buildModel() {
+		Model model = Model.builder()
+			.useCase("Use case")
+				.basicFlow()
+					.step("S0").user(Ping.class).system(this::handlePing)
+					.step("S1").user(Ping.class).system(this::handlePing)
+					.step("S2").user(Ping.class).system(this::handlePing)
+				.flow("Restart").after("S2")
+					.step("Restart").continuesAt("S0")
+			.build();
+		return model;
+	}
+
+	private void handlePing(Ping ping) {
+		pingsHandled++;
+	}
+}
@@ -0,0 +1,100 @@
+package org.requirementsascode.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.requirementsascode.InMemorySessionStore;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelEngine;
+import org.requirementsascode.SessionRegistry;
+import org.requirementsascode.SessionRegistryBuilder;
+
+/**
+ * Measures the throughput of 4 threads that dispatch messages through a
+ * session registry, for 1,000,000 keys. The keys are accessed with a Zipfian
+ * distribution, so a few keys are hot and most keys are cold. The registry
+ * either holds all sessions, or the 100,000 least recently used sessions and
+ * passivates the others to an in-memory store.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SessionRegistryBenchmark {
+	private static final int KEY_COUNT = 1_000_000;
+	private static final int SAMPLE_COUNT = 1 << 20;
+	private static final double ZIPF_EXPONENT = 0.99;
+
+	@Param({ "2147483647", "100000" })
+	private int maxSize;
+
+	private SessionRegistry<Integer> registry;
+	private Integer[] sampledKeys;
+	private Ping ping;
+
+	@Setup
+	public void setup() {
+		Model model = Model.builder()
+			.useCase("Use case")
+				.basicFlow()
+					.step("S1").on(Ping.class).system(ping -> {})
+					.step("S2").continuesAt("S1")
+			.build();
+		ModelEngine modelEngine = new ModelEngine(model);
+		SessionRegistryBuilder<Integer> builder = SessionRegistry.builder(modelEngine)
+			.passivateTo(new InMemorySessionStore<Integer>());
+		this.registry = builder.maxSize(maxSize).build();
+		this.sampledKeys = sampleZipfianKeys();
+		this.ping = new Ping();
+	}
+
+	private Integer[] sampleZipfianKeys() {
+		Integer[] keys = new Integer[KEY_COUNT];
+		double[] cumulativeProbabilities = new double[KEY_COUNT];
+		double sum = 0;
+		for (int rank = 0; rank < KEY_COUNT; rank++) {
+			keys[rank] = rank;
+			sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+			cumulativeProbabilities[rank] = sum;
+		}
+
+		Random random = new Random(42);
+		Integer[] sampledKeys = new Integer[SAMPLE_COUNT];
+		for (int i = 0; i < SAMPLE_COUNT; i++) {
+			int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble() * sum);
+			int rank = index >= 0 ? index : Math.min(-index - 1, KEY_COUNT - 1);
+			sampledKeys[i] = keys[rank];
+		}
+		return sampledKeys;
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+
+		@Setup
+		public void setup() {
+			this.next = new Random().nextInt(SAMPLE_COUNT);
+		}
+	}
+
+	@Benchmark
+	public Object reactToZipfianKey(Cursor cursor) {
+		Integer key = sampledKeys[cursor.next++ & (SAMPLE_COUNT - 1)];
+		return registry.reactTo(key, ping);
+	}
+}
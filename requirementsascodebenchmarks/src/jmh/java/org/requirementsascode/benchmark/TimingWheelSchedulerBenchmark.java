@@ -0,0 +1,75 @@
+package org.requirementsascode.benchmark;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.requirementsascode.scheduler.ScheduledTask;
+import org.requirementsascode.scheduler.TimingWheelScheduler;
+
+/**
+ * Measures scheduling a timeout and cancelling it again, the common case of a
+ * step whose next step runs in time. Many other timeouts are pending meanwhile.
+ * Compares the timing wheel scheduler with a scheduled thread pool executor,
+ * whose delay queue is a binary heap.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimingWheelSchedulerBenchmark {
+	private static final Runnable TIMEOUT = () -> {};
+
+	@Param({ "1000", "1000000" })
+	private int pendingCount;
+
+	private TimingWheelScheduler timingWheelScheduler;
+	private ScheduledThreadPoolExecutor executor;
+
+	@Setup
+	public void setup() {
+		this.timingWheelScheduler = TimingWheelScheduler.builder().start();
+		this.executor = new ScheduledThreadPoolExecutor(1);
+		executor.setRemoveOnCancelPolicy(true);
+
+		for (int i = 0; i < pendingCount; i++) {
+			long delay = randomDelayInSeconds();
+			timingWheelScheduler.schedule(TIMEOUT, delay, TimeUnit.SECONDS);
+			executor.schedule(TIMEOUT, delay, TimeUnit.SECONDS);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		timingWheelScheduler.shutdown();
+		executor.shutdownNow();
+	}
+
+	private static long randomDelayInSeconds() {
+		// Between 1 and 2 hours, so that no timeout expires during the benchmark
+		return ThreadLocalRandom.current().nextLong(3600, 7200);
+	}
+
+	@Benchmark
+	public boolean timingWheelScheduleAndCancel() {
+		ScheduledTask task = timingWheelScheduler.schedule(TIMEOUT, randomDelayInSeconds(), TimeUnit.SECONDS);
+		return task.cancel();
+	}
+
+	@Benchmark
+	public boolean scheduledThreadPoolExecutorScheduleAndCancel() {
+		ScheduledFuture<?> future = executor.schedule(TIMEOUT, randomDelayInSeconds(), TimeUnit.SECONDS);
+		return future.cancel(false);
+	}
+}
@@ -1,6 +1,10 @@
 package org.requirementsascode;
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 import org.requirementsascode.exception.InfiniteRepetition;
@@ -14,12 +18,17 @@ import org.requirementsascode.exception.MoreThanOneStepCanReact;
  * 
  * Actors enable to distinguish user rights: only an actor that is connected to
  * a particular step is allowed to cause a system reaction for that step.
+ * 
+ * By default, an actor reacts to a message on the caller's thread. In mailbox
+ * mode, it reacts to messages one at a time on an executor instead, see
+ * {@link #useMailbox(Executor)}.
  *
  * @author b_muth
  */
 public abstract class AbstractActor {
   private String name;
   private ModelRunner modelRunner;
+  private volatile Mailbox mailbox;
 
   /**
    * Creates an actor with a name equal to the current class' simple name.
@@ -122,6 +131,15 @@ public abstract class AbstractActor {
    *         empty Optional.
    */
   public <T, U> Optional<U> reactTo(Object message, AbstractActor callingActor) {
+    Mailbox currentMailbox = mailbox;
+    if (currentMailbox != null && !currentMailbox.isProcessedByCurrentThread()) {
+      CompletableFuture<Optional<U>> futureEvent = reactToAsync(message, callingActor);
+      return join(futureEvent);
+    }
+    return reactToNow(message, callingActor);
+  }
+
+  <U> Optional<U> reactToNow(Object message, AbstractActor callingActor) {
     if (!getModelRunner().isRunning()) {
       run();
     }
@@ -134,10 +152,134 @@ public abstract class AbstractActor {
     }
   }
 
+  private static <U> Optional<U> join(CompletableFuture<Optional<U>> futureEvent) {
+    try {
+      return futureEvent.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Call this method to provide a message (i.e. command or event object) to the
+   * actor, without waiting for the actor to react to it.
+   * 
+   * <p>
+   * In mailbox mode, the message is put into the actor's mailbox, and the
+   * returned future is completed when the actor has reacted to it. Otherwise,
+   * the actor reacts to the message on the calling thread, as with
+   * {@link #reactTo(Object)}, and the returned future is already completed.
+   * 
+   * @see #useMailbox(Executor)
+   * 
+   * @param <T>     the type of message
+   * @param <U>     the return type that you as the user expects.
+   * @param message the message object
+   * @return the future of the event that was published (latest) if the system
+   *         reacted, or of an empty Optional. It is completed exceptionally if
+   *         {@link #reactTo(Object)} would have thrown an exception.
+   */
+  public <T, U> CompletableFuture<Optional<U>> reactToAsync(T message) {
+    return reactToAsync(message, null);
+  }
+
+  /**
+   * Same as {@link #reactToAsync(Object)}, but with the specified actor as the
+   * calling user's role.
+   * 
+   * @param <T>          the type of message
+   * @param <U>          the return type that you as the user expects.
+   * @param message      the message object
+   * @param callingActor the actor as which to call this actor.
+   * @return the future of the event that was published (latest) if the system
+   *         reacted, or of an empty Optional.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public <T, U> CompletableFuture<Optional<U>> reactToAsync(Object message, AbstractActor callingActor) {
+    Objects.requireNonNull(message);
+    Mailbox currentMailbox = mailbox;
+    if (currentMailbox != null) {
+      return (CompletableFuture) currentMailbox.post(message, callingActor);
+    }
+
+    CompletableFuture<Optional<U>> futureEvent = new CompletableFuture<>();
+    try {
+      futureEvent.complete(reactToNow(message, callingActor));
+    } catch (RuntimeException e) {
+      futureEvent.completeExceptionally(e);
+    }
+    return futureEvent;
+  }
+
+  /**
+   * Delivers a message published to this actor by another runner, with
+   * .to(...). In mailbox mode, the message is put into the mailbox, so the
+   * publishing actor doesn't wait for this actor.
+   *
+   * @return the future that is completed when this actor has reacted
+   */
+  CompletableFuture<Void> deliver(Object message, AbstractActor callingActor) {
+    Mailbox currentMailbox = mailbox;
+    if (currentMailbox != null) {
+      return currentMailbox.post(message, callingActor).thenApply(publishedEvent -> null);
+    } else {
+      reactTo(message, callingActor);
+      return Delivery.DELIVERED;
+    }
+  }
+
+  /**
+   * Switches this actor to mailbox mode. In mailbox mode, messages are put into
+   * the actor's mailbox. The actor reacts to them one at a time, in the order
+   * they have been put, as tasks of the specified executor. Different actors
+   * react in parallel, if the executor has several threads.
+   * 
+   * <p>
+   * Messages that other actors publish to this actor with .to(...) don't wait
+   * for this actor to react. A call of {@link #reactTo(Object)} waits until the
+   * actor has reacted. Don't call it from a system reaction of an actor whose
+   * mailbox is processed by a single threaded executor, but use
+   * {@link #reactToAsync(Object)} instead.
+   * 
+   * <p>
+   * An actor can only be switched to mailbox mode once, as messages may still be
+   * scheduled in its mailbox.
+   * 
+   * @param executor the executor that processes the mailbox
+   * @throws IllegalStateException if the actor is already in mailbox mode
+   */
+  public synchronized void useMailbox(Executor executor) {
+    if (mailbox != null) {
+      throw new IllegalStateException("Actor " + this + " is already in mailbox mode");
+    }
+    this.mailbox = new Mailbox(this, executor);
+  }
+
+  Mailbox getMailbox() {
+    return mailbox;
+  }
+
+  /**
+   * Returns whether this actor is in mailbox mode.
+   * 
+   * @see #useMailbox(Executor)
+   * @return true if in mailbox mode, false otherwise
+   */
+  public boolean hasMailbox() {
+    return mailbox != null;
+  }
+
   private AbstractActor callingActorOrDefaultUser(AbstractActor callingActor) {
     AbstractActor runActor;
     if (callingActor == null) {
-      runActor = getModelRunner().getModel().map(Model::getUserActor).orElse(null);
+      Model model = getModelRunner().getModelOrNull();
+      runActor = model != null ? model.getUserActor() : null;
     } else {
       runActor = callingActor;
     }
@@ -0,0 +1,174 @@
+package org.requirementsascode;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An actor system hosts a large number of actors in mailbox mode, and manages
+ * their lifecycle.
+ *
+ * <p>
+ * Each spawned actor gets its own mailbox. While an actor has messages in its
+ * mailbox, it reacts to them on a thread of the system's executor. An idle actor
+ * doesn't occupy a thread, so a system can host millions of actors.
+ *
+ * <p>
+ * On Java 21 or later, {@link #create()} creates a system that runs each actor
+ * on a virtual thread. A system reaction that blocks, e.g. for I/O, then only
+ * blocks its virtual thread, not the underlying carrier thread. The runners and
+ * mailboxes don't hold monitors while reacting, so they don't pin the carrier
+ * thread. On earlier Java versions, the system falls back to a work stealing
+ * pool of platform threads.
+ *
+ * @see AbstractActor#useMailbox(java.util.concurrent.Executor)
+ * @author b_muth
+ */
+public final class ActorSystem {
+  private final ExecutorService executor;
+  private final boolean usesVirtualThreads;
+  private final Set<Mailbox> mailboxes;
+  private volatile boolean isShutdown;
+
+  /**
+   * Creates an actor system whose actors react on the specified executor. The
+   * system shuts down the executor when it is shut down.
+   *
+   * @param executor the executor of the actors' mailboxes
+   */
+  public ActorSystem(ExecutorService executor) {
+    this(executor, false);
+  }
+
+  private ActorSystem(ExecutorService executor, boolean usesVirtualThreads) {
+    this.executor = Objects.requireNonNull(executor);
+    this.usesVirtualThreads = usesVirtualThreads;
+    this.mailboxes = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Creates an actor system that runs each actor on a virtual thread, if the
+   * Java runtime supports virtual threads. Otherwise, the actors run on a work
+   * stealing pool with as many threads as there are processors.
+   *
+   * @return the actor system
+   */
+  public static ActorSystem create() {
+    ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutorOrNull();
+    if (virtualThreadExecutor != null) {
+      return new ActorSystem(virtualThreadExecutor, true);
+    }
+    return new ActorSystem(Executors.newWorkStealingPool(), false);
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutorOrNull() {
+    try {
+      Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Before Java 21, or virtual threads are a disabled preview feature
+      return null;
+    }
+  }
+
+  /**
+   * Spawns the specified actor: switches it to mailbox mode, with this system's
+   * executor. From now on, the actor reacts to messages asynchronously, until it
+   * is stopped.
+   *
+   * @param <A>   the type of actor
+   * @param actor the actor
+   * @return the spawned actor
+   * @throws IllegalStateException if the system has been shut down, or the actor
+   *                               is already in mailbox mode, e.g. because it
+   *                               has been spawned before
+   */
+  public <A extends AbstractActor> A spawn(A actor) {
+    Objects.requireNonNull(actor);
+    if (isShutdown) {
+      throw new IllegalStateException("Actor system has been shut down");
+    }
+    actor.useMailbox(executor);
+    Mailbox mailbox = actor.getMailbox();
+    mailboxes.add(mailbox);
+    // Either this thread sees the shutdown, or the shutting down thread sees the
+    // mailbox. Whichever removes the mailbox first closes it.
+    if (isShutdown && mailboxes.remove(mailbox)) {
+      mailbox.close();
+      throw new IllegalStateException("Actor system has been shut down");
+    }
+    return actor;
+  }
+
+  /**
+   * Stops the specified actor. The actor doesn't react to messages that are
+   * still in its mailbox, or that are sent to it later. Their futures are
+   * completed exceptionally.
+   *
+   * @param actor the actor
+   */
+  public void stop(AbstractActor actor) {
+    Mailbox mailbox = actor.getMailbox();
+    if (mailbox != null && mailboxes.remove(mailbox)) {
+      mailbox.close();
+    }
+  }
+
+  /**
+   * Returns the number of actors that have been spawned, and not stopped yet.
+   *
+   * @return the number of actors
+   */
+  public int getActorCount() {
+    return mailboxes.size();
+  }
+
+  /**
+   * Shuts down the system: stops all actors, and the executor. Actors that are
+   * reacting to a message finish their reaction.
+   */
+  public void shutdown() {
+    isShutdown = true;
+    for (Mailbox mailbox : mailboxes) {
+      if (mailboxes.remove(mailbox)) {
+        mailbox.close();
+      }
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Waits until all actors have finished reacting after a shutdown, or the
+   * timeout expires.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit    the time unit of the timeout
+   * @return true if the system has terminated, false if the timeout expired
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Returns whether the system has been shut down.
+   *
+   * @return true if shut down, false otherwise
+   */
+  public boolean isShutdown() {
+    return isShutdown;
+  }
+
+  /**
+   * Returns whether the actors of this system run on virtual threads.
+   *
+   * @return true if on virtual threads, false if on platform threads
+   */
+  public boolean usesVirtualThreads() {
+    return usesVirtualThreads;
+  }
+}
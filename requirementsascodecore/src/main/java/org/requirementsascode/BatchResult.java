@@ -0,0 +1,66 @@
+package org.requirementsascode;
+
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * The aggregate result of dispatching a batch of messages, e.g. with
+ * {@link ModelRunner#reactToAll(Iterator)}.
+ *
+ * @author b_muth
+ *
+ * @param <U> the type of the latest published event
+ */
+public final class BatchResult<U> {
+  private final long handledCount;
+  private final long unhandledCount;
+  private final U latestPublishedEvent;
+
+  BatchResult(long handledCount, long unhandledCount, U latestPublishedEvent) {
+    this.handledCount = handledCount;
+    this.unhandledCount = unhandledCount;
+    this.latestPublishedEvent = latestPublishedEvent;
+  }
+
+  /**
+   * Returns the number of messages of the batch that a step reacted to.
+   *
+   * @return the number of handled messages
+   */
+  public long getHandledCount() {
+    return handledCount;
+  }
+
+  /**
+   * Returns the number of messages of the batch that no step reacted to.
+   *
+   * @return the number of unhandled messages
+   */
+  public long getUnhandledCount() {
+    return unhandledCount;
+  }
+
+  /**
+   * Returns the total number of messages of the batch.
+   *
+   * @return the number of messages
+   */
+  public long getMessageCount() {
+    return handledCount + unhandledCount;
+  }
+
+  /**
+   * Returns the event that was published latest while dispatching the batch.
+   *
+   * @return the event, or an empty optional if no event was published
+   */
+  public Optional<U> getLatestPublishedEvent() {
+    return Optional.ofNullable(latestPublishedEvent);
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult [handledCount=" + handledCount + ", unhandledCount=" + unhandledCount
+      + ", latestPublishedEvent=" + latestPublishedEvent + "]";
+  }
+}
@@ -0,0 +1,224 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A frozen, array-backed form of a {@link Model}, used by the
+ * {@link ModelRunner} to dispatch messages without rebuilding step collections.
+ *
+ * <p>
+ * All steps of the model are kept in a single flat array, ordered by use case
+ * and, within each use case, in the order they have been defined. The index of
+ * a step in that array is its integer step id. The steps of each use case form
+ * a contiguous slice of the array. The steps of each flow are kept in a
+ * separate array, in the order of the flow.
+ *
+ * <p>
+ * A compiled model is immutable. If the model changes after it has been
+ * compiled (e.g. steps are added, or flow positions change), the model creates
+ * a new compiled model the next time it is asked for it.
+ *
+ * @see Model#getCompiledModel()
+ * @author b_muth
+ */
+public final class CompiledModel {
+  private final Model model;
+  private final Step[] steps;
+  private final List<Step> stepList;
+  private final Map<UseCase, List<Step>> useCaseToStepsMap;
+  private final Map<Flow, List<FlowStep>> flowToStepsMap;
+  private final DispatchIndex dispatchIndex;
+  private final Map<Condition, Integer> pureConditionIds;
+  private FlowPositionTable flowPositionTable;
+
+  CompiledModel(Model model) {
+    this.model = Objects.requireNonNull(model);
+    this.steps = compileSteps(model);
+    this.stepList = Collections.unmodifiableList(Arrays.asList(steps));
+    this.useCaseToStepsMap = new IdentityHashMap<>();
+    this.flowToStepsMap = new IdentityHashMap<>();
+    compileSlices(model);
+    this.dispatchIndex = new DispatchIndex(steps);
+    this.pureConditionIds = compilePureConditionIds();
+  }
+
+  private Step[] compileSteps(Model model) {
+    Collection<Step> modelSteps = model.getModifiableSteps();
+    Step[] steps = modelSteps.toArray(new Step[0]);
+    for (int stepId = 0; stepId < steps.length; stepId++) {
+      steps[stepId].setId(stepId);
+    }
+    return steps;
+  }
+
+  private void compileSlices(Model model) {
+    int useCaseStart = 0;
+    for (UseCase useCase : model.getModifiableUseCases()) {
+      int useCaseEnd = useCaseStart + useCase.getModifiableSteps().size();
+      useCaseToStepsMap.put(useCase, stepList.subList(useCaseStart, useCaseEnd));
+      compileFlowSlices(useCase, useCaseStart, useCaseEnd);
+      useCaseStart = useCaseEnd;
+    }
+  }
+
+  private void compileFlowSlices(UseCase useCase, int useCaseStart, int useCaseEnd) {
+    for (Flow flow : useCase.getFlows()) {
+      List<FlowStep> flowSteps = new ArrayList<>();
+      for (int stepId = useCaseStart; stepId < useCaseEnd; stepId++) {
+        Step step = steps[stepId];
+        if (step instanceof FlowStep && flow.equals(((FlowStep) step).getFlow())) {
+          flowSteps.add((FlowStep) step);
+        }
+      }
+      flowToStepsMap.put(flow, Collections.unmodifiableList(Arrays.asList(flowSteps.toArray(new FlowStep[0]))));
+    }
+  }
+
+  private Map<Condition, Integer> compilePureConditionIds() {
+    Map<Condition, Integer> pureConditionIds = new IdentityHashMap<>();
+    for (Step step : steps) {
+      addPureConditionId(pureConditionIds, step.getCondition().orElse(null));
+      addPureConditionId(pureConditionIds, step.getCase().orElse(null));
+      if (step instanceof FlowStep) {
+        addPureConditionId(pureConditionIds, ((FlowStep) step).getReactWhile());
+      }
+    }
+    return pureConditionIds;
+  }
+
+  private void addPureConditionId(Map<Condition, Integer> pureConditionIds, Condition condition) {
+    if (condition instanceof PureCondition && !pureConditionIds.containsKey(condition)) {
+      pureConditionIds.put(condition, pureConditionIds.size());
+    }
+  }
+
+  /**
+   * Returns the model this compiled model has been created from.
+   *
+   * @return the model
+   */
+  public Model getModel() {
+    return model;
+  }
+
+  /**
+   * Returns the number of steps in the model. Step ids range from 0 to this
+   * number (exclusive).
+   *
+   * @return the number of steps
+   */
+  public int getStepCount() {
+    return steps.length;
+  }
+
+  /**
+   * Returns the step with the specified id.
+   *
+   * @param stepId the id of the step
+   * @return the step
+   * @throws ArrayIndexOutOfBoundsException if there is no step with the
+   *                                        specified id
+   */
+  public Step getStep(int stepId) {
+    return steps[stepId];
+  }
+
+  /**
+   * Returns the integer id of the specified step.
+   *
+   * @param step the step
+   * @return the id of the step, or -1 if the step is not part of this compiled
+   *         model
+   */
+  public int getStepId(Step step) {
+    Objects.requireNonNull(step);
+    int stepId = step.getId();
+    boolean isStepOfThisModel = stepId >= 0 && stepId < steps.length && steps[stepId] == step;
+    return isStepOfThisModel ? stepId : -1;
+  }
+
+  /**
+   * Returns all steps of the model, ordered by use case and by the order in
+   * which they have been defined.
+   *
+   * @return an unmodifiable list of the steps
+   */
+  public List<Step> getSteps() {
+    return stepList;
+  }
+
+  /**
+   * Returns the steps of the specified use case, in the order in which they have
+   * been defined.
+   *
+   * @param useCase the use case
+   * @return an unmodifiable list of the steps, or an empty list if the use case
+   *         isn't part of this compiled model
+   */
+  public List<Step> getSteps(UseCase useCase) {
+    List<Step> useCaseSteps = useCaseToStepsMap.get(useCase);
+    return useCaseSteps != null ? useCaseSteps : Collections.emptyList();
+  }
+
+  /**
+   * Returns the steps of the specified flow, in the order of the flow.
+   *
+   * @param flow the flow
+   * @return an unmodifiable list of the steps, or an empty list if the flow isn't
+   *         part of this compiled model
+   */
+  public List<FlowStep> getSteps(Flow flow) {
+    List<FlowStep> flowSteps = flowToStepsMap.get(flow);
+    return flowSteps != null ? flowSteps : Collections.emptyList();
+  }
+
+  Step[] getStepArray() {
+    return steps;
+  }
+
+  /**
+   * Returns the number of distinct pure conditions of the steps. Pure condition
+   * ids range from 0 to this number (exclusive).
+   *
+   * @return the number of pure conditions
+   */
+  int getPureConditionCount() {
+    return pureConditionIds.size();
+  }
+
+  /**
+   * Returns the id of the specified pure condition.
+   *
+   * @param condition the condition
+   * @return the id, or -1 if no step of this compiled model uses the condition
+   */
+  int getPureConditionId(Condition condition) {
+    Integer pureConditionId = pureConditionIds.get(condition);
+    return pureConditionId != null ? pureConditionId : -1;
+  }
+
+  DispatchIndex getDispatchIndex() {
+    return dispatchIndex;
+  }
+
+  /**
+   * Returns the transition table for the flow positions of the steps. It is
+   * created lazily, on first use, because resolving the flow positions fails
+   * while forward references to steps are not yet defined.
+   *
+   * @return the flow position table
+   */
+  FlowPositionTable getFlowPositionTable() {
+    if (flowPositionTable == null) {
+      flowPositionTable = new FlowPositionTable(this);
+    }
+    return flowPositionTable;
+  }
+}
@@ -0,0 +1,222 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * A thread-safe front end of a model runner. Any thread may call
+ * {@link #reactTo(Object)} concurrently.
+ *
+ * <p>
+ * A model runner itself is not thread-safe. Instead of locking the runner for
+ * each call, the calling threads enqueue their requests on a lock-free queue.
+ * One calling thread at a time becomes the combiner: it executes all enqueued
+ * requests in order, including those of other threads, and completes their
+ * futures. The other threads don't compete for the runner, they only wait for
+ * their results. So the runner's state stays in the cache of a single thread as
+ * long as there are requests, and contention doesn't grow with the number of
+ * threads.
+ *
+ * <p>
+ * A combiner executes at most {@value #MAX_REQUESTS_PER_PASS} requests per
+ * pass. After its own request has been executed, it hands over to a thread that
+ * waits in {@link #reactTo(Object)}, so that no caller serves the others
+ * indefinitely. If only asynchronous requests are pending, no other thread
+ * waits to take over, so the combiner continues.
+ *
+ * <p>
+ * Don't use the wrapped runner directly while it is wrapped, use
+ * {@link #execute(Function)} instead.
+ *
+ * @author b_muth
+ */
+public class ConcurrentModelRunner {
+  // Waiting briefly is cheaper than parking, as the combiner needs to unpark each parked thread
+  private static final int MAX_YIELDS_BEFORE_PARKING = 64;
+  static final int MAX_REQUESTS_PER_PASS = 256;
+
+  private final ModelRunner modelRunner;
+  private final AtomicBoolean isCombining;
+  private final AtomicReference<Request<?>> tail;
+  // Only written by the combining thread, read by all threads to check for requests
+  private volatile Request<?> head;
+  private volatile Thread combiningThread;
+
+  /**
+   * Creates a thread-safe front end of the specified runner.
+   *
+   * @param modelRunner the runner to wrap
+   */
+  public ConcurrentModelRunner(ModelRunner modelRunner) {
+    this.modelRunner = Objects.requireNonNull(modelRunner);
+    this.isCombining = new AtomicBoolean();
+    this.head = new Request<>(null, null);
+    this.tail = new AtomicReference<>(head);
+  }
+
+  /**
+   * Same as {@link ModelRunner#reactTo(Object)}, but thread-safe. Waits until
+   * the runner has reacted to the message.
+   *
+   * @param <T>     the type of message
+   * @param <U>     the return type that you as the user expects.
+   * @param message the message object
+   * @return the event that was published (latest) if the system reacted, or an
+   *         empty Optional.
+   * @throws MoreThanOneStepCanReact when more than one step can react
+   * @throws InfiniteRepetition      when a step has an always true condition, or
+   *                                 there is an infinite loop.
+   */
+  public <T, U> Optional<U> reactTo(T message) {
+    Objects.requireNonNull(message);
+    if (combiningThread == Thread.currentThread()) {
+      // Called by a system reaction, so the runner rejects the nested call
+      return modelRunner.reactTo(message);
+    }
+    Request<Optional<U>> request = new Request<>(modelRunner -> modelRunner.reactTo(message), Thread.currentThread());
+    enqueue(request);
+    combine(request);
+    for (int i = 0; !request.isDone(); i++) {
+      if (i < MAX_YIELDS_BEFORE_PARKING) {
+        Thread.yield();
+      } else {
+        LockSupport.park(this);
+      }
+      // Takes over if the combiner has handed over to this thread
+      combine(request);
+    }
+    return join(request);
+  }
+
+  /**
+   * Same as {@link #reactTo(Object)}, but returns a future instead of waiting.
+   * If no other thread is currently combining, the calling thread executes the
+   * request, so the future may already be completed when it is returned.
+   *
+   * @param <T>     the type of message
+   * @param <U>     the return type that you as the user expects.
+   * @param message the message object
+   * @return the future of the event that was published (latest) if the system
+   *         reacted, or an empty Optional.
+   */
+  public <T, U> CompletableFuture<Optional<U>> reactToAsync(T message) {
+    Objects.requireNonNull(message);
+    return execute(modelRunner -> modelRunner.reactTo(message));
+  }
+
+  /**
+   * Executes the specified function on the wrapped runner, in order with the
+   * messages the runner reacts to. Use it to run a model, or to query the
+   * runner, without interfering with other threads.
+   *
+   * @param <R>      the type of result
+   * @param function the function to apply to the runner
+   * @return the future of the function's result
+   */
+  public <R> CompletableFuture<R> execute(Function<ModelRunner, R> function) {
+    Request<R> request = new Request<>(Objects.requireNonNull(function), null);
+    enqueue(request);
+    combine(request);
+    return request;
+  }
+
+  private void enqueue(Request<?> request) {
+    Request<?> previousTail = tail.getAndSet(request);
+    previousTail.next = request;
+  }
+
+  private void combine(Request<?> ownRequest) {
+    // Re-check after releasing, as requests may have been enqueued meanwhile
+    while (head.next != null && isCombining.compareAndSet(false, true)) {
+      Thread nextCombiningThread = null;
+      combiningThread = Thread.currentThread();
+      try {
+        Request<?> request;
+        for (int i = 0; i < MAX_REQUESTS_PER_PASS && (request = poll()) != null; i++) {
+          request.executeOn(modelRunner);
+        }
+        if (ownRequest.isDone()) {
+          nextCombiningThread = findWaitingThread();
+        }
+      } finally {
+        combiningThread = null;
+        isCombining.set(false);
+      }
+      if (nextCombiningThread != null) {
+        LockSupport.unpark(nextCombiningThread);
+        return;
+      }
+    }
+  }
+
+  // Returns the thread of one of the next pending requests that waits for its result
+  private Thread findWaitingThread() {
+    Request<?> request = head.next;
+    for (int i = 0; i < MAX_REQUESTS_PER_PASS && request != null; i++) {
+      if (request.waitingThread != null) {
+        return request.waitingThread;
+      }
+      request = request.next;
+    }
+    return null;
+  }
+
+  private Request<?> poll() {
+    Request<?> next = head.next;
+    if (next != null) {
+      // The polled request becomes the new head
+      head.next = null;
+      head = next;
+    }
+    return next;
+  }
+
+  private static <U> Optional<U> join(CompletableFuture<Optional<U>> futureEvent) {
+    try {
+      return futureEvent.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private static class Request<R> extends CompletableFuture<R> {
+    private Function<ModelRunner, R> function;
+    // The thread that waits for the result, or null if the request is asynchronous
+    private final Thread waitingThread;
+    private volatile Request<?> next;
+
+    Request(Function<ModelRunner, R> function, Thread waitingThread) {
+      this.function = function;
+      this.waitingThread = waitingThread;
+    }
+
+    void executeOn(ModelRunner modelRunner) {
+      Function<ModelRunner, R> function = this.function;
+      // Don't retain the function, as the request stays the head of the queue
+      this.function = null;
+      try {
+        complete(function.apply(modelRunner));
+      } catch (RuntimeException | Error e) {
+        completeExceptionally(e);
+      }
+      if (waitingThread != null) {
+        LockSupport.unpark(waitingThread);
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.requirementsascode;
+
+/**
+ * The number of condition evaluations of a model runner, since it has been
+ * created. Conditions include the conditions, cases and reactWhile conditions
+ * of steps.
+ *
+ * @see ModelRunner#getConditionMetrics()
+ * @see PureCondition
+ * @author b_muth
+ */
+public final class ConditionMetrics {
+  private final long evaluationCount;
+  private final long savedEvaluationCount;
+
+  ConditionMetrics(long evaluationCount, long savedEvaluationCount) {
+    this.evaluationCount = evaluationCount;
+    this.savedEvaluationCount = savedEvaluationCount;
+  }
+
+  /**
+   * Returns the number of times the runner evaluated a condition.
+   *
+   * @return the number of evaluations
+   */
+  public long getEvaluationCount() {
+    return evaluationCount;
+  }
+
+  /**
+   * Returns the number of times the runner didn't evaluate a pure condition,
+   * because it had already been evaluated in the same dispatch cycle.
+   *
+   * @return the number of saved evaluations
+   */
+  public long getSavedEvaluationCount() {
+    return savedEvaluationCount;
+  }
+
+  @Override
+  public String toString() {
+    return "ConditionMetrics [evaluationCount=" + evaluationCount + ", savedEvaluationCount=" + savedEvaluationCount
+      + "]";
+  }
+}
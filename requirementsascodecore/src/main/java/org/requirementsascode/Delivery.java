@@ -0,0 +1,106 @@
+package org.requirementsascode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Delivers the messages that a model runner publishes with .to(...) to their
+ * recipients. By default, the recipients receive a message one after the other,
+ * on the publishing thread. A concurrent delivery dispatches to the recipients
+ * as tasks of an executor instead, and keeps the order of the messages as
+ * specified by the delivery order.
+ *
+ * <p>
+ * A delivery is only used by the thread of its runner, so it needs no locking.
+ * 
+ * @see ModelRunner#deliverConcurrently(Executor, DeliveryOrder)
+ * @author b_muth
+ */
+class Delivery {
+  // Shared by all runners and actors, so it must never be handed out to callers
+  static final CompletableFuture<Void> DELIVERED = CompletableFuture.completedFuture(null);
+  static final Delivery SYNCHRONOUS = new Delivery();
+
+  private final Executor executor;
+  private final DeliveryOrder deliveryOrder;
+  private final Map<AbstractActor, CompletableFuture<Void>> latestDeliveryPerRecipient;
+  private CompletableFuture<Void> latestDeliveryToAllRecipients;
+
+  private Delivery() {
+    this.executor = null;
+    this.deliveryOrder = null;
+    this.latestDeliveryPerRecipient = null;
+  }
+
+  Delivery(Executor executor, DeliveryOrder deliveryOrder) {
+    this.executor = Objects.requireNonNull(executor);
+    this.deliveryOrder = Objects.requireNonNull(deliveryOrder);
+    this.latestDeliveryPerRecipient = new IdentityHashMap<>();
+    this.latestDeliveryToAllRecipients = DELIVERED;
+  }
+
+  /**
+   * Returns a new future that completes like the specified one. Public methods
+   * return such copies, so that callers can't complete or obtrude the futures
+   * the runner depends on.
+   *
+   * @param future the future to copy
+   * @return the copy
+   */
+  static <T> CompletableFuture<T> copyOf(CompletableFuture<T> future) {
+    return future.thenApply(Function.identity());
+  }
+
+  /**
+   * Delivers the message to the recipients.
+   *
+   * @param message      the published message
+   * @param callingActor the actor as which the recipients are called
+   * @param recipients   the recipients, without duplicates
+   * @return the future that is completed when all recipients have reacted
+   */
+  CompletableFuture<Void> deliver(Object message, AbstractActor callingActor, AbstractActor[] recipients) {
+    if (executor == null) {
+      return deliverSynchronously(message, callingActor, recipients);
+    }
+    return deliverConcurrently(message, callingActor, recipients);
+  }
+
+  private CompletableFuture<Void> deliverSynchronously(Object message, AbstractActor callingActor,
+    AbstractActor[] recipients) {
+    if (recipients.length == 1) {
+      return recipients[0].deliver(message, callingActor);
+    }
+    CompletableFuture<?>[] deliveries = new CompletableFuture<?>[recipients.length];
+    for (int i = 0; i < recipients.length; i++) {
+      deliveries[i] = recipients[i].deliver(message, callingActor);
+    }
+    return CompletableFuture.allOf(deliveries);
+  }
+
+  private CompletableFuture<Void> deliverConcurrently(Object message, AbstractActor callingActor,
+    AbstractActor[] recipients) {
+    CompletableFuture<?>[] deliveries = new CompletableFuture<?>[recipients.length];
+    for (int i = 0; i < recipients.length; i++) {
+      AbstractActor recipient = recipients[i];
+      CompletableFuture<Void> previousDelivery = deliveryOrder == DeliveryOrder.PER_RECIPIENT
+        ? latestDeliveryPerRecipient.getOrDefault(recipient, DELIVERED)
+        : latestDeliveryToAllRecipients;
+      // A failed previous delivery doesn't prevent the next one
+      CompletableFuture<Void> delivery = previousDelivery
+        .handleAsync((result, failure) -> recipient.deliver(message, callingActor), executor)
+        .thenCompose(Function.identity());
+      if (deliveryOrder == DeliveryOrder.PER_RECIPIENT) {
+        latestDeliveryPerRecipient.put(recipient, delivery);
+      }
+      deliveries[i] = delivery;
+    }
+    CompletableFuture<Void> deliveryToAllRecipients = CompletableFuture.allOf(deliveries);
+    latestDeliveryToAllRecipients = deliveryToAllRecipients;
+    return deliveryToAllRecipients;
+  }
+}
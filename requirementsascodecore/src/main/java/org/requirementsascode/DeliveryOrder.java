@@ -0,0 +1,25 @@
+package org.requirementsascode;
+
+/**
+ * The ordering guarantee of a model runner that delivers published messages to
+ * their recipients concurrently.
+ *
+ * @see ModelRunner#deliverConcurrently(java.util.concurrent.Executor,
+ *      DeliveryOrder)
+ * @author b_muth
+ */
+public enum DeliveryOrder {
+  /**
+   * Each recipient reacts to the messages one at a time, in the order they have
+   * been published. Different recipients react in parallel, and a fast recipient
+   * may be several messages ahead of a slow one.
+   */
+  PER_RECIPIENT,
+
+  /**
+   * All recipients have reacted to a published message before any recipient
+   * receives the next message. The recipients of the same message react in
+   * parallel.
+   */
+  PER_MESSAGE
+}
@@ -0,0 +1,130 @@
+package org.requirementsascode;
+
+import java.util.Arrays;
+
+/**
+ * A dispatch cycle spans the evaluation of which steps can react to a single
+ * message (or to a query like {@link ModelRunner#canReactTo(Class)}), until
+ * the model runner triggers a system reaction.
+ *
+ * <p>
+ * During a cycle, the state of the runner doesn't change. So whether an
+ * interrupting step can react only needs to be evaluated once per cycle, even
+ * if it could interrupt several candidate steps. The dispatch cycle memorizes
+ * these evaluations, per step id. In the same way, it memorizes the evaluations
+ * of pure conditions, per pure condition id.
+ *
+ * @see PureCondition
+ * @author b_muth
+ */
+class DispatchCycle {
+  // Shared until a model is compiled, to keep idle runners small
+  private static final int[] NO_CYCLES = new int[0];
+  private static final boolean[] NO_EVALUATIONS = new boolean[0];
+
+  private CompiledModel compiledModel;
+  private int cycle;
+  private int depth;
+  private int[] cycleOfStepEvaluation;
+  private boolean[] stepEvaluation;
+  private int[] cycleOfConditionEvaluation;
+  private boolean[] conditionEvaluation;
+  private long conditionEvaluationCount;
+  private long savedConditionEvaluationCount;
+
+  DispatchCycle() {
+    this.cycleOfStepEvaluation = NO_CYCLES;
+    this.stepEvaluation = NO_EVALUATIONS;
+    this.cycleOfConditionEvaluation = NO_CYCLES;
+    this.conditionEvaluation = NO_EVALUATIONS;
+  }
+
+  /**
+   * Begins a new cycle. Evaluations memorized in previous cycles are discarded.
+   *
+   * @param compiledModel the compiled model the steps are evaluated for
+   */
+  void begin(CompiledModel compiledModel) {
+    if (this.compiledModel != compiledModel) {
+      this.compiledModel = compiledModel;
+      this.cycleOfStepEvaluation = new int[compiledModel.getStepCount()];
+      this.stepEvaluation = new boolean[compiledModel.getStepCount()];
+      this.cycleOfConditionEvaluation = new int[compiledModel.getPureConditionCount()];
+      this.conditionEvaluation = new boolean[compiledModel.getPureConditionCount()];
+    }
+    if (++cycle == 0) {
+      // The counter wrapped around, so clear the memorized cycles
+      Arrays.fill(cycleOfStepEvaluation, 0);
+      Arrays.fill(cycleOfConditionEvaluation, 0);
+      cycle = 1;
+    }
+    depth++;
+  }
+
+  /**
+   * Resumes the latest cycle, keeping the evaluations memorized in it. Only call
+   * this if the state of the runner hasn't changed since the cycle ended.
+   */
+  void resume() {
+    depth++;
+  }
+
+  /**
+   * Ends the current cycle. Outside of a cycle, nothing is memorized.
+   */
+  void end() {
+    depth--;
+  }
+
+  boolean isActive() {
+    return depth > 0;
+  }
+
+  boolean hasEvaluated(int stepId) {
+    return isActive() && cycleOfStepEvaluation[stepId] == cycle;
+  }
+
+  boolean getEvaluation(int stepId) {
+    return stepEvaluation[stepId];
+  }
+
+  void setEvaluation(int stepId, boolean evaluation) {
+    if (isActive()) {
+      cycleOfStepEvaluation[stepId] = cycle;
+      stepEvaluation[stepId] = evaluation;
+    }
+  }
+
+  /**
+   * Evaluates the specified condition. If it is a pure condition, it is
+   * evaluated only once in the current cycle.
+   *
+   * @param condition the condition
+   * @return the result of the evaluation
+   */
+  boolean evaluate(Condition condition) {
+    if (condition instanceof PureCondition && isActive()) {
+      int conditionId = compiledModel.getPureConditionId(condition);
+      if (conditionId >= 0) {
+        if (cycleOfConditionEvaluation[conditionId] == cycle) {
+          savedConditionEvaluationCount++;
+          return conditionEvaluation[conditionId];
+        }
+        boolean evaluation = evaluateAndCount(condition);
+        cycleOfConditionEvaluation[conditionId] = cycle;
+        conditionEvaluation[conditionId] = evaluation;
+        return evaluation;
+      }
+    }
+    return evaluateAndCount(condition);
+  }
+
+  private boolean evaluateAndCount(Condition condition) {
+    conditionEvaluationCount++;
+    return condition.evaluate();
+  }
+
+  ConditionMetrics getConditionMetrics() {
+    return new ConditionMetrics(conditionEvaluationCount, savedConditionEvaluationCount);
+  }
+}
@@ -0,0 +1,115 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.requirementsascode.exception.MissingUseCaseStepPart;
+
+/**
+ * An index that maps each concrete message class to the steps of a model that
+ * may react to messages of that class, in the order the steps have been defined
+ * in the model.
+ *
+ * The candidate steps for a message class are those steps whose message class
+ * is the same or a superclass/interface of it. They are only determined the
+ * first time a message of that class is dispatched, and cached afterwards. So
+ * the model runner only needs to evaluate the predicates of the candidate
+ * steps, not of all steps in the model.
+ *
+ * The caches are owned by the index, so they are collected together with the
+ * model. A ClassValue would keep the model reachable from the message class.
+ *
+ * @author b_muth
+ */
+class DispatchIndex {
+  private static final Class<?> SYSTEM_EVENT_CLASS = ModelRunner.class;
+
+  private final Step[] steps;
+  private final ConcurrentMap<Class<?>, Step[]> messageClassToCandidateSteps;
+  private final ConcurrentMap<Class<?>, InterruptingFlowStep[]> messageClassToInterruptingSteps;
+
+  DispatchIndex(Step[] steps) {
+    this.steps = steps;
+    this.messageClassToCandidateSteps = new ConcurrentHashMap<>();
+    this.messageClassToInterruptingSteps = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the steps that may react to messages of the specified class, in the
+   * order they have been defined. Do not modify the returned array.
+   *
+   * @param messageClass the class of the message to be dispatched
+   * @return the candidate steps
+   * @throws MissingUseCaseStepPart if a step of the model has no message class
+   */
+  Step[] getCandidateSteps(Class<?> messageClass) {
+    Step[] candidateSteps = messageClassToCandidateSteps.get(messageClass);
+    if (candidateSteps == null) {
+      candidateSteps = findCandidateSteps(messageClass);
+      Step[] previousCandidateSteps = messageClassToCandidateSteps.putIfAbsent(messageClass, candidateSteps);
+      if (previousCandidateSteps != null) {
+        candidateSteps = previousCandidateSteps;
+      }
+    }
+    return candidateSteps;
+  }
+
+  /**
+   * Returns the interrupting steps that may react to messages of the specified
+   * class, in the order they have been defined. These are the steps that could
+   * interrupt an interruptable step with that message class. Do not modify the
+   * returned array.
+   *
+   * @param messageClass the message class of the interruptable step
+   * @return the interrupting candidate steps
+   * @throws MissingUseCaseStepPart if a step of the model has no message class
+   */
+  InterruptingFlowStep[] getInterruptingSteps(Class<?> messageClass) {
+    InterruptingFlowStep[] interruptingSteps = messageClassToInterruptingSteps.get(messageClass);
+    if (interruptingSteps == null) {
+      interruptingSteps = findInterruptingSteps(messageClass);
+      InterruptingFlowStep[] previousInterruptingSteps = messageClassToInterruptingSteps.putIfAbsent(messageClass,
+        interruptingSteps);
+      if (previousInterruptingSteps != null) {
+        interruptingSteps = previousInterruptingSteps;
+      }
+    }
+    return interruptingSteps;
+  }
+
+  private InterruptingFlowStep[] findInterruptingSteps(Class<?> messageClass) {
+    List<InterruptingFlowStep> interruptingSteps = new ArrayList<>();
+    for (Step step : getCandidateSteps(messageClass)) {
+      if (step instanceof InterruptingFlowStep) {
+        interruptingSteps.add((InterruptingFlowStep) step);
+      }
+    }
+    return interruptingSteps.toArray(new InterruptingFlowStep[0]);
+  }
+
+  private Step[] findCandidateSteps(Class<?> messageClass) {
+    List<Step> candidateSteps = new ArrayList<>();
+    for (Step step : steps) {
+      if (stepMessageClassIsSameOrSuperclass(step, messageClass)) {
+        candidateSteps.add(step);
+      }
+    }
+    return candidateSteps.toArray(new Step[0]);
+  }
+
+  static boolean stepMessageClassIsSameOrSuperclass(Step step, Class<?> messageClass) {
+    Class<?> stepMessageClass = step.getMessageClass();
+    if (stepMessageClass == null) {
+      throw new MissingUseCaseStepPart(step, "on/user");
+    }
+    boolean result = hasSystemEventClass(messageClass) ? hasSystemEventClass(stepMessageClass)
+      : stepMessageClass.isAssignableFrom(messageClass);
+    return result;
+  }
+
+  static boolean hasSystemEventClass(Class<?> messageClass) {
+    return SYSTEM_EVENT_CLASS.equals(messageClass);
+  }
+}
@@ -0,0 +1,198 @@
+package org.requirementsascode;
+
+import java.util.Arrays;
+
+import org.requirementsascode.flowposition.After;
+import org.requirementsascode.flowposition.AfterSingleStep;
+import org.requirementsascode.flowposition.Anytime;
+import org.requirementsascode.flowposition.FlowPosition;
+import org.requirementsascode.flowposition.InsteadOf;
+
+/**
+ * A transition table that tells, for each flow step of a compiled model,
+ * after which steps the model runner is at the right position for that step.
+ *
+ * <p>
+ * The table compiles the built-in flow positions: {@link After} (including the
+ * positions added by reactWhile loops and by continuesAt), {@link InsteadOf}
+ * and {@link Anytime}. It is keyed by the integer id of the latest step run.
+ * So checking whether the runner is at the right position is a single bit
+ * lookup, instead of resolving steps and comparing them on each check.
+ *
+ * <p>
+ * Other kinds of flow positions are evaluated by calling their
+ * {@link FlowPosition#test(ModelRunner)} method.
+ *
+ * @author b_muth
+ */
+class FlowPositionTable {
+  /**
+   * The key of the position before any step has been run.
+   */
+  static final int NO_LATEST_STEP = 0;
+
+  /**
+   * The key of the position after a step that is not part of the compiled model.
+   */
+  static final int UNKNOWN_LATEST_STEP = -1;
+
+  private static final int MAX_INSTEAD_OF_DEPTH = 64;
+
+  private final CompiledModel compiledModel;
+  private final Row[] rows;
+
+  FlowPositionTable(CompiledModel compiledModel) {
+    this.compiledModel = compiledModel;
+    this.rows = compileRows(compiledModel.getStepArray());
+  }
+
+  private Row[] compileRows(Step[] steps) {
+    Row[] rows = new Row[steps.length];
+    for (int stepId = 0; stepId < steps.length; stepId++) {
+      Step step = steps[stepId];
+      if (step instanceof FlowStep) {
+        FlowPosition flowPosition = ((FlowStep) step).getFlowPosition();
+        rows[stepId] = compileRow(flowPosition, 0);
+      }
+    }
+    return rows;
+  }
+
+  private Row compileRow(FlowPosition flowPosition, int insteadOfDepth) {
+    Row row;
+    if (flowPosition == null) {
+      row = Row.dynamic(null);
+    } else if (Anytime.class.equals(flowPosition.getClass())) {
+      row = Row.ANYTIME;
+    } else if (After.class.equals(flowPosition.getClass())) {
+      row = compileAfter((After) flowPosition);
+    } else if (InsteadOf.class.equals(flowPosition.getClass()) && insteadOfDepth < MAX_INSTEAD_OF_DEPTH) {
+      row = compileInsteadOf((InsteadOf) flowPosition, insteadOfDepth);
+    } else {
+      row = Row.dynamic(flowPosition);
+    }
+    return row;
+  }
+
+  private Row compileAfter(After after) {
+    after.resolveSteps();
+
+    RowBuilder rowBuilder = new RowBuilder();
+    for (AfterSingleStep afterSingleStep : after.getAfterForEachSingleStep()) {
+      FlowStep step = afterSingleStep.getStep();
+      int key = step == null ? NO_LATEST_STEP : keyOf(step);
+      if (key == UNKNOWN_LATEST_STEP) {
+        return Row.dynamic(after);
+      }
+      rowBuilder.add(key);
+    }
+    return rowBuilder.build();
+  }
+
+  private Row compileInsteadOf(InsteadOf insteadOf, int insteadOfDepth) {
+    insteadOf.resolveSteps();
+
+    // The runner is at the right position for the alternative iff it is at the
+    // right position for the step the alternative is instead of
+    FlowStep step = insteadOf.getStep();
+    Row row = step == null ? Row.dynamic(insteadOf) : compileRow(step.getFlowPosition(), insteadOfDepth + 1);
+    return row;
+  }
+
+  /**
+   * Returns the key of the table for the specified latest step.
+   *
+   * @param latestStep the latest step run, or null if no step has been run
+   * @return the key
+   */
+  int keyOf(Step latestStep) {
+    if (latestStep == null) {
+      return NO_LATEST_STEP;
+    }
+    int stepId = compiledModel.getStepId(latestStep);
+    return stepId < 0 ? UNKNOWN_LATEST_STEP : stepId + 1;
+  }
+
+  /**
+   * Checks whether the specified runner is at the right position for the
+   * specified flow step.
+   *
+   * @param stepId      the id of the flow step
+   * @param modelRunner the runner
+   * @return true if the runner's latest step allows the step to react
+   */
+  boolean isRunnerAtRightPosition(int stepId, ModelRunner modelRunner) {
+    Row row = rows[stepId];
+    boolean result = row.isDynamic() ? row.test(modelRunner) : row.contains(keyOf(modelRunner.getLatestStepOrNull()));
+    return result;
+  }
+
+  /**
+   * A row of the table: the set of keys of latest steps after which a flow step
+   * may react, stored as a bit set that only spans the range of its keys.
+   */
+  private static class Row {
+    static final Row ANYTIME = new Row(true, 0, new long[0], null);
+
+    private final boolean isAnytime;
+    private final int lowestKey;
+    private final long[] bits;
+    private final FlowPosition dynamicFlowPosition;
+
+    private Row(boolean isAnytime, int lowestKey, long[] bits, FlowPosition dynamicFlowPosition) {
+      this.isAnytime = isAnytime;
+      this.lowestKey = lowestKey;
+      this.bits = bits;
+      this.dynamicFlowPosition = dynamicFlowPosition;
+    }
+
+    static Row dynamic(FlowPosition flowPosition) {
+      return new Row(false, 0, null, flowPosition);
+    }
+
+    boolean isDynamic() {
+      return bits == null;
+    }
+
+    boolean test(ModelRunner modelRunner) {
+      return dynamicFlowPosition != null && dynamicFlowPosition.test(modelRunner);
+    }
+
+    boolean contains(int key) {
+      if (isAnytime) {
+        return true;
+      }
+      int bit = key - lowestKey;
+      boolean result = bit >= 0 && bit < (bits.length << 6) && (bits[bit >>> 6] & (1L << bit)) != 0;
+      return result;
+    }
+  }
+
+  private static class RowBuilder {
+    private int lowestKey = Integer.MAX_VALUE;
+    private int highestKey = Integer.MIN_VALUE;
+    private int[] keys = new int[4];
+    private int size;
+
+    void add(int key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      keys[size++] = key;
+      lowestKey = Math.min(lowestKey, key);
+      highestKey = Math.max(highestKey, key);
+    }
+
+    Row build() {
+      if (size == 0) {
+        return new Row(false, 0, new long[0], null);
+      }
+      long[] bits = new long[((highestKey - lowestKey) >>> 6) + 1];
+      for (int i = 0; i < size; i++) {
+        int bit = keys[i] - lowestKey;
+        bits[bit >>> 6] |= 1L << bit;
+      }
+      return new Row(false, lowestKey, bits, null);
+    }
+  }
+}
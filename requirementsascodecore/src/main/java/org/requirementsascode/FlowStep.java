@@ -39,6 +39,7 @@ public abstract class FlowStep extends Step{
 		Objects.requireNonNull(flowPosition);
 
 		this.flowPosition = flowPosition;
+		getModel().clearCompiledModel();
 	}
 
 	public void orAfter(FlowStep step) {
@@ -53,9 +54,25 @@ public abstract class FlowStep extends Step{
 
 	private void createLoop() {
 		getFlowPosition().orAfter(getName(), getUseCase());
+		getModel().clearCompiledModel();
 	}
 
 	public Condition getReactWhile() {
 		return reactWhile;
 	}
+
+	/**
+	 * Checks whether the runner is at the right position for this step, by looking
+	 * up the latest step run in the model's compiled flow position table.
+	 *
+	 * @param modelRunner the runner
+	 * @return true if the runner is at the right position, false otherwise
+	 */
+	boolean isRunnerAtRightPosition(ModelRunner modelRunner) {
+		return getModel().getCompiledModel().getFlowPositionTable().isRunnerAtRightPosition(getId(), modelRunner);
+	}
+
+	boolean isReactWhileTrue(ModelRunner modelRunner) {
+		return reactWhile == null || modelRunner.evaluate(reactWhile);
+	}
 }
@@ -1,7 +1,5 @@
 package org.requirementsascode;
 
-import java.util.function.Predicate;
-
 /**
  * A step that is not part of a flow (i.e. no flow definition in the model).
  * 
@@ -14,13 +12,7 @@ public class FlowlessStep extends Step {
 	}
 
 	@Override
-	public Predicate<ModelRunner> getPredicate() {
-		Predicate<ModelRunner> predicate = toPredicate(getConditionOrElseTrue());
-		return predicate;
-	}
-
-	private Condition getConditionOrElseTrue() {
-		Condition condition = getCondition().orElse(() -> true);
-		return condition;
+	boolean isPredicateTrue(ModelRunner modelRunner) {
+		return isConditionTrue(modelRunner);
 	}
 }
@@ -0,0 +1,47 @@
+package org.requirementsascode;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A session store that keeps the passivated sessions in memory. Useful for
+ * tests, and to keep a large number of idle sessions more compact than in a
+ * session registry.
+ *
+ * @author b_muth
+ *
+ * @param <K> the type of key
+ */
+public class InMemorySessionStore<K> implements SessionStore<K> {
+  private final Map<K, Integer> latestStepIds;
+
+  public InMemorySessionStore() {
+    this.latestStepIds = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void passivate(K key, int latestStepId) {
+    latestStepIds.put(key, latestStepId);
+  }
+
+  @Override
+  public OptionalInt reactivate(K key) {
+    Integer latestStepId = latestStepIds.remove(key);
+    return latestStepId == null ? OptionalInt.empty() : OptionalInt.of(latestStepId);
+  }
+
+  @Override
+  public void remove(K key) {
+    latestStepIds.remove(key);
+  }
+
+  /**
+   * Returns the number of passivated sessions.
+   *
+   * @return the number of sessions
+   */
+  public int size() {
+    return latestStepIds.size();
+  }
+}
@@ -1,8 +1,6 @@
 package org.requirementsascode;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.function.Predicate;
 
 import org.requirementsascode.flowposition.After;
 
@@ -39,40 +37,26 @@ public class InterruptableFlowStep extends FlowStep{
     setFlowPosition(After.afterFlowStep(lastFlowStep));
 	}
 
-  @Override
-	public Predicate<ModelRunner> getPredicate() {
-		Condition reactWhile = getReactWhile();
-
-    Predicate<ModelRunner> predicate = getFlowPosition().and(noStepInterrupts()).and(isConditionTrue());
-    if (reactWhile != null) {
-      predicate = predicate.and(toPredicate(reactWhile));
-    }
-
-    return predicate;
-  }
+	@Override
+	boolean isPredicateTrue(ModelRunner modelRunner) {
+		return isRunnerAtRightPosition(modelRunner) && noStepInterrupts(modelRunner) && isConditionTrue(modelRunner)
+				&& isReactWhileTrue(modelRunner);
+	}
 
-	private Predicate<ModelRunner> noStepInterrupts() {
-		return modelRunner -> {
-			Class<?> messageClass = getMessageClass();
+	private boolean noStepInterrupts(ModelRunner modelRunner) {
+		boolean noStepInterrupts = true;
+		if (modelRunner.isRunning()) {
+			InterruptingFlowStep[] interruptingSteps = getModel().getCompiledModel().getDispatchIndex()
+					.getInterruptingSteps(getMessageClass());
 
-			boolean noStepInterrupts = true;
-			if (modelRunner.isRunning()) {
-				Collection<Step> steps = getFlow().getModel().getModifiableSteps();
-				
-				for (Step step : steps) {
-					if(isInterruptingStep(step) && modelRunner.canReactToMessageClass(step, messageClass)) {
-						noStepInterrupts = false;
-						break;
-					}
+			for (InterruptingFlowStep interruptingStep : interruptingSteps) {
+				if (modelRunner.canInterrupt(interruptingStep)) {
+					noStepInterrupts = false;
+					break;
 				}
 			}
+		}
 
-			return noStepInterrupts;
-		};
-
-	}
-
-	private boolean isInterruptingStep(Step step) {
-		return InterruptingFlowStep.class.equals(step.getClass());
+		return noStepInterrupts;
 	}
 }
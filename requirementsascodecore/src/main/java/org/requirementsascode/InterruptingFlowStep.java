@@ -1,7 +1,5 @@
 package org.requirementsascode;
 
-import java.util.function.Predicate;
-
 import org.requirementsascode.flowposition.FlowPosition;
 
 public class InterruptingFlowStep extends FlowStep {
@@ -10,26 +8,16 @@ public class InterruptingFlowStep extends FlowStep {
 		setFlowPosition(flowPosition);
 	}
 
-	public Predicate<ModelRunner> getPredicate() {
-		Predicate<ModelRunner> predicate;
-		Condition reactWhile = getReactWhile();
-
-		predicate = isFlowConditionTrueAndRunnerInDifferentFlow();
-		if (reactWhile != null) {
-			predicate = predicate.and(toPredicate(reactWhile));
-		}
-
-		return predicate;
+	@Override
+	boolean isPredicateTrue(ModelRunner modelRunner) {
+		return isRunnerAtRightPosition(modelRunner) && isRunnerInDifferentFlow(modelRunner) && isConditionTrue(modelRunner)
+				&& isReactWhileTrue(modelRunner);
 	}
 
-  private Predicate<ModelRunner> isFlowConditionTrueAndRunnerInDifferentFlow() {
-    Predicate<ModelRunner> flowCondition = getFlowPosition().and(isRunnerInDifferentFlow()).and(isConditionTrue());
-    return flowCondition;
-  }
-
-	private Predicate<ModelRunner> isRunnerInDifferentFlow() {
-		Predicate<ModelRunner> isRunnerInDifferentFlow = runner -> runner.getLatestFlow()
-				.map(runnerFlow -> !runnerFlow.equals(getFlow())).orElse(true);
+	private boolean isRunnerInDifferentFlow(ModelRunner modelRunner) {
+		Step latestStep = modelRunner.getLatestStepOrNull();
+		boolean isRunnerInDifferentFlow = !(latestStep instanceof FlowStep)
+				|| !((FlowStep) latestStep).getFlow().equals(getFlow());
 		return isRunnerInDifferentFlow;
 	}
 }
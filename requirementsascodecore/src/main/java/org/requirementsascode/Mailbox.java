@@ -0,0 +1,150 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The mailbox of an actor in mailbox mode. Messages are posted to the mailbox
+ * by any thread, and the actor reacts to them one at a time, in the order they
+ * have been posted, as a task of the mailbox's executor. At most one task per
+ * mailbox runs at a time, so the actor's model runner is never used
+ * concurrently. The mailboxes of different actors are processed in parallel.
+ *
+ * @see AbstractActor#useMailbox(Executor)
+ * @author b_muth
+ */
+class Mailbox implements Runnable {
+  // Limits how long a busy actor occupies a thread of the executor
+  private static final int MAX_MESSAGES_PER_RUN = 64;
+
+  private final AbstractActor actor;
+  private final Executor executor;
+  private final Queue<Envelope> envelopes;
+  private final AtomicBoolean isScheduled;
+  private volatile Thread processingThread;
+  private volatile boolean isClosed;
+
+  Mailbox(AbstractActor actor, Executor executor) {
+    this.actor = Objects.requireNonNull(actor);
+    this.executor = Objects.requireNonNull(executor);
+    this.envelopes = new ConcurrentLinkedQueue<>();
+    this.isScheduled = new AtomicBoolean();
+  }
+
+  /**
+   * Posts a message, and returns a future that is completed when the actor has
+   * reacted to it.
+   *
+   * @param message      the message
+   * @param callingActor the actor as which to call the actor, or null for the
+   *                     default user
+   * @return the future of the event published by the actor
+   */
+  CompletableFuture<Optional<Object>> post(Object message, AbstractActor callingActor) {
+    CompletableFuture<Optional<Object>> futureEvent = new CompletableFuture<>();
+    post(new Envelope(message, callingActor, futureEvent));
+    return futureEvent;
+  }
+
+  private void post(Envelope envelope) {
+    envelopes.add(envelope);
+    if (isClosed) {
+      rejectAll();
+    } else {
+      schedule();
+    }
+  }
+
+  /**
+   * Closes the mailbox. The actor doesn't react to messages posted afterwards,
+   * nor to messages that are still in the mailbox. Their futures are completed
+   * exceptionally.
+   */
+  void close() {
+    isClosed = true;
+    rejectAll();
+  }
+
+  boolean isClosed() {
+    return isClosed;
+  }
+
+  private void schedule() {
+    if (isScheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this);
+      } catch (RuntimeException e) {
+        isScheduled.set(false);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Returns whether the current thread is reacting to a message of this mailbox.
+   *
+   * @return true if the current thread processes the mailbox, false otherwise
+   */
+  boolean isProcessedByCurrentThread() {
+    return processingThread == Thread.currentThread();
+  }
+
+  @Override
+  public void run() {
+    processingThread = Thread.currentThread();
+    try {
+      Envelope envelope;
+      for (int i = 0; i < MAX_MESSAGES_PER_RUN && (envelope = envelopes.poll()) != null; i++) {
+        if (isClosed) {
+          reject(envelope);
+        } else {
+          process(envelope);
+        }
+      }
+    } finally {
+      processingThread = null;
+      isScheduled.set(false);
+    }
+    // Messages may have been posted after the last poll, but before unscheduling
+    if (!envelopes.isEmpty()) {
+      schedule();
+    }
+  }
+
+  private void process(Envelope envelope) {
+    try {
+      Optional<Object> publishedEvent = actor.reactToNow(envelope.message, envelope.callingActor);
+      envelope.futureEvent.complete(publishedEvent);
+    } catch (RuntimeException | Error e) {
+      envelope.futureEvent.completeExceptionally(e);
+    }
+  }
+
+  private void rejectAll() {
+    Envelope envelope;
+    while ((envelope = envelopes.poll()) != null) {
+      reject(envelope);
+    }
+  }
+
+  private void reject(Envelope envelope) {
+    envelope.futureEvent.completeExceptionally(new IllegalStateException("Actor " + actor + " has been stopped"));
+  }
+
+  private static class Envelope {
+    private final Object message;
+    private final AbstractActor callingActor;
+    private final CompletableFuture<Optional<Object>> futureEvent;
+
+    Envelope(Object message, AbstractActor callingActor, CompletableFuture<Optional<Object>> futureEvent) {
+      this.message = message;
+      this.callingActor = callingActor;
+      this.futureEvent = futureEvent;
+    }
+  }
+}
@@ -35,6 +35,7 @@ public class Model{
 	private Map<String, UseCase> nameToUseCaseMap;
 	private AbstractActor userActor;
 	private AbstractActor systemActor;
+	private CompiledModel compiledModel;
 
 	private Model() {
 		this.nameToUseCaseMap = new LinkedHashMap<>();
@@ -79,6 +80,7 @@ public class Model{
 		Objects.requireNonNull(useCaseName);
 		UseCase useCase = new UseCase(useCaseName, this);
 		saveModelElement(useCase, nameToUseCaseMap);
+		clearCompiledModel();
 		return useCase;
 	}
 
@@ -92,7 +94,7 @@ public class Model{
 	 */
 	public AbstractActor findActor(String actorName) {
 	  Objects.requireNonNull(actorName);
-		AbstractActor foundActor = getModifiableSteps().stream()
+		AbstractActor foundActor = getSteps().stream()
 			.flatMap(s -> Arrays.stream(s.getActors()))
 			.filter(act -> actorName.equals(act.getName()))
 			.findFirst()
@@ -119,7 +121,7 @@ public class Model{
 	 * @return the actors
 	 */
 	public Collection<AbstractActor> getActors() {
-		Set<AbstractActor> actors = getModifiableSteps().stream()
+		Set<AbstractActor> actors = getSteps().stream()
 			.flatMap(s -> Arrays.stream(s.getActors()))
 			.collect(Collectors.toSet());
 		return Collections.unmodifiableCollection(actors);
@@ -145,8 +147,8 @@ public class Model{
 	 * @return the use steps
 	 */
 	public Collection<Step> getSteps() {
-		Collection<Step> modifiableSteps = getModifiableSteps();
-		return Collections.unmodifiableCollection(modifiableSteps);
+		Collection<Step> steps = getCompiledModel().getSteps();
+		return steps;
 	}
 
 	Collection<Step> getModifiableSteps() {
@@ -160,6 +162,24 @@ public class Model{
 		return modifiableSteps;
 	}
 
+	/**
+	 * Returns the frozen, array-backed form of this model that the model runner
+	 * dispatches messages against. It is created when the model is built, and
+	 * recreated if steps are added to the model afterwards.
+	 *
+	 * @return the compiled model
+	 */
+	public CompiledModel getCompiledModel() {
+		if (compiledModel == null) {
+			compiledModel = new CompiledModel(this);
+		}
+		return compiledModel;
+	}
+
+	void clearCompiledModel() {
+		compiledModel = null;
+	}
+
 	/**
 	 * Returns the actor representing the default user.
 	 *
@@ -0,0 +1,371 @@
+package org.requirementsascode;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * A model engine runs a single model for many user journeys ("sessions").
+ *
+ * <p>
+ * In contrast to a {@link ModelRunner}, which holds the state of a single user
+ * journey, the engine is immutable and can be shared by any number of threads.
+ * The state of each user journey is kept in a tiny {@link Session} object. When
+ * a message is dispatched for a session, the engine uses a model runner of the
+ * current thread, binds it to the session's state, and saves the state back
+ * afterwards. So all sessions behave exactly like separate model runners.
+ *
+ * <p>
+ * The engine compiles the model when it is created. Don't change the model
+ * afterwards.
+ *
+ * @author b_muth
+ */
+public final class ModelEngine {
+  private final Model model;
+  private final CompiledModel compiledModel;
+  private final Consumer<StepToBeRun> messageHandler;
+  private final Consumer<Object> unhandledMessageHandler;
+  private final Consumer<Object> messagePublisher;
+  private final int maxStepCount;
+  private final ThreadLocal<ModelRunner> threadModelRunner;
+
+  /**
+   * Creates an engine for the specified model.
+   *
+   * @param model the model that defines the behavior of all sessions
+   */
+  public ModelEngine(Model model) {
+    this(model, null, null, null, ModelRunner.DEFAULT_MAX_STEP_COUNT);
+  }
+
+  private ModelEngine(Model model, Consumer<StepToBeRun> messageHandler, Consumer<Object> unhandledMessageHandler,
+    Consumer<Object> messagePublisher, int maxStepCount) {
+    this.model = Objects.requireNonNull(model);
+    this.compiledModel = model.getCompiledModel();
+    // Compile the flow positions before the engine is shared between threads
+    compiledModel.getFlowPositionTable();
+    this.messageHandler = messageHandler;
+    this.unhandledMessageHandler = unhandledMessageHandler;
+    this.messagePublisher = messagePublisher;
+    this.maxStepCount = maxStepCount;
+    this.threadModelRunner = ThreadLocal.withInitial(this::createModelRunner);
+  }
+
+  /**
+   * Returns a new engine that uses the specified message handler for all
+   * sessions. The handler may be called by several threads concurrently.
+   *
+   * @see ModelRunner#handleWith(Consumer)
+   * @param messageHandler the custom message handler
+   * @return the new engine
+   */
+  public ModelEngine handleWith(Consumer<StepToBeRun> messageHandler) {
+    Objects.requireNonNull(messageHandler);
+    return new ModelEngine(model, messageHandler, unhandledMessageHandler, messagePublisher, maxStepCount);
+  }
+
+  /**
+   * Returns a new engine that uses the specified handler for messages that no
+   * step reacts to. The handler may be called by several threads concurrently.
+   *
+   * @see ModelRunner#handleUnhandledWith(Consumer)
+   * @param unhandledMessageHandler the handler for messages not handled
+   * @return the new engine
+   */
+  public ModelEngine handleUnhandledWith(Consumer<Object> unhandledMessageHandler) {
+    Objects.requireNonNull(unhandledMessageHandler);
+    return new ModelEngine(model, messageHandler, unhandledMessageHandler, messagePublisher, maxStepCount);
+  }
+
+  /**
+   * Returns a new engine that uses the specified publisher for events. The
+   * publisher may be called by several threads concurrently.
+   *
+   * @see ModelRunner#publishWith(Consumer)
+   * @param eventPublisher the custom event publisher
+   * @return the new engine
+   */
+  public ModelEngine publishWith(Consumer<Object> eventPublisher) {
+    Objects.requireNonNull(eventPublisher);
+    return new ModelEngine(model, messageHandler, unhandledMessageHandler, eventPublisher, maxStepCount);
+  }
+
+  /**
+   * Returns a new engine that limits the number of steps run per message.
+   *
+   * @see ModelRunner#limitStepsTo(int)
+   * @param maxStepCount the maximum number of steps per message
+   * @return the new engine
+   */
+  public ModelEngine limitStepsTo(int maxStepCount) {
+    if (maxStepCount < 1) {
+      throw new IllegalArgumentException("maxStepCount must be positive, but is " + maxStepCount);
+    }
+    return new ModelEngine(model, messageHandler, unhandledMessageHandler, messagePublisher, maxStepCount);
+  }
+
+  private ModelRunner createModelRunner() {
+    ModelRunner modelRunner = new ModelRunner();
+    if (messageHandler != null) {
+      modelRunner.handleWith(messageHandler);
+    }
+    if (unhandledMessageHandler != null) {
+      modelRunner.handleUnhandledWith(unhandledMessageHandler);
+    }
+    if (messagePublisher != null) {
+      modelRunner.publishWith(messagePublisher);
+    }
+    modelRunner.limitStepsTo(maxStepCount);
+    modelRunner.as(model.getUserActor());
+    return modelRunner;
+  }
+
+  /**
+   * Returns the model run by this engine.
+   *
+   * @return the model
+   */
+  public Model getModel() {
+    return model;
+  }
+
+  /**
+   * Returns the compiled model that defines the step ids of the sessions.
+   *
+   * @return the compiled model
+   */
+  public CompiledModel getCompiledModel() {
+    return compiledModel;
+  }
+
+  /**
+   * Creates a new, running session. As a side effect, this method immediately
+   * triggers "autonomous system reactions" for the session.
+   *
+   * @return the session
+   */
+  public Session newSession() {
+    Session session = new Session();
+    restart(session);
+    return session;
+  }
+
+  /**
+   * Creates a running session that continues after the specified step, without
+   * triggering autonomous system reactions.
+   *
+   * @param latestStepId the id of the latest step run in the session, or
+   *                     {@link Session#NO_LATEST_STEP}
+   * @return the session
+   */
+  Session reactivateSession(int latestStepId) {
+    if (latestStepId < Session.NO_LATEST_STEP || latestStepId >= compiledModel.getStepCount()) {
+      throw new IllegalArgumentException("No step with id " + latestStepId + " in the compiled model");
+    }
+    Session session = new Session();
+    session.setLatestStepId(latestStepId);
+    session.setRunning(true);
+    return session;
+  }
+
+  /**
+   * Restarts the specified session, resetting it to its original defaults ("no
+   * flow has been run, no step has been run"). As a side effect, this method
+   * immediately triggers "autonomous system reactions".
+   *
+   * @param session the session to restart
+   */
+  public void restart(Session session) {
+    Objects.requireNonNull(session);
+    session.setLatestStepId(Session.NO_LATEST_STEP);
+    session.setRunning(true);
+
+    ModelRunner modelRunner = resume(session);
+    try {
+      modelRunner.triggerAutonomousSystemReaction();
+    } finally {
+      modelRunner.suspendSession(compiledModel);
+    }
+  }
+
+  /**
+   * Dispatches the specified message for the specified session. Behaves like
+   * {@link ModelRunner#reactTo(Object)}, with the session's state.
+   *
+   * @param <T>     the type of message
+   * @param <U>     the return type that you as the user expects.
+   * @param session the session
+   * @param message the message object
+   * @return the event that was published (latest) if the system reacted, or an
+   *         empty Optional.
+   * @throws MoreThanOneStepCanReact when more than one step can react
+   * @throws InfiniteRepetition      when a step has an always true condition, or
+   *                                 there is an infinite loop.
+   * @throws ClassCastException      when type of the returned instance isn't U
+   */
+  public <T, U> Optional<U> reactTo(Session session, T message) {
+    Objects.requireNonNull(session);
+    Objects.requireNonNull(message);
+
+    ModelRunner modelRunner = resume(session);
+    try {
+      return modelRunner.reactTo(message);
+    } finally {
+      modelRunner.suspendSession(compiledModel);
+    }
+  }
+
+  /**
+   * Dispatches the specified messages for the specified session, without
+   * resuming the session for each message.
+   *
+   * @see ModelRunner#reactToAll(Iterator)
+   * @param <U>      the return type that you as the user expects.
+   * @param session  the session
+   * @param messages the iterator over the message objects
+   * @return the number of handled and unhandled messages, and the event that was
+   *         published (latest) if the system reacted
+   */
+  public <U> BatchResult<U> reactToAll(Session session, Iterator<?> messages) {
+    Objects.requireNonNull(session);
+    Objects.requireNonNull(messages);
+
+    ModelRunner modelRunner = resume(session);
+    try {
+      return modelRunner.reactToAll(messages);
+    } finally {
+      modelRunner.suspendSession(compiledModel);
+    }
+  }
+
+  /**
+   * Same as {@link #reactToAll(Session, Iterator)}, for a stream of messages.
+   *
+   * @see ModelRunner#reactToAll(Stream)
+   * @param <U>      the return type that you as the user expects.
+   * @param session  the session
+   * @param messages the stream of message objects
+   * @return the number of handled and unhandled messages, and the event that was
+   *         published (latest) if the system reacted
+   */
+  public <U> BatchResult<U> reactToAll(Session session, Stream<?> messages) {
+    Objects.requireNonNull(messages);
+    return reactToAll(session, messages.sequential().spliterator());
+  }
+
+  /**
+   * Same as {@link #reactToAll(Session, Iterator)}, for a spliterator over the
+   * messages.
+   *
+   * @see ModelRunner#reactToAll(Spliterator)
+   * @param <U>      the return type that you as the user expects.
+   * @param session  the session
+   * @param messages the spliterator over the message objects
+   * @return the number of handled and unhandled messages, and the event that was
+   *         published (latest) if the system reacted
+   */
+  public <U> BatchResult<U> reactToAll(Session session, Spliterator<?> messages) {
+    Objects.requireNonNull(session);
+    Objects.requireNonNull(messages);
+
+    ModelRunner modelRunner = resume(session);
+    try {
+      return modelRunner.reactToAll(messages);
+    } finally {
+      modelRunner.suspendSession(compiledModel);
+    }
+  }
+
+  /**
+   * Returns whether at least one step can react to a message of the specified
+   * class, in the specified session.
+   *
+   * @see ModelRunner#canReactTo(Class)
+   * @param session      the session
+   * @param messageClass the type of message to check steps for
+   * @return true if the session is running and at least one step can react,
+   *         false otherwise
+   */
+  public boolean canReactTo(Session session, Class<? extends Object> messageClass) {
+    Objects.requireNonNull(session);
+    Objects.requireNonNull(messageClass);
+
+    ModelRunner modelRunner = resume(session);
+    try {
+      return modelRunner.canReactTo(messageClass);
+    } finally {
+      modelRunner.suspendSession(compiledModel);
+    }
+  }
+
+  /**
+   * Returns the classes of messages the specified session can react to.
+   *
+   * @see ModelRunner#getReactToTypes()
+   * @param session the session
+   * @return the collection of message types
+   */
+  public Set<Class<?>> getReactToTypes(Session session) {
+    Objects.requireNonNull(session);
+
+    ModelRunner modelRunner = resume(session);
+    try {
+      return modelRunner.getReactToTypes();
+    } finally {
+      modelRunner.suspendSession(compiledModel);
+    }
+  }
+
+  /**
+   * Returns the latest step that has been run in the specified session.
+   *
+   * @param session the session
+   * @return the latest step run, or an empty optional if no step has been run
+   */
+  public Optional<Step> getLatestStep(Session session) {
+    int latestStepId = session.getLatestStepId();
+    return latestStepId == Session.NO_LATEST_STEP ? Optional.empty()
+      : Optional.of(compiledModel.getStep(latestStepId));
+  }
+
+  /**
+   * Sets the latest step run in the specified session. Behaves like
+   * {@link ModelRunner#setLatestStep(Step)}, e.g. to restore the state of a
+   * session from a snapshot.
+   *
+   * @param session    the session
+   * @param latestStep the latest step run, or null if no step has been run
+   * @throws IllegalArgumentException if the step is not a step of the engine's
+   *                                  model
+   */
+  public void setLatestStep(Session session, Step latestStep) {
+    Objects.requireNonNull(session);
+    if (latestStep == null) {
+      session.setLatestStepId(Session.NO_LATEST_STEP);
+      return;
+    }
+    int latestStepId = compiledModel.getStepId(latestStep);
+    if (latestStepId == Session.NO_LATEST_STEP) {
+      throw new IllegalArgumentException("Step " + latestStep + " is not a step of the engine's model");
+    }
+    session.setLatestStepId(latestStepId);
+  }
+
+  private ModelRunner resume(Session session) {
+    ModelRunner modelRunner = threadModelRunner.get();
+    if (modelRunner.hasSession()) {
+      // A system reaction of another session dispatches on the same thread
+      modelRunner = createModelRunner();
+    }
+    modelRunner.resumeSession(compiledModel, session);
+    return modelRunner;
+  }
+}
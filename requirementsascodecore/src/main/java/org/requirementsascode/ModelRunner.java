@@ -1,21 +1,33 @@
 package org.requirementsascode;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import org.requirementsascode.exception.InfiniteRepetition;
 import org.requirementsascode.exception.MissingUseCaseStepPart;
 import org.requirementsascode.exception.MoreThanOneStepCanReact;
 import org.requirementsascode.exception.NestedCallOfReactTo;
+import org.requirementsascode.scheduler.ScheduledTask;
+import org.requirementsascode.scheduler.Scheduler;
 
 /**
  * A model runner is a highly configurable controller that receives messages and
@@ -26,7 +38,14 @@ import org.requirementsascode.exception.NestedCallOfReactTo;
  * instance of a runner, as the runner determines the user journey.
  */
 public class ModelRunner {
-  private static final Class<?> SYSTEM_EVENT_CLASS = ModelRunner.class;
+  /**
+   * The maximum number of steps run per message, unless specified otherwise via
+   * {@link #limitStepsTo(int)}.
+   */
+  public static final int DEFAULT_MAX_STEP_COUNT = 10_000;
+
+  // Few messages are pending at a time, and actor systems host millions of runners
+  private static final int MESSAGES_TO_BE_DISPATCHED_CAPACITY = 4;
 
   private AbstractActor owningActor;
   private AbstractActor runActor;
@@ -43,11 +62,33 @@ public class ModelRunner {
   private List<Object> recordedMessages;
   private boolean isRecording;
   private boolean nestedReactToMessageCallCausesException;
+  private DispatchCycle dispatchCycle;
+  private As runAs;
+  private Session session;
+  private Deque<Object> messagesToBeDispatched;
+  private List<Object> messagesOfCurrentStep;
+  private boolean isDispatching;
+  private int stepCount;
+  private int maxStepCount;
+  private boolean defersNestedReactTo;
+  private Delivery delivery;
+  private CompletableFuture<Void> latestDelivery;
+  private Scheduler scheduler;
+  private ScheduledTask pendingTimeout;
+  private CompletableFuture<Object> pendingReaction;
+  private volatile Suspension suspension;
+  private Class<?> latestPublishedClass;
 
   /**
    * Constructor for creating a model runner.
    */
   public ModelRunner() {
+    this.dispatchCycle = new DispatchCycle();
+    this.messagesToBeDispatched = new ArrayDeque<>(MESSAGES_TO_BE_DISPATCHED_CAPACITY);
+    this.messagesOfCurrentStep = new ArrayList<>();
+    this.maxStepCount = DEFAULT_MAX_STEP_COUNT;
+    this.delivery = Delivery.SYNCHRONOUS;
+    this.latestDelivery = Delivery.DELIVERED;
     handleWith(this::runStep);
     publishWith(this::publishMessage);
   }
@@ -57,16 +98,83 @@ public class ModelRunner {
   }
 
   private <T> void publishMessage(T message) {
-    Optional<AbstractActor> optionalToActor = getLatestStep().flatMap(ls -> ls.getPublishTo());
+    AbstractActor[] recipients = latestStep == null ? null : latestStep.getPublishToOrNull();
     nestedReactToMessageCallCausesException = false;
-    if (optionalToActor.isPresent()) {
-      AbstractActor owningActor = getOwningActor().orElse(model.getUserActor());
-      optionalToActor.get().reactTo(message, owningActor);
+    if (recipients != null) {
+      AbstractActor callingActor = owningActor != null ? owningActor : model.getUserActor();
+      addLatestDelivery(delivery.deliver(message, callingActor, recipients));
     } else {
       this.reactToSingleOrSeveralMessages(message);
     }
   }
 
+  private void addLatestDelivery(CompletableFuture<Void> messageDelivery) {
+    if (latestDelivery == Delivery.DELIVERED) {
+      latestDelivery = messageDelivery;
+    } else {
+      latestDelivery = CompletableFuture.allOf(latestDelivery, messageDelivery);
+    }
+  }
+
+  /**
+   * Delivers the messages published with .to(...) to the recipients
+   * concurrently, as tasks of the specified executor. The runner doesn't wait
+   * for the recipients to react, use {@link #whenDelivered()} for that.
+   *
+   * <p>
+   * A recipient that is not in mailbox mode must only receive messages from this
+   * runner, as it is not thread-safe.
+   *
+   * @param executor      the executor the recipients react on
+   * @param deliveryOrder the ordering guarantee for the messages
+   * @return this model runner, for chaining
+   */
+  public ModelRunner deliverConcurrently(Executor executor, DeliveryOrder deliveryOrder) {
+    this.delivery = new Delivery(executor, deliveryOrder);
+    return this;
+  }
+
+  /**
+   * Delivers the messages published with .to(...) to one recipient after the
+   * other, on the thread that called reactTo(...). This is the default.
+   *
+   * @return this model runner, for chaining
+   */
+  public ModelRunner deliverSynchronously() {
+    this.delivery = Delivery.SYNCHRONOUS;
+    return this;
+  }
+
+  /**
+   * Uses the specified scheduler to post the timeout messages of steps, see
+   * {@link org.requirementsascode.builder.StepSystemPart#timeoutAfter(long, TimeUnit, Object)}.
+   * If the runner is owned by an actor, the timeout messages are posted to the
+   * actor's mailbox, so they are serialized with the other messages. A step with
+   * a timeout can't run if the actor is not in mailbox mode. If the runner is
+   * not owned by an actor, it reacts to the timeout messages on the scheduler's
+   * thread, so no other thread must use the runner at the same time.
+   *
+   * @param scheduler the scheduler
+   * @return this model runner, for chaining
+   */
+  public ModelRunner scheduleWith(Scheduler scheduler) {
+    this.scheduler = Objects.requireNonNull(scheduler);
+    return this;
+  }
+
+  /**
+   * Returns a future that is completed when all recipients have reacted to the
+   * messages published with .to(...) during the latest call of reactTo(...).
+   * It is completed exceptionally if a recipient failed to react. Recipients in
+   * mailbox mode, or that receive messages concurrently, report their failures
+   * only this way.
+   *
+   * @return the future of the delivery
+   */
+  public CompletableFuture<Void> whenDelivered() {
+    return Delivery.copyOf(latestDelivery);
+  }
+
   /**
    * Define a custom message handler. It can perform tasks before/after running
    * the step (which will trigger the system reaction method defined in the
@@ -113,11 +221,65 @@ public class ModelRunner {
     return this;
   }
 
+  /**
+   * Limits the number of steps the runner runs per message (including the
+   * steps that react to published events, and autonomous system reactions).
+   * When the limit is exceeded, the runner throws an {@link InfiniteRepetition}
+   * exception.
+   *
+   * @param maxStepCount the maximum number of steps per message
+   * @return this model runner, for chaining
+   */
+  public ModelRunner limitStepsTo(int maxStepCount) {
+    if (maxStepCount < 1) {
+      throw new IllegalArgumentException("maxStepCount must be positive, but is " + maxStepCount);
+    }
+    this.maxStepCount = maxStepCount;
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of steps the runner runs per message.
+   *
+   * @see #limitStepsTo(int)
+   * @return the maximum step count
+   */
+  public int getMaxStepCount() {
+    return maxStepCount;
+  }
+
+  /**
+   * Defers the calls of reactTo(...) from a system reaction, instead of throwing
+   * a {@link NestedCallOfReactTo} exception. The messages are appended to the
+   * runner's queue, and dispatched in order when the system reaction has
+   * finished, before the message returned by the reaction. So a system reaction
+   * can emit several messages without returning a collection. A deferred call
+   * returns an empty optional.
+   *
+   * @return this model runner, for chaining
+   */
+  public ModelRunner deferNestedReactTo() {
+    this.defersNestedReactTo = true;
+    return this;
+  }
+
+  /**
+   * Returns whether the runner defers the calls of reactTo(...) from a system
+   * reaction.
+   *
+   * @see #deferNestedReactTo()
+   * @return true if deferring, false if throwing an exception
+   */
+  public boolean isDeferringNestedReactTo() {
+    return defersNestedReactTo;
+  }
+
   /**
    * Restarts the runner, resetting it to its original defaults ("no flow has been
    * run, no step has been run").
    */
   public void restart() {
+    cancelPendingTimeout();
     setLatestStep(null);
     run(model);
   }
@@ -148,12 +310,16 @@ public class ModelRunner {
    * @return object for method chaining
    */
   public As as(AbstractActor runActor) {
-    return new As(runActor);
+    setRunActor(runActor);
+    if (runAs == null) {
+      // As has no state of its own, so a single instance is reused
+      runAs = new As();
+    }
+    return runAs;
   }
 
   public class As {
-    private As(AbstractActor runActor) {
-      setRunActor(runActor);
+    private As() {
     }
 
     public ModelRunner run(Model model) {
@@ -171,13 +337,16 @@ public class ModelRunner {
 
   private ModelRunner runModel(Model model) {
     setModel(model);
+    // Compile the model before the first message is dispatched
+    model.getCompiledModel();
     initializeStepToBeRun();
     setRunning(true);
     triggerAutonomousSystemReaction();
+    resumeWhenPendingReactionCompletes();
     return this;
   }
 
-  private void triggerAutonomousSystemReaction() {
+  void triggerAutonomousSystemReaction() {
     nestedReactToMessageCallCausesException = false;
     reactToSingleMessage(this);
   }
@@ -197,6 +366,7 @@ public class ModelRunner {
    * {@link #run(Model)} is called again.
    */
   public void stop() {
+    cancelPendingTimeout();
     setRunning(false);
   }
 
@@ -213,9 +383,127 @@ public class ModelRunner {
   @SuppressWarnings("unchecked")
   public <U> Optional<U> reactTo(Object... messages) {
     Objects.requireNonNull(messages);
-    clearLatestPublishedEvent();
+    if (queueIfSuspended(messages)) {
+      return Optional.empty();
+    }
+    if (isDispatching) {
+      reactToMessages(messages);
+      return Optional.empty();
+    }
+    clearResultsOfLatestReactTo();
     reactToMessages(messages);
-    return Optional.ofNullable((U) latestPublishedEvent);
+    U latestPublishedEvent = (U) this.latestPublishedEvent;
+    resumeWhenPendingReactionCompletes();
+    return Optional.ofNullable(latestPublishedEvent);
+  }
+
+  /**
+   * Call this method to provide a large number of messages to the runner, e.g.
+   * when replaying events. Behaves like calling {@link #reactTo(Object)} for
+   * each message, but the messages are neither copied nor collected.
+   *
+   * @param <U>      the return type that you as the user expects.
+   * @param messages the iterator over the message objects
+   * @return the number of handled and unhandled messages, and the event that was
+   *         published (latest) if the system reacted
+   * @throws MoreThanOneStepCanReact when more than one step can react to a
+   *                                 message
+   * @throws InfiniteRepetition      when a step has an always true condition, or
+   *                                 there is an infinite loop.
+   */
+  public <U> BatchResult<U> reactToAll(Iterator<?> messages) {
+    Objects.requireNonNull(messages);
+    Batch batch = new Batch();
+    messages.forEachRemaining(batch);
+    return batch.end();
+  }
+
+  /**
+   * Same as {@link #reactToAll(Iterator)}, for a spliterator over the messages.
+   *
+   * @param <U>      the return type that you as the user expects.
+   * @param messages the spliterator over the message objects
+   * @return the number of handled and unhandled messages, and the event that was
+   *         published (latest) if the system reacted
+   */
+  public <U> BatchResult<U> reactToAll(Spliterator<?> messages) {
+    Objects.requireNonNull(messages);
+    Batch batch = new Batch();
+    messages.forEachRemaining(batch);
+    return batch.end();
+  }
+
+  /**
+   * Same as {@link #reactToAll(Iterator)}, for a stream of messages. The
+   * messages are dispatched in the encounter order of the stream, on the
+   * calling thread.
+   *
+   * @param <U>      the return type that you as the user expects.
+   * @param messages the stream of message objects
+   * @return the number of handled and unhandled messages, and the event that was
+   *         published (latest) if the system reacted
+   */
+  public <U> BatchResult<U> reactToAll(Stream<?> messages) {
+    Objects.requireNonNull(messages);
+    return reactToAll(messages.sequential().spliterator());
+  }
+
+  /**
+   * A batch of messages dispatched by one of the reactToAll() methods. Counts the
+   * messages that steps reacted to, and that no step reacted to. Messages queued
+   * while an asynchronous system reaction is pending are not counted.
+   */
+  private class Batch implements Consumer<Object> {
+    private long handledCount;
+    private long unhandledCount;
+    private boolean ownsResults;
+
+    Batch() {
+      clearResultsIfNotSuspended();
+    }
+
+    @Override
+    public void accept(Object message) {
+      Objects.requireNonNull(message);
+      if (queueIfSuspended(message)) {
+        return;
+      }
+      if (!ownsResults) {
+        clearResultsIfNotSuspended();
+      }
+      if (isMessageContainer(message)) {
+        for (Object containedMessage : flattenMessageContainer(message)) {
+          count(reactToSingleMessage(containedMessage));
+        }
+      } else {
+        count(reactToSingleMessage(message));
+      }
+    }
+
+    private void count(boolean isHandled) {
+      if (isHandled) {
+        handledCount++;
+      } else {
+        unhandledCount++;
+      }
+    }
+
+    private void clearResultsIfNotSuspended() {
+      // The results of a suspended runner belong to the thread that resumes it
+      Suspension suspension = ModelRunner.this.suspension;
+      if (suspension == null || !suspension.isSuspended()) {
+        clearResultsOfLatestReactTo();
+        ownsResults = true;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    <U> BatchResult<U> end() {
+      U latestPublishedEvent = ownsResults ? (U) ModelRunner.this.latestPublishedEvent : null;
+      BatchResult<U> result = new BatchResult<>(handledCount, unhandledCount, latestPublishedEvent);
+      resumeWhenPendingReactionCompletes();
+      return result;
+    }
   }
 
   /**
@@ -239,6 +527,14 @@ public class ModelRunner {
    * {@link #reactTo(Object)} is called.
    *
    * <p>
+   * If a system reaction returns an incomplete
+   * {@link java.util.concurrent.CompletionStage}, the runner stops dispatching
+   * until the stage completes, and returns. It then publishes the result of the
+   * stage, and continues dispatching, on the thread that completed the stage.
+   * Meanwhile, any thread may call this method, the messages are queued and
+   * dispatched in order. See {@link #whenIdle()}.
+   *
+   * <p>
    * See {@link #canReactTo(Class)} for a description of what "can react" means.
    *
    * @param <T>     the type of message
@@ -254,12 +550,22 @@ public class ModelRunner {
   @SuppressWarnings("unchecked")
   public <T, U> Optional<U> reactTo(T message) {
     Objects.requireNonNull(message);
+    if (queueIfSuspended(message)) {
+      return Optional.empty();
+    }
+    if (isDispatching) {
+      // A nested call, dispatched after the current step (or rejected)
+      reactToSingleOrSeveralMessages(message);
+      return Optional.empty();
+    }
 
-    clearLatestPublishedEvent();
+    clearResultsOfLatestReactTo();
     
     reactToSingleOrSeveralMessages(message);
 
-    return Optional.ofNullable((U) latestPublishedEvent);
+    U latestPublishedEvent = (U) this.latestPublishedEvent;
+    resumeWhenPendingReactionCompletes();
+    return Optional.ofNullable(latestPublishedEvent);
   }
 
   private <T> void reactToSingleOrSeveralMessages(T message) {
@@ -292,85 +598,185 @@ public class ModelRunner {
     }
   }
 
-  private <T> void reactToSingleMessage(T message) {
+  /**
+   * Reacts to the specified message, if the runner is running.
+   *
+   * @return true if a step reacted to the message immediately, false otherwise
+   */
+  private <T> boolean reactToSingleMessage(T message) {
     if (!isRunning()) {
-      return;
+      return false;
     }
-    if (nestedReactToMessageCallCausesException) {
+    if (nestedReactToMessageCallCausesException && !defersNestedReactTo) {
       throw new NestedCallOfReactTo();
     }
 
-    Class<? extends Object> currentMessageClass = message.getClass();
+    boolean isHandled = false;
+    if (pendingReaction != null && !isDispatching) {
+      // A message after the one that caused the pending reaction
+      suspension.defer(message);
+    } else if (isDispatching) {
+      // Dispatched by the work loop, after the current message
+      messagesOfCurrentStep.add(message);
+    } else {
+      isHandled = dispatch(message);
+    }
+    return isHandled;
+  }
 
+  /**
+   * Dispatches the specified message, and all messages that result from it, in
+   * a work loop. The messages published by a step, and the autonomous system
+   * reaction after it, are dispatched depth first, in the same order as if the
+   * runner called itself recursively.
+   *
+   * @return true if a step reacted to the specified message, false otherwise
+   */
+  private boolean dispatch(Object message) {
+    isDispatching = true;
+    stepCount = 0;
     try {
-      int nrOfStepsThatCanReact = 0;
-      Step stepThatWillReact = null;
-      Collection<Step> steps = model.getModifiableSteps();
+      boolean isHandled = dispatchSingleMessage(message);
+      dispatchScheduledMessages();
+      return isHandled;
+    } catch (StackOverflowError err) {
+      throw new InfiniteRepetition(latestStep);
+    } finally {
+      endDispatch();
+    }
+  }
 
-      for (Step step : steps) {
-        if (canReactToMessageClass(step, currentMessageClass)) {
-          stepThatWillReact = step;
-          nrOfStepsThatCanReact++;
+  /**
+   * Dispatches the messages that result from the messages dispatched so far,
+   * until there are none left, or a system reaction is pending.
+   */
+  private void dispatchScheduledMessages() {
+    scheduleMessagesOfCurrentStep();
+    while (pendingReaction == null && !messagesToBeDispatched.isEmpty()) {
+      Object messageToBeDispatched = messagesToBeDispatched.pop();
+      dispatchSingleMessage(messageToBeDispatched);
+      scheduleMessagesOfCurrentStep();
+    }
+  }
+
+  private void endDispatch() {
+    if (pendingReaction == null) {
+      messagesToBeDispatched.clear();
+      messagesOfCurrentStep.clear();
+    } else {
+      // Keep the scheduled messages, they are dispatched when the reaction
+      // completes. Until then, new messages are queued.
+      if (suspension == null) {
+        suspension = new Suspension();
+      }
+      suspension.suspend();
+    }
+    nestedReactToMessageCallCausesException = false;
+    isDispatching = false;
+  }
 
-          if (nrOfStepsThatCanReact > 1) {
+  private boolean dispatchSingleMessage(Object message) {
+    if (!isRunning()) {
+      return false;
+    }
+
+    Class<? extends Object> currentMessageClass = message.getClass();
+    Step stepThatWillReact = findStepThatWillReact(currentMessageClass);
+
+    if (stepThatWillReact != null) {
+      triggerSystemReaction(message, stepThatWillReact);
+    } else if (unhandledMessageHandler != null && !isSystemEvent(message)) {
+      unhandledMessageHandler.accept(message);
+    } else if (message instanceof RuntimeException) {
+      throw (RuntimeException) message;
+    }
+    return stepThatWillReact != null;
+  }
+
+  private void scheduleMessagesOfCurrentStep() {
+    for (int i = messagesOfCurrentStep.size() - 1; i >= 0; i--) {
+      messagesToBeDispatched.push(messagesOfCurrentStep.get(i));
+    }
+    messagesOfCurrentStep.clear();
+  }
+
+  private Step findStepThatWillReact(Class<?> currentMessageClass) {
+    Step stepThatWillReact = null;
+    Step[] candidateSteps = dispatchIndex().getCandidateSteps(currentMessageClass);
+
+    beginDispatchCycle();
+    try {
+      for (Step step : candidateSteps) {
+        if (canReact(step)) {
+          if (stepThatWillReact != null) {
             // No more than one step is allowed to react to a message
-            throw new MoreThanOneStepCanReact(steps);
+            throw new MoreThanOneStepCanReact(Arrays.asList(stepThatWillReact, step));
           }
+          stepThatWillReact = step;
         }
       }
-
-      if (nrOfStepsThatCanReact == 1) {
-        triggerSystemReaction(message, stepThatWillReact);
-      } else if (unhandledMessageHandler != null && !isSystemEvent(message)) {
-        unhandledMessageHandler.accept(message);
-      } else if (message instanceof RuntimeException) {
-        throw (RuntimeException) message;
-      }
-    } catch (StackOverflowError err) {
-      throw new InfiniteRepetition(latestStep);
+    } finally {
+      endDispatchCycle();
     }
+    return stepThatWillReact;
   }
 
   private boolean canReact(Step step) {
-    boolean stepCanReact = hasRightActor(step) && hasTruePredicate(step);
+    boolean stepCanReact = step instanceof InterruptingFlowStep ? canInterrupt((InterruptingFlowStep) step)
+      : evaluateCanReact(step);
     return stepCanReact;
   }
 
-  boolean canReactToMessageClass(Step step, Class<? extends Object> currentMessageClass) {
-    boolean stepCanReact = stepMessageClassIsSameOrSuperclass(step, currentMessageClass) && canReact(step);
+  private boolean evaluateCanReact(Step step) {
+    boolean stepCanReact = hasRightActor(step) && hasTruePredicate(step);
     return stepCanReact;
   }
 
-  private boolean hasRightActor(Step step) {
-    final Predicate<AbstractActor> isSystemOrRunActor = actor -> actor.equals(model.getUserActor())
-      || actor.equals(model.getSystemActor()) || actor.equals(runActor);
+  /**
+   * Checks whether the specified interrupting step can react, i.e. interrupt
+   * other steps. Within a dispatch cycle, this is only evaluated once per step.
+   *
+   * @param interruptingStep the interrupting step
+   * @return true if the step can react, false otherwise
+   */
+  boolean canInterrupt(InterruptingFlowStep interruptingStep) {
+    int stepId = interruptingStep.getId();
+    if (dispatchCycle.hasEvaluated(stepId)) {
+      return dispatchCycle.getEvaluation(stepId);
+    }
+    boolean canInterrupt = evaluateCanReact(interruptingStep);
+    dispatchCycle.setEvaluation(stepId, canInterrupt);
+    return canInterrupt;
+  }
+
+  private void beginDispatchCycle() {
+    dispatchCycle.begin(model.getCompiledModel());
+  }
 
+  private void endDispatchCycle() {
+    dispatchCycle.end();
+  }
+
+  private boolean hasRightActor(Step step) {
     AbstractActor[] stepActors = step.getActors();
     if (stepActors == null) {
       throw (new MissingUseCaseStepPart(step, "actor"));
     }
 
     for (AbstractActor stepActor : stepActors) {
-      if (isSystemOrRunActor.test(stepActor)) {
+      if (isSystemOrRunActor(stepActor)) {
         return true;
       }
     }
     return false;
   }
 
-  private boolean stepMessageClassIsSameOrSuperclass(Step step, Class<?> currentMessageClass) {
-    Class<?> stepMessageClass = step.getMessageClass();
-    if (stepMessageClass == null) {
-      throw new MissingUseCaseStepPart(step, "on/user");
-    }
-    boolean result = hasSystemEventClass(currentMessageClass) ? hasSystemEventClass(stepMessageClass)
-      : stepMessageClass.isAssignableFrom(currentMessageClass);
-    return result;
+  private boolean isSystemOrRunActor(AbstractActor actor) {
+    return actor.equals(model.getUserActor()) || actor.equals(model.getSystemActor()) || actor.equals(runActor);
   }
 
   private boolean hasTruePredicate(Step step) {
-    Predicate<ModelRunner> predicate = step.getPredicate();
-    boolean result = predicate.test(this);
+    boolean result = step.isPredicateTrue(this);
     return result;
   }
 
@@ -379,14 +785,18 @@ public class ModelRunner {
       throw new MissingUseCaseStepPart(step, "system");
     }
 
+    if (++stepCount > maxStepCount) {
+      throw new InfiniteRepetition(step);
+    }
+
+    scheduleTimeoutOf(step);
     stepToBeRun.setupWith(step, message);
     setLatestStep(step);
 
     try {
       nestedReactToMessageCallCausesException = true;
 
-      Condition isTheCase = step.getCase().orElse(() -> true);
-      if (isTheCase.evaluate()) {
+      if (isCaseTrue(step)) {
         recordStepNameAndMessage(step, message);
         messageHandler.accept(stepToBeRun);
         publishReturnedMessage();
@@ -396,22 +806,219 @@ public class ModelRunner {
       handleException(e);
     }
 
-    triggerAutonomousSystemReaction();
+    // The autonomous system reaction is dispatched after the messages of this step
+    nestedReactToMessageCallCausesException = false;
+    messagesToBeDispatched.push(this);
+  }
+
+  private void scheduleTimeoutOf(Step step) {
+    // Running a step ends the timeout of the step before
+    cancelPendingTimeout();
+    Object timeoutMessage = step.getTimeoutMessageOrNull();
+    if (timeoutMessage != null) {
+      if (scheduler == null) {
+        throw new IllegalStateException("Step " + step + " has a timeout, but no scheduler has been specified");
+      }
+      if (owningActor != null && !owningActor.hasMailbox()) {
+        // The timeout message would race with the thread that calls the actor
+        throw new IllegalStateException(
+          "Step " + step + " has a timeout, but actor " + owningActor + " is not in mailbox mode");
+      }
+      long timeoutNanos = step.getTimeoutNanos();
+      pendingTimeout = owningActor != null
+        ? scheduler.postDelayed(owningActor, timeoutMessage, timeoutNanos, TimeUnit.NANOSECONDS)
+        : scheduler.postDelayed(this, timeoutMessage, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void cancelPendingTimeout() {
+    if (pendingTimeout != null) {
+      pendingTimeout.cancel();
+      pendingTimeout = null;
+    }
+  }
+
+  /**
+   * Checks whether the case of the specified step is true. The case is evaluated
+   * in the dispatch cycle that found the step, because no system reaction has
+   * been run since.
+   *
+   * @param step the step that will react
+   * @return true if the step has no case, or its case is true
+   */
+  private boolean isCaseTrue(Step step) {
+    dispatchCycle.resume();
+    try {
+      return step.isCaseTrue(this);
+    } finally {
+      dispatchCycle.end();
+    }
+  }
+
+  /**
+   * Evaluates the specified condition of a step. A pure condition is evaluated
+   * at most once per dispatch cycle.
+   *
+   * @param condition the condition
+   * @return the result of the evaluation
+   */
+  boolean evaluate(Condition condition) {
+    return dispatchCycle.evaluate(condition);
+  }
+
+  /**
+   * Returns how often this runner evaluated conditions, and how many evaluations
+   * of pure conditions it saved, since it has been created.
+   *
+   * @see PureCondition
+   * @return the condition metrics
+   */
+  public ConditionMetrics getConditionMetrics() {
+    return dispatchCycle.getConditionMetrics();
   }
 
   private void publishReturnedMessage() {
-    Optional<Object> messageToBePublished = stepToBeRun.getMessageToBePublished();
-    if (messagePublisher != null && messageToBePublished.isPresent()) {
-      messagePublisher.accept(messageToBePublished.get());
+    Object messageToBePublished = stepToBeRun.getMessageToBePublishedOrNull();
+    if (messageToBePublished == null) {
+      return;
+    }
+    if (isCompletionStage(messageToBePublished)) {
+      awaitReaction((CompletionStage<?>) messageToBePublished);
+    } else if (messagePublisher != null) {
+      messagePublisher.accept(messageToBePublished);
+    }
+  }
+
+  private boolean isCompletionStage(Object message) {
+    // Checking for an interface is comparatively slow, so remember the class of
+    // the latest message that isn't a completion stage
+    Class<?> messageClass = message.getClass();
+    if (messageClass == latestPublishedClass) {
+      return false;
+    }
+    if (message instanceof CompletionStage) {
+      return true;
+    }
+    latestPublishedClass = messageClass;
+    return false;
+  }
+
+  /**
+   * Publishes the result of the specified stage, returned by an asynchronous
+   * system reaction. If the stage has already completed, the result is published
+   * immediately. Otherwise, the runner stops dispatching after this step, until
+   * the stage completes.
+   */
+  private void awaitReaction(CompletionStage<?> stage) {
+    CompletableFuture<Object> reaction = new CompletableFuture<>();
+    stage.whenComplete((result, failure) -> {
+      if (failure == null) {
+        reaction.complete(result);
+      } else {
+        reaction.completeExceptionally(failure);
+      }
+    });
+
+    if (reaction.isDone()) {
+      Object result = null;
+      Throwable failure = null;
+      try {
+        result = reaction.join();
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+      publishResultOfReaction(result, failure);
+    } else if (session != null) {
+      throw new IllegalStateException("A model engine doesn't support asynchronous system reactions, but step "
+        + latestStep + " returned an incomplete CompletionStage");
+    } else {
+      pendingReaction = reaction;
+    }
+  }
+
+  /**
+   * Called last by the public methods that dispatch messages, when they no
+   * longer access the state of the runner. If a system reaction is pending,
+   * the runner resumes dispatching when the reaction completes, on the
+   * completing thread.
+   */
+  private void resumeWhenPendingReactionCompletes() {
+    CompletableFuture<Object> reaction = pendingReaction;
+    if (reaction != null && !isDispatching) {
+      pendingReaction = null;
+      reaction.whenComplete(this::resume);
+    }
+  }
+
+  private void resume(Object result, Throwable failure) {
+    continueDispatching(result, failure);
+    while (pendingReaction == null) {
+      Object message = suspension.pollDeferredOrQueuedMessage();
+      if (message == null) {
+        // No longer suspended, so another thread may use the runner now
+        return;
+      }
+      try {
+        clearResultsOfLatestReactTo();
+        reactToSingleOrSeveralMessages(message);
+      } catch (RuntimeException e) {
+        suspension.fail(e);
+      }
+    }
+    resumeWhenPendingReactionCompletes();
+  }
+
+  private void continueDispatching(Object result, Throwable failure) {
+    isDispatching = true;
+    try {
+      publishResultOfReaction(result, failure);
+      dispatchScheduledMessages();
+    } catch (RuntimeException e) {
+      suspension.fail(e);
+    } catch (StackOverflowError err) {
+      suspension.fail(new InfiniteRepetition(latestStep));
+    } finally {
+      endDispatch();
+    }
+  }
+
+  private void publishResultOfReaction(Object result, Throwable failure) {
+    if (failure != null) {
+      Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause()
+        : failure;
+      handleException(cause instanceof Exception ? (Exception) cause : new CompletionException(cause));
+    } else {
+      stepToBeRun.setMessageToBePublished(result);
+      if (messagePublisher != null && result != null) {
+        messagePublisher.accept(result);
+      }
     }
   }
 
+  private boolean queueIfSuspended(Object message) {
+    Suspension suspension = this.suspension;
+    return suspension != null && suspension.queueIfSuspended(message);
+  }
+
+  /**
+   * Returns a future that is completed when no asynchronous system reaction is
+   * pending, and the messages queued meanwhile have been dispatched. It is
+   * completed exceptionally with the first exception thrown while the runner
+   * resumed dispatching, as there is no caller to throw it to.
+   *
+   * @return the future
+   */
+  public CompletableFuture<Void> whenIdle() {
+    Suspension suspension = this.suspension;
+    return Delivery.copyOf(suspension == null ? Delivery.DELIVERED : suspension.whenIdle());
+  }
+
   private <T> boolean isSystemEvent(T message) {
     return hasSystemEventClass(message.getClass());
   }
 
   private boolean hasSystemEventClass(Class<?> messageClass) {
-    return SYSTEM_EVENT_CLASS.equals(messageClass);
+    return DispatchIndex.hasSystemEventClass(messageClass);
   }
 
   void recordStepNameAndMessage(Step step, Object message) {
@@ -444,12 +1051,17 @@ public class ModelRunner {
     }
     boolean canReact = false;
 
-    Collection<Step> steps = model.getModifiableSteps();
-    for (Step step : steps) {
-      if (canReactToMessageClass(step, messageClass)) {
-        canReact = true;
-        break;
+    Step[] candidateSteps = dispatchIndex().getCandidateSteps(messageClass);
+    beginDispatchCycle();
+    try {
+      for (Step step : candidateSteps) {
+        if (canReact(step)) {
+          canReact = true;
+          break;
+        }
       }
+    } finally {
+      endDispatchCycle();
     }
 
     return canReact;
@@ -467,13 +1079,18 @@ public class ModelRunner {
 
     if (isRunning) {
       reactToTypes = new LinkedHashSet<>();
-      Collection<Step> steps = model.getModifiableSteps();
-
-      for (Step step : steps) {
-        if (canReact(step)) {
-          Class<?> messageClass = step.getMessageClass();
-          reactToTypes.add(messageClass);
+      Step[] steps = model.getCompiledModel().getStepArray();
+
+      beginDispatchCycle();
+      try {
+        for (Step step : steps) {
+          if (canReact(step)) {
+            Class<?> messageClass = step.getMessageClass();
+            reactToTypes.add(messageClass);
+          }
         }
+      } finally {
+        endDispatchCycle();
       }
     } else {
       reactToTypes = Collections.emptySet();
@@ -494,11 +1111,16 @@ public class ModelRunner {
     Set<Step> stepsThatCanReact = new HashSet<>(2);
 
     if (isRunning) {
-      Collection<Step> steps = model.getModifiableSteps();
-      for (Step step : steps) {
-        if (canReactToMessageClass(step, messageClass)) {
-          stepsThatCanReact.add(step);
+      Step[] candidateSteps = dispatchIndex().getCandidateSteps(messageClass);
+      beginDispatchCycle();
+      try {
+        for (Step step : candidateSteps) {
+          if (canReact(step)) {
+            stepsThatCanReact.add(step);
+          }
         }
+      } finally {
+        endDispatchCycle();
       }
     }
 
@@ -527,6 +1149,10 @@ public class ModelRunner {
     return Optional.ofNullable(latestStep);
   }
 
+  Step getLatestStepOrNull() {
+    return latestStep;
+  }
+
   /**
    * Sets the latest step run by the runner.
    *
@@ -627,6 +1253,52 @@ public class ModelRunner {
   private void initializeStepToBeRun() {
     this.stepToBeRun = new StepToBeRun();
   }
+
+  /**
+   * Binds this runner to the state of the specified session, until
+   * {@link #suspendSession(CompiledModel)} is called. While bound, the runner
+   * dispatches messages for the session.
+   *
+   * @param compiledModel the compiled model that defines the session's step ids
+   * @param session       the session to resume
+   */
+  void resumeSession(CompiledModel compiledModel, Session session) {
+    this.session = Objects.requireNonNull(session);
+    setModel(compiledModel.getModel());
+    if (stepToBeRun == null) {
+      initializeStepToBeRun();
+    }
+
+    int latestStepId = session.getLatestStepId();
+    setLatestStep(latestStepId == Session.NO_LATEST_STEP ? null : compiledModel.getStep(latestStepId));
+    setRunning(session.isRunning());
+    isRecording = session.isRecording();
+    recordedStepNames = session.getModifiableRecordedStepNames();
+    recordedMessages = session.getModifiableRecordedMessages();
+    nestedReactToMessageCallCausesException = false;
+  }
+
+  /**
+   * Saves the state of the runner to the session it is bound to, and unbinds it.
+   *
+   * @param compiledModel the compiled model that defines the session's step ids
+   */
+  void suspendSession(CompiledModel compiledModel) {
+    int latestStepId = latestStep == null ? Session.NO_LATEST_STEP : compiledModel.getStepId(latestStep);
+    session.setLatestStepId(latestStepId);
+    session.setRunning(isRunning);
+
+    this.session = null;
+    setLatestStep(null);
+    setRunning(false);
+    isRecording = false;
+    recordedStepNames = null;
+    recordedMessages = null;
+  }
+
+  boolean hasSession() {
+    return session != null;
+  }
   
   /**
    * Returns the model currently run by this model runner.
@@ -637,6 +1309,14 @@ public class ModelRunner {
     return Optional.ofNullable(model);
   }
 
+  Model getModelOrNull() {
+    return model;
+  }
+
+  private DispatchIndex dispatchIndex() {
+    return model.getCompiledModel().getDispatchIndex();
+  }
+
   private void setModel(Model model) {
     this.model = Objects.requireNonNull(model);
   }
@@ -649,11 +1329,97 @@ public class ModelRunner {
     this.runActor = Objects.requireNonNull(runActor);
   }
 
-  private void clearLatestPublishedEvent() {
+  private void clearResultsOfLatestReactTo() {
     latestPublishedEvent = null;
+    latestDelivery = Delivery.DELIVERED;
   }
 
   private void setLatestPublishedEvent(Object event) {
     latestPublishedEvent = event;
   }
+
+  /**
+   * The messages of a runner whose asynchronous system reaction is pending.
+   * Other threads queue their messages here, so the queue is guarded by this
+   * object's lock.
+   */
+  private static class Suspension {
+    private final Deque<Object> queuedMessages;
+    // Only accessed by the thread that runs the runner, no lock needed
+    private final Deque<Object> deferredMessages;
+    private volatile boolean isSuspended;
+    private CompletableFuture<Void> idle;
+    private RuntimeException failure;
+
+    Suspension() {
+      this.queuedMessages = new ArrayDeque<>();
+      this.deferredMessages = new ArrayDeque<>();
+    }
+
+    synchronized void suspend() {
+      if (!isSuspended) {
+        isSuspended = true;
+        idle = new CompletableFuture<>();
+        failure = null;
+      }
+    }
+
+    boolean queueIfSuspended(Object message) {
+      if (!isSuspended) {
+        return false;
+      }
+      synchronized (this) {
+        if (isSuspended) {
+          queuedMessages.add(message);
+        }
+        return isSuspended;
+      }
+    }
+
+    boolean isSuspended() {
+      return isSuspended;
+    }
+
+    void defer(Object message) {
+      deferredMessages.add(message);
+    }
+
+    /**
+     * Returns the next message to be dispatched. If there is none, the runner is
+     * no longer suspended.
+     */
+    Object pollDeferredOrQueuedMessage() {
+      Object message = deferredMessages.poll();
+      if (message != null) {
+        return message;
+      }
+      CompletableFuture<Void> idle;
+      RuntimeException failure;
+      synchronized (this) {
+        message = queuedMessages.poll();
+        if (message != null) {
+          return message;
+        }
+        isSuspended = false;
+        idle = this.idle;
+        failure = this.failure;
+      }
+      if (failure == null) {
+        idle.complete(null);
+      } else {
+        idle.completeExceptionally(failure);
+      }
+      return null;
+    }
+
+    synchronized void fail(RuntimeException e) {
+      if (failure == null) {
+        failure = e;
+      }
+    }
+
+    synchronized CompletableFuture<Void> whenIdle() {
+      return isSuspended ? idle : Delivery.DELIVERED;
+    }
+  }
 }
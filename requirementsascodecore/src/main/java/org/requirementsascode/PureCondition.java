@@ -0,0 +1,32 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+
+/**
+ * A condition whose result doesn't change while a model runner dispatches a
+ * single message, or answers a query like {@link ModelRunner#canReactTo(Class)}.
+ * It must not depend on state that the runner changes during the dispatch,
+ * e.g. the latest step run.
+ *
+ * <p>
+ * The runner evaluates a pure condition at most once per dispatch cycle, even
+ * if several steps use it (e.g. as condition, case or reactWhile condition).
+ * Use it for conditions that are expensive to evaluate.
+ *
+ * @see ModelRunner#getConditionMetrics()
+ * @author b_muth
+ */
+@FunctionalInterface
+public interface PureCondition extends Condition {
+  /**
+   * Marks the specified condition as pure.
+   *
+   * @param condition the condition
+   * @return the pure condition, or the specified condition itself if it is
+   *         already pure
+   */
+  static PureCondition of(Condition condition) {
+    Objects.requireNonNull(condition);
+    return condition instanceof PureCondition ? (PureCondition) condition : condition::evaluate;
+  }
+}
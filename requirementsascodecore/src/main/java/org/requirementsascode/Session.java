@@ -0,0 +1,146 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A session is the state of a single user journey through a model that is run
+ * by a {@link ModelEngine}. It only holds the id of the latest step run, and
+ * whether the session is running and recording. Everything else is shared by
+ * all sessions of the engine.
+ *
+ * <p>
+ * A session may be dispatched from any thread, but messages for the same
+ * session must not be dispatched concurrently.
+ *
+ * @see ModelEngine#newSession()
+ * @author b_muth
+ */
+public final class Session {
+  /**
+   * The latest step id of a session in which no step has been run yet.
+   */
+  public static final int NO_LATEST_STEP = -1;
+
+  private int latestStepId;
+  private boolean isRunning;
+  private boolean isRecording;
+  private List<String> recordedStepNames;
+  private List<Object> recordedMessages;
+  // Bookkeeping of a session registry, for idle eviction
+  private long lastAccessNanos;
+
+  Session() {
+    this.latestStepId = NO_LATEST_STEP;
+  }
+
+  /**
+   * Returns the id of the latest step run in this session, as defined by the
+   * compiled model of the engine.
+   *
+   * @see CompiledModel#getStep(int)
+   * @return the step id, or {@link #NO_LATEST_STEP} if no step has been run
+   */
+  public int getLatestStepId() {
+    return latestStepId;
+  }
+
+  void setLatestStepId(int latestStepId) {
+    this.latestStepId = latestStepId;
+  }
+
+  /**
+   * Returns whether the session is running, i.e. whether it reacts to messages.
+   *
+   * @return true if the session is running, false otherwise
+   */
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  void setRunning(boolean isRunning) {
+    this.isRunning = isRunning;
+  }
+
+  /**
+   * Stops the session. It will not be reacting to messages, until it is
+   * restarted.
+   *
+   * @see ModelEngine#restart(Session)
+   */
+  public void stop() {
+    setRunning(false);
+  }
+
+  /**
+   * After calling this method, until recording is stopped, messages and step
+   * names of this session are recorded. If messages/step names have been
+   * recorded before calling this method, they are discarded.
+   *
+   * @return this session, for method chaining
+   */
+  public Session startRecording() {
+    recordedStepNames = new ArrayList<>();
+    recordedMessages = new ArrayList<>();
+    isRecording = true;
+    return this;
+  }
+
+  /**
+   * When calling this method, recording is stopped. No messages and step names
+   * are recorded until {@link #startRecording()} is called again.
+   *
+   * @return this session, for method chaining
+   */
+  public Session stopRecording() {
+    isRecording = false;
+    return this;
+  }
+
+  /**
+   * Returns whether messages and step names of this session are recorded.
+   *
+   * @return true if recording, false otherwise
+   */
+  public boolean isRecording() {
+    return isRecording;
+  }
+
+  /**
+   * Returns the recorded names of the steps that have been run in this session.
+   *
+   * @see ModelRunner#getRecordedStepNames()
+   * @return the ordered names of steps run, or an empty array if none have been
+   *         recorded
+   */
+  public String[] getRecordedStepNames() {
+    return recordedStepNames == null ? new String[0] : recordedStepNames.toArray(new String[0]);
+  }
+
+  /**
+   * Returns the recorded messages that caused a system reaction in this session.
+   *
+   * @see ModelRunner#getRecordedMessages()
+   * @return the messages, in order of occurrence, or an empty array if none have
+   *         been recorded
+   */
+  public Object[] getRecordedMessages() {
+    return recordedMessages == null ? new Object[0] : recordedMessages.toArray();
+  }
+
+  long getLastAccessNanos() {
+    return lastAccessNanos;
+  }
+
+  void setLastAccessNanos(long lastAccessNanos) {
+    this.lastAccessNanos = lastAccessNanos;
+  }
+
+  List<String> getModifiableRecordedStepNames() {
+    return recordedStepNames;
+  }
+
+  List<Object> getModifiableRecordedMessages() {
+    return recordedMessages;
+  }
+}
@@ -0,0 +1,278 @@
+package org.requirementsascode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * A session registry runs a model for many keys, e.g. user ids. It creates a
+ * session of a model engine for each key when the first message for the key
+ * arrives, and dispatches the messages for the key to that session. Any thread
+ * may call the registry.
+ *
+ * <p>
+ * The keys are distributed over a fixed number of stripes, each guarded by its
+ * own lock. So messages for the same key are never dispatched concurrently,
+ * while messages for keys of different stripes are. The lock of a stripe is
+ * held while a system reaction runs. So a system reaction must not dispatch
+ * messages for other keys of the same registry, as that may deadlock.
+ *
+ * <p>
+ * Optionally, the registry evicts idle sessions, or the least recently used
+ * sessions when there are too many. Evicted sessions can be passivated to a
+ * store, and are reactivated from it transparently.
+ *
+ * @see SessionRegistryBuilder
+ * @author b_muth
+ *
+ * @param <K> the type of key
+ */
+public final class SessionRegistry<K> {
+  private final ModelEngine modelEngine;
+  private final Stripe<K>[] stripes;
+  private final int stripeShift;
+  private final int maxSizePerStripe;
+  private final long expireAfterIdleNanos;
+  private final SessionStore<K> sessionStore;
+  private final LongSupplier nanoTime;
+
+  SessionRegistry(ModelEngine modelEngine, int stripeCount, int maxSizePerStripe, long expireAfterIdleNanos,
+    SessionStore<K> sessionStore, LongSupplier nanoTime) {
+    this.modelEngine = Objects.requireNonNull(modelEngine);
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Stripe<K>[] stripes = new Stripe[stripeCount];
+    this.stripes = stripes;
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe<>();
+    }
+    this.stripeShift = Integer.numberOfLeadingZeros(stripeCount - 1);
+    this.maxSizePerStripe = maxSizePerStripe;
+    this.expireAfterIdleNanos = expireAfterIdleNanos;
+    this.sessionStore = sessionStore;
+    this.nanoTime = Objects.requireNonNull(nanoTime);
+  }
+
+  /**
+   * Returns a builder for a registry that runs the model of the specified
+   * engine.
+   *
+   * @param modelEngine the engine
+   * @return the builder
+   */
+  public static SessionRegistryBuilder<Object> builder(ModelEngine modelEngine) {
+    return new SessionRegistryBuilder<>(modelEngine);
+  }
+
+  /**
+   * Dispatches the specified message to the session of the specified key.
+   * Creates the session first, or reactivates it, if necessary.
+   *
+   * @see ModelEngine#reactTo(Session, Object)
+   * @param <T>     the type of message
+   * @param <U>     the return type that you as the user expects.
+   * @param key     the key of the session
+   * @param message the message object
+   * @return the event that was published (latest) if the system reacted, or an
+   *         empty Optional.
+   * @throws MoreThanOneStepCanReact when more than one step can react
+   * @throws InfiniteRepetition      when a step has an always true condition, or
+   *                                 there is an infinite loop.
+   */
+  public <T, U> Optional<U> reactTo(K key, T message) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(message);
+    Stripe<K> stripe = stripeOf(key);
+    stripe.lock.lock();
+    try {
+      Session session = acquire(stripe, key);
+      return modelEngine.reactTo(session, message);
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the latest step that has been run in the session of the specified
+   * key. Reactivates the session, if necessary.
+   *
+   * @param key the key of the session
+   * @return the latest step run, or an empty optional if no step has been run
+   */
+  public Optional<Step> getLatestStep(K key) {
+    Objects.requireNonNull(key);
+    Stripe<K> stripe = stripeOf(key);
+    stripe.lock.lock();
+    try {
+      Session session = acquire(stripe, key);
+      return modelEngine.getLatestStep(session);
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  private Session acquire(Stripe<K> stripe, K key) {
+    long now = nanoTime.getAsLong();
+    evictIdleSessions(stripe, now);
+    Session session = stripe.sessions.get(key);
+    if (session == null) {
+      session = reactivateOrCreateSession(key);
+      stripe.sessions.put(key, session);
+      evictLeastRecentlyUsedSessions(stripe);
+    }
+    session.setLastAccessNanos(now);
+    return session;
+  }
+
+  private Session reactivateOrCreateSession(K key) {
+    OptionalInt latestStepId = sessionStore == null ? OptionalInt.empty() : sessionStore.reactivate(key);
+    return latestStepId.isPresent() ? modelEngine.reactivateSession(latestStepId.getAsInt())
+      : modelEngine.newSession();
+  }
+
+  private void evictIdleSessions(Stripe<K> stripe, long now) {
+    if (expireAfterIdleNanos == 0) {
+      return;
+    }
+    // The sessions are in access order, so the idle sessions come first
+    Iterator<Map.Entry<K, Session>> entries = stripe.sessions.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<K, Session> entry = entries.next();
+      if (now - entry.getValue().getLastAccessNanos() < expireAfterIdleNanos) {
+        break;
+      }
+      entries.remove();
+      passivate(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void evictLeastRecentlyUsedSessions(Stripe<K> stripe) {
+    Iterator<Map.Entry<K, Session>> entries = stripe.sessions.entrySet().iterator();
+    while (stripe.sessions.size() > maxSizePerStripe) {
+      Map.Entry<K, Session> entry = entries.next();
+      entries.remove();
+      passivate(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void passivate(K key, Session session) {
+    // A stopped session is discarded, so the key gets a new session
+    if (sessionStore != null && session.isRunning()) {
+      sessionStore.passivate(key, session.getLatestStepId());
+    }
+  }
+
+  /**
+   * Evicts the sessions of all stripes that have been idle for longer than
+   * specified by {@link SessionRegistryBuilder#expireAfterIdle}. Call this
+   * method periodically if some stripes may not be accessed for a long time.
+   */
+  public void evictIdleSessions() {
+    for (Stripe<K> stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        evictIdleSessions(stripe, nanoTime.getAsLong());
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Passivates all sessions to the store, and removes them from the registry,
+   * e.g. before shutting down. Without a store, the sessions are discarded.
+   */
+  public void passivateAll() {
+    for (Stripe<K> stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        stripe.sessions.forEach(this::passivate);
+        stripe.sessions.clear();
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Removes the session of the specified key from the registry, and from the
+   * store. The next message for the key creates a new session.
+   *
+   * @param key the key of the session
+   */
+  public void remove(K key) {
+    Objects.requireNonNull(key);
+    Stripe<K> stripe = stripeOf(key);
+    stripe.lock.lock();
+    try {
+      stripe.sessions.remove(key);
+      if (sessionStore != null) {
+        sessionStore.remove(key);
+      }
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether the registry currently holds a session for the specified
+   * key. Passivated sessions are not considered.
+   *
+   * @param key the key of the session
+   * @return true if the session is in the registry, false otherwise
+   */
+  public boolean contains(K key) {
+    Objects.requireNonNull(key);
+    Stripe<K> stripe = stripeOf(key);
+    stripe.lock.lock();
+    try {
+      return stripe.sessions.containsKey(key);
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of sessions in the registry, without the passivated
+   * sessions.
+   *
+   * @return the number of sessions
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe<K> stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        size += stripe.sessions.size();
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  private Stripe<K> stripeOf(K key) {
+    // Select the stripe by the upper bits of a Fibonacci hash. The lower bits of
+    // the hash code select the bucket in the stripe's map, so keys of the same
+    // stripe must not share them.
+    long hash = (key.hashCode() * 0x9E3779B9) & 0xFFFFFFFFL;
+    return stripes[(int) (hash >>> stripeShift)];
+  }
+
+  private static class Stripe<K> {
+    private final ReentrantLock lock;
+    private final LinkedHashMap<K, Session> sessions;
+
+    Stripe() {
+      this.lock = new ReentrantLock();
+      this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Builder used to configure a {@link SessionRegistry}.
+ *
+ * <p>
+ * By default, the registry has {@value #DEFAULT_STRIPE_COUNT} stripes, and
+ * keeps all sessions until they are removed explicitly.
+ *
+ * @see SessionRegistry#builder(ModelEngine)
+ * @author b_muth
+ *
+ * @param <K> the type of key
+ */
+public class SessionRegistryBuilder<K> {
+  public static final int DEFAULT_STRIPE_COUNT = 64;
+  private static final int MAX_STRIPE_COUNT = 1 << 16;
+
+  private final ModelEngine modelEngine;
+  private int stripeCount;
+  private int maxSize;
+  private long expireAfterIdleNanos;
+  private SessionStore<K> sessionStore;
+  private LongSupplier nanoTime;
+
+  SessionRegistryBuilder(ModelEngine modelEngine) {
+    this.modelEngine = Objects.requireNonNull(modelEngine);
+    this.stripeCount = DEFAULT_STRIPE_COUNT;
+    this.maxSize = Integer.MAX_VALUE;
+    this.nanoTime = System::nanoTime;
+  }
+
+  /**
+   * Defines the number of stripes, i.e. of locks. Sessions of different stripes
+   * are dispatched in parallel, sessions of the same stripe one at a time. The
+   * number is rounded up to the next power of two.
+   *
+   * @param stripeCount the number of stripes
+   * @return this builder
+   */
+  public SessionRegistryBuilder<K> stripes(int stripeCount) {
+    if (stripeCount < 1 || stripeCount > MAX_STRIPE_COUNT) {
+      throw new IllegalArgumentException("stripeCount must be between 1 and " + MAX_STRIPE_COUNT + ", but is " + stripeCount);
+    }
+    this.stripeCount = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+    return this;
+  }
+
+  /**
+   * Limits the number of sessions in the registry. When a stripe exceeds its
+   * share of the limit, its least recently used session is evicted. So the limit
+   * is approximate: each stripe holds at least one session.
+   *
+   * @param maxSize the maximum number of sessions
+   * @return this builder
+   */
+  public SessionRegistryBuilder<K> maxSize(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive, but is " + maxSize);
+    }
+    this.maxSize = maxSize;
+    return this;
+  }
+
+  /**
+   * Evicts sessions that haven't been accessed for the specified duration. Idle
+   * sessions of a stripe are evicted when the stripe is accessed, or when
+   * {@link SessionRegistry#evictIdleSessions()} is called.
+   *
+   * @param duration the maximum idle time
+   * @param unit     the unit of the duration
+   * @return this builder
+   */
+  public SessionRegistryBuilder<K> expireAfterIdle(long duration, TimeUnit unit) {
+    if (duration < 1) {
+      throw new IllegalArgumentException("duration must be positive, but is " + duration);
+    }
+    this.expireAfterIdleNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  /**
+   * Passivates evicted sessions to the specified store, and reactivates them
+   * from it. Without a store, evicted sessions are discarded, and a new session
+   * is created when the next message for the key arrives.
+   *
+   * @param <K1>         the type of key
+   * @param sessionStore the store
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public <K1 extends K> SessionRegistryBuilder<K1> passivateTo(SessionStore<K1> sessionStore) {
+    SessionRegistryBuilder<K1> builder = (SessionRegistryBuilder<K1>) this;
+    builder.sessionStore = Objects.requireNonNull(sessionStore);
+    return builder;
+  }
+
+  SessionRegistryBuilder<K> nanoTime(LongSupplier nanoTime) {
+    this.nanoTime = Objects.requireNonNull(nanoTime);
+    return this;
+  }
+
+  /**
+   * Builds the registry.
+   *
+   * @param <K1> the type of key
+   * @return the registry
+   */
+  @SuppressWarnings("unchecked")
+  public <K1 extends K> SessionRegistry<K1> build() {
+    int maxSizePerStripe = Math.max(1, (int) Math.min(Integer.MAX_VALUE, ((long) maxSize + stripeCount - 1) / stripeCount));
+    return new SessionRegistry<>(modelEngine, stripeCount, maxSizePerStripe, expireAfterIdleNanos,
+      (SessionStore<K1>) sessionStore, nanoTime);
+  }
+}
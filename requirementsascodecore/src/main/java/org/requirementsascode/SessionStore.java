@@ -0,0 +1,48 @@
+package org.requirementsascode;
+
+import java.util.OptionalInt;
+
+/**
+ * A store for the sessions that a session registry evicts. The registry
+ * passivates an evicted session by saving its latest step id in the store, and
+ * reactivates it when the next message for its key arrives.
+ *
+ * <p>
+ * Step ids are defined by the compiled model, so only reactivate sessions for
+ * the same model they have been passivated for. The store may be called by
+ * several threads concurrently, but never concurrently for the same key.
+ *
+ * @see SessionRegistryBuilder#passivateTo(SessionStore)
+ * @see CompiledModel#getStep(int)
+ * @author b_muth
+ *
+ * @param <K> the type of key
+ */
+public interface SessionStore<K> {
+  /**
+   * Saves the state of an evicted session.
+   *
+   * @param key          the key of the session
+   * @param latestStepId the id of the latest step run in the session, or
+   *                     {@link Session#NO_LATEST_STEP}
+   */
+  void passivate(K key, int latestStepId);
+
+  /**
+   * Removes the saved state of a session from the store, and returns it.
+   *
+   * @param key the key of the session
+   * @return the latest step id of the session, or an empty optional if no state
+   *         has been saved for the key
+   */
+  OptionalInt reactivate(K key);
+
+  /**
+   * Removes the saved state of a session from the store, because the session
+   * has been removed from the registry. Does nothing if no state has been saved
+   * for the key.
+   *
+   * @param key the key of the session
+   */
+  void remove(K key);
+}
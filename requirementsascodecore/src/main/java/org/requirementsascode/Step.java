@@ -1,6 +1,7 @@
 package org.requirementsascode;
 
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -23,8 +24,11 @@ public abstract class Step extends ModelElement{
 	private Condition condition;
 	private Class<?> messageClass;
 	private SystemReaction<?> systemReaction;
-	private AbstractActor publishTo;
+	private AbstractActor[] publishTo;
+	private Object timeoutMessage;
+	private long timeoutNanos;
   private Condition aCase;
+  private int id = -1;
 
 	/**
 	 * Creates a step with the specified name that belongs to the specified use
@@ -40,7 +44,26 @@ public abstract class Step extends ModelElement{
 		this.condition = condition;
 	}
 
-	public abstract Predicate<ModelRunner> getPredicate();
+	/**
+	 * Returns a predicate that checks whether this step can react, given the state
+	 * of the specified runner. The actor and message class of the step are not
+	 * checked by the predicate.
+	 *
+	 * @return the predicate
+	 */
+	public Predicate<ModelRunner> getPredicate() {
+		return this::isPredicateTrue;
+	}
+
+	/**
+	 * Evaluates the predicate of this step for the specified runner, without
+	 * creating any objects. The model runner calls this method for each candidate
+	 * step of a message it dispatches.
+	 *
+	 * @param modelRunner the runner
+	 * @return true if the predicate is true, false otherwise
+	 */
+	abstract boolean isPredicateTrue(ModelRunner modelRunner);
 
 	public UseCase getUseCase() {
 		return useCase;
@@ -50,10 +73,8 @@ public abstract class Step extends ModelElement{
 		return Optional.ofNullable(condition);
 	}
 	
-  protected Predicate<ModelRunner> isConditionTrue() {
-    Condition conditionOrElseTrue = getCondition().orElse(() -> true);
-    Predicate<ModelRunner> flowCondition = toPredicate(conditionOrElseTrue);
-    return flowCondition;
+  boolean isConditionTrue(ModelRunner modelRunner) {
+    return condition == null || modelRunner.evaluate(condition);
   }
 
 	public AbstractActor[] getActors() {
@@ -70,6 +91,7 @@ public abstract class Step extends ModelElement{
 
 	public void setMessageClass(Class<?> eventClass) {
 		this.messageClass = eventClass;
+		getModel().clearCompiledModel();
 	}
 
 	public SystemReaction<?> getSystemReaction() {
@@ -92,16 +114,70 @@ public abstract class Step extends ModelElement{
 		this.systemReaction = new SystemReaction<>(systemReaction);
 	}
 
-	protected static Predicate<ModelRunner> toPredicate(Condition condition) {
-		return modelRunner -> condition.evaluate();
+	/**
+	 * Returns the first recipient of the messages published by this step.
+	 *
+	 * @return the recipient, or an empty optional if the step publishes to its own
+	 *         runner
+	 * @deprecated A step may publish to several recipients, and this method only
+	 *             returns the first of them. Use {@link #getPublishToAll()}
+	 *             instead.
+	 */
+	@Deprecated
+	public Optional<AbstractActor> getPublishTo() {
+		return publishTo == null ? Optional.empty() : Optional.of(publishTo[0]);
+	}
+
+	/**
+	 * Returns all recipients of the messages published by this step, in the order
+	 * they have been specified.
+	 *
+	 * @return the recipients, or an empty array if the step publishes to its own
+	 *         runner
+	 */
+	public AbstractActor[] getPublishToAll() {
+		return publishTo == null ? new AbstractActor[0] : publishTo.clone();
 	}
 
-	public Optional<AbstractActor> getPublishTo() {
-		return Optional.ofNullable(publishTo);
+	AbstractActor[] getPublishToOrNull() {
+		return publishTo;
 	}
 
 	public void setPublishTo(AbstractActor recipient) {
-		this.publishTo = recipient;
+		this.publishTo = recipient == null ? null : new AbstractActor[] { recipient };
+	}
+
+	public void setPublishTo(AbstractActor... recipients) {
+		this.publishTo = recipients.length == 0 ? null : recipients.clone();
+	}
+
+	/**
+	 * Returns the message that is posted to the runner when no other step has
+	 * been run for the timeout after this step.
+	 *
+	 * @return the timeout message, or an empty optional if the step has no
+	 *         timeout
+	 */
+	public Optional<Object> getTimeoutMessage() {
+		return Optional.ofNullable(timeoutMessage);
+	}
+
+	Object getTimeoutMessageOrNull() {
+		return timeoutMessage;
+	}
+
+	/**
+	 * Returns the timeout after this step.
+	 *
+	 * @return the timeout in nanoseconds, or 0 if the step has no timeout
+	 */
+	public long getTimeoutNanos() {
+		return timeoutNanos;
+	}
+
+	public void setTimeout(long timeout, TimeUnit unit, Object timeoutMessage) {
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.timeoutMessage = timeoutMessage;
 	}
 
   public void setCase(Condition aCase) {
@@ -111,4 +187,16 @@ public abstract class Step extends ModelElement{
   public Optional<Condition> getCase(){
     return Optional.ofNullable(aCase);
   }
+
+  boolean isCaseTrue(ModelRunner modelRunner) {
+    return aCase == null || modelRunner.evaluate(aCase);
+  }
+
+  int getId() {
+    return id;
+  }
+
+  void setId(int id) {
+    this.id = id;
+  }
 }
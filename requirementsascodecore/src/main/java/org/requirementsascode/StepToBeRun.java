@@ -46,6 +46,10 @@ public class StepToBeRun{
 	  return Optional.ofNullable(messageToBePublished);
 	}
 	
+	Object getMessageToBePublishedOrNull() {
+		return messageToBePublished;
+	}
+
 	/**
 	 * Alter the message to be published after the handleWith() method completes.
 	 * IMPORTANT: Call this method after {@link #run()}.
@@ -96,6 +96,7 @@ public class UseCase extends ModelElement{
 	public Flow newFlow(String flowName) {
 		Flow flow = new Flow(flowName, this);
 		saveModelElement(flow, nameToFlowMap);
+		getModel().clearCompiledModel();
 		return flow;
 	}
 
@@ -115,6 +116,7 @@ public class UseCase extends ModelElement{
 		InterruptingFlowStep step = new InterruptingFlowStep(stepName, flow, flowPosition, condition);
 
 		saveModelElement(step, nameToStepMap);
+		getModel().clearCompiledModel();
 
 		return step;
 	}
@@ -140,6 +142,7 @@ public class UseCase extends ModelElement{
 	public InterruptableFlowStep newInterruptableFlowStep(String stepName, Flow flow, Condition optionalCondition) {
 		InterruptableFlowStep step = new InterruptableFlowStep(stepName, flow, optionalCondition);
 		saveModelElement(step, nameToStepMap);
+		getModel().clearCompiledModel();
 
 		return step;
 	}
@@ -155,6 +158,7 @@ public class UseCase extends ModelElement{
 	public FlowlessStep newFlowlessStep(String stepName, Condition optionalCondition) {
 		FlowlessStep step = new FlowlessStep(stepName, this, optionalCondition);
 		saveModelElement(step, nameToStepMap);
+		getModel().clearCompiledModel();
 
 		return step;
 	}
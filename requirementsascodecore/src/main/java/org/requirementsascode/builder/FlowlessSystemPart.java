@@ -141,7 +141,19 @@ public class FlowlessSystemPart<T> {
 	 */
 	public FlowlessToPart to(AbstractActor recipient) {
 		Objects.requireNonNull(recipient);
-		FlowlessToPart flowlessToPart = flowlessToPart(stepSystemPart, recipient, flowlessStepCounter);
+		return to(new AbstractActor[] { recipient });
+	}
+
+	/** Specifies the recipients of the message. Each of them receives the message,
+	 * in the order they are specified, unless the runner delivers messages
+	 * concurrently.
+	 * 
+	 * @param recipients the recipients of this message
+	 * @return the created part
+	 * @see org.requirementsascode.ModelRunner#deliverConcurrently(java.util.concurrent.Executor, org.requirementsascode.DeliveryOrder)
+	 */
+	public FlowlessToPart to(AbstractActor... recipients) {
+		FlowlessToPart flowlessToPart = flowlessToPart(stepSystemPart, recipients, flowlessStepCounter);
 		return flowlessToPart;
 	}
 
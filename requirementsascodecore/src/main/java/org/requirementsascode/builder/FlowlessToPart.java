@@ -17,9 +17,9 @@ public class FlowlessToPart {
 		this.flowlessStepCounter = flowlessStepCounter;
 	}
 	
-	public static FlowlessToPart flowlessToPart(StepSystemPart<?> stepSystemPart, AbstractActor recipient, long flowlessStepCounter) {
+	public static FlowlessToPart flowlessToPart(StepSystemPart<?> stepSystemPart, AbstractActor[] recipients, long flowlessStepCounter) {
 		UseCasePart useCasePart = stepSystemPart.getStepPart().getUseCasePart();
-		stepSystemPart.to(recipient);
+		stepSystemPart.to(recipients);
 		return new FlowlessToPart(useCasePart, flowlessStepCounter);
 	}
 	
@@ -105,9 +105,14 @@ public class ModelBuilder {
 	  resolveFlowPositions();
 	  resolveContinuesAfter();
 	  resolveContinuesAt();
+	  compileModel();
 		return getModel();
 	}
 
+  private void compileModel() {
+    model.getCompiledModel();
+  }
+
   private void resolveFlowPositions() {
     model.getUseCases().stream()
 	    .flatMap(uc -> uc.getFlows().stream())
@@ -4,6 +4,7 @@ import static org.requirementsascode.builder.StepPart.interruptableFlowStepPart;
 import static org.requirementsascode.builder.StepToPart.stepToPart;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -111,7 +112,31 @@ public class StepSystemPart<T> {
 		((FlowStep) step).setReactWhile(reactWhileCondition);
 		return this;
 	}
-	
+
+	/**
+	 * Posts the specified message to the runner when no other step has been run
+	 * for the specified timeout after this step. Another step of the model can
+	 * then react to the message, e.g. in a flow that starts after this step.
+	 *
+	 * <p>
+	 * The runner must have a scheduler, see
+	 * {@link org.requirementsascode.ModelRunner#scheduleWith(org.requirementsascode.scheduler.Scheduler)}.
+	 * If the runner is owned by an actor, the actor must be in mailbox mode.
+	 *
+	 * @param timeout        the timeout, not negative
+	 * @param unit           the unit of the timeout
+	 * @param timeoutMessage the message posted when the timeout expires
+	 * @return the system part
+	 */
+	public StepSystemPart<T> timeoutAfter(long timeout, TimeUnit unit, Object timeoutMessage) {
+		Objects.requireNonNull(unit);
+		Objects.requireNonNull(timeoutMessage);
+		if (timeout < 0) {
+			throw new IllegalArgumentException("timeout must not be negative, but is " + timeout);
+		}
+		step.setTimeout(timeout, unit, timeoutMessage);
+		return this;
+	}
 
 	/** Specifies the recipient of the message.
 	 * 
@@ -120,10 +145,38 @@ public class StepSystemPart<T> {
 	 */
 	public StepToPart<T> to(AbstractActor recipient) {
 		Objects.requireNonNull(recipient);
-		StepToPart<T> stepToPart = stepToPart(this, recipient);
+		return to(new AbstractActor[] { recipient });
+	}
+
+	/** Specifies the recipients of the message. Each of them receives the message,
+	 * in the order they are specified, unless the runner delivers messages
+	 * concurrently.
+	 * 
+	 * @param recipients the recipients of this message
+	 * @return the created part
+	 * @see org.requirementsascode.ModelRunner#deliverConcurrently(java.util.concurrent.Executor, org.requirementsascode.DeliveryOrder)
+	 */
+	public StepToPart<T> to(AbstractActor... recipients) {
+		StepToPart<T> stepToPart = stepToPart(this, recipients(recipients));
 		return stepToPart;
 	}
 
+	static AbstractActor[] recipients(AbstractActor[] recipients) {
+		Objects.requireNonNull(recipients);
+		if (recipients.length == 0) {
+			throw new IllegalArgumentException("At least one recipient must be specified");
+		}
+		for (int i = 0; i < recipients.length; i++) {
+			Objects.requireNonNull(recipients[i]);
+			for (int j = 0; j < i; j++) {
+				if (recipients[j] == recipients[i]) {
+					throw new IllegalArgumentException("Recipient " + recipients[i] + " is specified more than once");
+				}
+			}
+		}
+		return recipients;
+	}
+
 	StepPart getStepPart() {
 		return stepPart;
 	}
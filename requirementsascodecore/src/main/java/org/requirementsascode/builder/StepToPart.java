@@ -13,14 +13,14 @@ import org.requirementsascode.exception.ElementAlreadyInModel;
 public class StepToPart<T> {
 	private StepPart stepPart;
 
-	private StepToPart(StepPart stepPart, AbstractActor recipient) {
+	private StepToPart(StepPart stepPart) {
 		this.stepPart = Objects.requireNonNull(stepPart);
 	}
 	
-	public static <T> StepToPart<T> stepToPart(StepSystemPart<T> stepSystemPart, AbstractActor recipient) {
+	public static <T> StepToPart<T> stepToPart(StepSystemPart<T> stepSystemPart, AbstractActor[] recipients) {
 		StepPart stepPart = stepSystemPart.getStepPart();
-		stepPart.getStep().setPublishTo(recipient);
-		return new StepToPart<>(stepPart, recipient);
+		stepPart.getStep().setPublishTo(recipients);
+		return new StepToPart<>(stepPart);
 	}
 	
 	/**
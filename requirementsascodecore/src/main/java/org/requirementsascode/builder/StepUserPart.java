@@ -70,6 +70,11 @@ public class StepUserPart<T> {
 	 * message passed in, when you call {@link ModelRunner#reactTo(Object)}. After
 	 * executing the system reaction, the runner will publish the returned event.
 	 *
+	 * <p>
+	 * If the system reaction returns a {@link java.util.concurrent.CompletionStage},
+	 * the runner publishes its result when it completes, without blocking.
+	 * Meanwhile, the runner queues the messages it receives.
+	 *
 	 * @param systemReaction the specified system reaction, that returns an event to
 	 *                       be published.
 	 * @return the created system part of this step
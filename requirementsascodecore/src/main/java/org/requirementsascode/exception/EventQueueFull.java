@@ -0,0 +1,16 @@
+package org.requirementsascode.exception;
+
+/**
+ * Exception that is thrown when an event is put into a full event queue, and
+ * the queue's backpressure policy is to reject the event.
+ * 
+ * @author b_muth
+ *
+ */
+public class EventQueueFull extends RuntimeException {
+	private static final long serialVersionUID = -3017846244950268455L;
+
+	public EventQueueFull(int capacity) {
+		super("Event queue is full, its capacity is " + capacity + " events.");
+	}
+}
@@ -3,8 +3,9 @@ package org.requirementsascode.exception;
 import org.requirementsascode.Step;
 
 /**
- * Exception that is thrown when internally, a StackOverflowException occurs.
- * The likely cause is that a condition is always true.
+ * Exception that is thrown when the model runner runs more steps for a single
+ * message than its maximum step count allows. The likely cause is that a
+ * condition is always true.
  * 
  * @author b_muth
  *
@@ -8,7 +8,7 @@ public class NestedCallOfReactTo extends RuntimeException{
   }
 
   private static String exceptionMessage() {
-    String message = "Don't call modelRunner.reactTo(x) from a message handler (i.e. from a method specified in system(..)). Use systemPublish() and return x from the specified message.";
+    String message = "Don't call modelRunner.reactTo(x) from a message handler (i.e. from a method specified in system(..)). Use systemPublish() and return x from the specified message, or call modelRunner.deferNestedReactTo() before running the model.";
     return message;
   }
 }
\ No newline at end of file
@@ -44,6 +44,15 @@ public class AfterSingleStep implements Predicate<ModelRunner>{
     return stepName;
   }
 
+  /**
+   * Returns the step, once it has been resolved.
+   * 
+   * @return the resolved step, or null if it hasn't been resolved (yet)
+   */
+  public final FlowStep getStep() {
+    return step;
+  }
+
   @Override
   public boolean test(ModelRunner modelRunner) {
     Step latestStepRun = modelRunner.getLatestStep().orElse(null);
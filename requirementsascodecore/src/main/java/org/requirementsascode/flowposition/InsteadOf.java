@@ -36,4 +36,14 @@ public class InsteadOf extends FlowPosition{
   public final String getStepName() {
     return stepName;
   }
+
+  /**
+   * Returns the step this position is an alternative to, once it has been
+   * resolved.
+   * 
+   * @return the resolved step, or null if it hasn't been resolved (yet)
+   */
+  public final FlowStep getStep() {
+    return step;
+  }
 }
@@ -0,0 +1,30 @@
+package org.requirementsascode.queue;
+
+import org.requirementsascode.exception.EventQueueFull;
+
+/**
+ * Defines what an {@link EventQueue} does when an event is put into it, but the
+ * queue is full.
+ * 
+ * @author b_muth
+ *
+ */
+public enum BackpressurePolicy {
+	/**
+	 * The putting thread waits until there is space in the queue.
+	 */
+	BLOCK,
+	/**
+	 * The oldest event in the queue is dropped, to make space for the new event.
+	 */
+	DROP_OLDEST,
+	/**
+	 * The new event is dropped.
+	 */
+	DROP_NEWEST,
+	/**
+	 * An {@link EventQueueFull} exception is thrown, and the new event is
+	 * dropped.
+	 */
+	REJECT
+}
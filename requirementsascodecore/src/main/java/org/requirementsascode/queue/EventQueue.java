@@ -1,107 +1,389 @@
 package org.requirementsascode.queue;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import org.requirementsascode.exception.EventQueueFull;
+
 /**
- * A simple event queue that forwards events to an event consumer, one at a
- * time.
- * 
- * To do that, it internally runs its own event producer thread.
- * 
+ * An event queue that forwards events to an event consumer.
+ *
+ * To do that, it internally runs one or more consumers, each on its own thread.
+ * Each consumer takes a batch of events out of the queue at a time, and
+ * forwards them. The queue may be bounded, see {@link #builder()}.
+ *
  * @author b_muth
  *
  */
-public class EventQueue {
+public class EventQueue implements ForwardingEventQueue {
+	// How often a producer that waits for a full queue checks whether it has been stopped
+	private static final long WAIT_MILLIS = 10;
+
+	private static final int RUNNING = 0;
+	private static final int DRAINING = 1;
+	private static final int STOPPED = 2;
+
 	private final BlockingDeque<Object> events;
-	private final EventProducer eventProducer;
-	private final Thread eventProducerThread;
-	private final Consumer<Object> eventConsumer;
+	private final int capacity;
+	private final BackpressurePolicy backpressurePolicy;
+	private final int maxBatchSize;
+	private final Consumer<List<Object>> batchConsumer;
+	private final Set<EventConsumer> consumers;
+	private final CountDownLatch consumersStopped;
+	private final AtomicLong droppedEventCount;
+	private volatile int state;
 
 	/**
-	 * Create an event queue whose events will be consumed by the specified
-	 * consumer.
-	 * 
+	 * Create an unbounded event queue whose events will be consumed by the
+	 * specified consumer, one at a time.
+	 *
 	 * @param eventConsumer the target of events
 	 */
 	public EventQueue(Consumer<Object> eventConsumer) {
-		this.events = new LinkedBlockingDeque<Object>();
-		this.eventProducer = new EventProducer();
-		this.eventProducerThread = new Thread(eventProducer);
-		this.eventConsumer = eventConsumer;
-		eventProducerThread.start();
+		this(new EventQueueBuilder(), eachEventTo(eventConsumer));
+	}
+
+	EventQueue(EventQueueBuilder builder, Consumer<List<Object>> batchConsumer) {
+		this.capacity = builder.getCapacity();
+		this.events = new LinkedBlockingDeque<>(capacity);
+		this.backpressurePolicy = builder.getBackpressurePolicy();
+		this.maxBatchSize = builder.getMaxBatchSize();
+		this.batchConsumer = batchConsumer;
+		this.consumers = ConcurrentHashMap.newKeySet();
+		this.consumersStopped = new CountDownLatch(builder.getConsumerCount());
+		this.droppedEventCount = new AtomicLong();
+		this.state = RUNNING;
+		startConsumers(builder);
 	}
 
 	/**
-	 * Puts an event in the queue, that will be provided to the consumer
-	 * (if the event queue hasn't been stopped).
-	 * 
+	 * Returns a builder to configure the capacity, backpressure policy, batch
+	 * size and consumer threads of a new event queue.
+	 *
+	 * @return the builder
+	 */
+	public static EventQueueBuilder builder() {
+		return new EventQueueBuilder();
+	}
+
+	static Consumer<List<Object>> eachEventTo(Consumer<Object> eventConsumer) {
+		Objects.requireNonNull(eventConsumer);
+		return batch -> batch.forEach(eventConsumer);
+	}
+
+	private void startConsumers(EventQueueBuilder builder) {
+		for (int i = 0; i < builder.getConsumerCount(); i++) {
+			EventConsumer eventConsumer = new EventConsumer();
+			if (builder.getExecutor() != null) {
+				builder.getExecutor().execute(eventConsumer);
+			} else {
+				builder.getThreadFactory().newThread(eventConsumer).start();
+			}
+		}
+	}
+
+	/**
+	 * Puts an event in the queue, that will be provided to the consumer (if the
+	 * event queue hasn't been stopped). If the queue is full, what happens depends
+	 * on the queue's {@link BackpressurePolicy}.
+	 *
+	 * @see #offer(Object)
 	 * @param event the event for the queue
+	 * @throws EventQueueFull if the queue is full and its policy is
+	 *                        {@link BackpressurePolicy#REJECT}
 	 */
+	@Override
 	public void put(Object event) {
+		offer(event);
+	}
+
+	/**
+	 * Same as {@link #put(Object)}, but returns whether the event has been put in
+	 * the queue.
+	 *
+	 * @param event the event for the queue
+	 * @return true if the event has been put in the queue, false if it has been
+	 *         dropped, the queue has been stopped, or the putting thread has been
+	 *         interrupted while waiting
+	 * @throws EventQueueFull if the queue is full and its policy is
+	 *                        {@link BackpressurePolicy#REJECT}
+	 */
+	@Override
+	public boolean offer(Object event) {
+		Objects.requireNonNull(event);
+		if (state != RUNNING) {
+			return false;
+		}
+
+		boolean isPut = events.offerLast(event);
+		if (!isPut) {
+			isPut = putIntoFullQueue(event);
+		}
+		if (isPut && state != RUNNING && removeLastOccurrenceOf(event)) {
+			// The queue has been stopped meanwhile, and won't consume the event
+			isPut = false;
+		}
+		return isPut;
+	}
+
+	// Removes by identity, so that an equal event of another producer stays in the queue
+	private boolean removeLastOccurrenceOf(Object event) {
+		for (Iterator<Object> it = events.descendingIterator(); it.hasNext();) {
+			if (it.next() == event) {
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean putIntoFullQueue(Object event) {
+		switch (backpressurePolicy) {
+		case BLOCK:
+			return putAndWait(event);
+		case DROP_OLDEST:
+			return putAndDropOldest(event);
+		case DROP_NEWEST:
+			droppedEventCount.incrementAndGet();
+			return false;
+		default:
+			droppedEventCount.incrementAndGet();
+			throw new EventQueueFull(capacity);
+		}
+	}
+
+	private boolean putAndWait(Object event) {
 		try {
-			events.put(event);
+			// Wait in short intervals, to notice when the queue is stopped
+			while (state == RUNNING) {
+				if (events.offerLast(event, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+		return false;
+	}
+
+	private boolean putAndDropOldest(Object event) {
+		while (!events.offerLast(event)) {
+			if (events.pollFirst() != null) {
+				droppedEventCount.incrementAndGet();
+			}
+		}
+		return true;
 	}
 
 	/**
-	 * Stop providing events to the consumer.
-	 * 
-	 * Internally, that stops the producer thread.
+	 * Stop providing events to the consumer. Events that a consumer has already
+	 * taken out of the queue are still provided.
+	 *
+	 * Internally, that stops the consumers, and waits for them to finish (unless
+	 * this method is called by a consumer).
+	 *
+	 * @see #stopAndReturnPendingEvents()
 	 */
+	@Override
 	public void stop() {
-		eventProducer.stopProviding();
+		stopAndReturnPendingEvents();
+	}
+
+	/**
+	 * Same as {@link #stop()}, but returns the events that remain in the queue.
+	 *
+	 * @return the events that have not been provided to the consumer, in queue
+	 *         order
+	 */
+	@Override
+	public List<Object> stopAndReturnPendingEvents() {
+		state = STOPPED;
+		wakeUpConsumers();
+		awaitConsumers();
+		List<Object> pendingEvents = new ArrayList<>(events.size());
+		events.drainTo(pendingEvents);
+		return pendingEvents;
+	}
+
+	/**
+	 * Stop accepting new events, provide all events in the queue to the consumer,
+	 * then stop.
+	 *
+	 * Internally, that waits for the consumers to finish (unless this method is
+	 * called by a consumer).
+	 */
+	@Override
+	public void drainAndStop() {
+		if (state == RUNNING) {
+			state = DRAINING;
+		}
+		wakeUpConsumers();
+		awaitConsumers();
+		state = STOPPED;
+	}
+
+	private void wakeUpConsumers() {
+		consumers.forEach(EventConsumer::wakeUp);
+	}
+
+	private void awaitConsumers() {
+		for (EventConsumer consumer : consumers) {
+			if (consumer.thread == Thread.currentThread()) {
+				// A consumer can't wait for itself
+				return;
+			}
+		}
 		try {
-			eventProducerThread.interrupt();
-			eventProducerThread.join();
+			consumersStopped.await();
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
+	/**
+	 * Returns whether this queue has been stopped, or is being stopped.
+	 *
+	 * @return true if stopped, false if not
+	 */
+	@Override
+	public boolean isStopped() {
+		return state != RUNNING;
+	}
+
 	/**
 	 * Returns whether this queue is empty.
-	 * 
+	 *
 	 * @return true if empty, false if not
 	 */
+	@Override
 	public boolean isEmpty() {
 		return events.isEmpty();
 	}
 
+	@Override
 	public int getSize() {
 		return events.size();
 	}
 
-	private class EventProducer implements Runnable {
-		private boolean isRunning = true;
+	/**
+	 * Returns the maximum number of events in this queue.
+	 *
+	 * @return the capacity, or {@link Integer#MAX_VALUE} if the queue is unbounded
+	 */
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of events that have been dropped or rejected, because
+	 * the queue was full.
+	 *
+	 * @return the number of dropped events
+	 */
+	@Override
+	public long getDroppedEventCount() {
+		return droppedEventCount.get();
+	}
+
+	/*
+	 * While the queue is running, a consumer blocks until an event arrives. When
+	 * the queue is stopped, it interrupts the consumers that are blocked. After
+	 * that, consumers don't block anymore.
+	 */
+	private class EventConsumer implements Runnable {
+		private final List<Object> batch = new ArrayList<>(maxBatchSize);
+		private volatile Thread thread;
+
+		// Guarded by this consumer
+		private boolean isBlocked;
+		private boolean isWokenUp;
 
 		@Override
 		public void run() {
-			while (isRunning) {
-				final Object eventObject = take();
-				if (eventObject != null) {
-					consume(eventObject);
+			thread = Thread.currentThread();
+			consumers.add(this);
+			try {
+				while (takeBatch()) {
+					consumeBatch();
 				}
+			} finally {
+				consumers.remove(this);
+				consumersStopped.countDown();
 			}
 		}
 
-		private void consume(Object event) {
-			eventConsumer.accept(event);
+		private boolean takeBatch() {
+			while (state == RUNNING || state == DRAINING && !events.isEmpty()) {
+				Object event;
+				try {
+					event = take();
+				} catch (InterruptedException e) {
+					if (!wasWokenUp()) {
+						// Interrupted by someone else than the queue
+						Thread.currentThread().interrupt();
+						return false;
+					}
+					continue;
+				}
+				if (event != null) {
+					batch.add(event);
+					events.drainTo(batch, maxBatchSize - 1);
+					return true;
+				}
+			}
+			return false;
 		}
 
-		private Object take() {
+		private Object take() throws InterruptedException {
+			synchronized (this) {
+				if (state != RUNNING) {
+					return events.poll();
+				}
+				isBlocked = true;
+			}
 			Object event = null;
 			try {
 				event = events.take();
-			} catch (InterruptedException e) {
-				stopProviding();
+			} finally {
+				synchronized (this) {
+					isBlocked = false;
+					if (event != null && isWokenUp) {
+						// The queue interrupted this consumer after the event arrived
+						Thread.interrupted();
+					}
+				}
 			}
 			return event;
 		}
 
-		private void stopProviding() {
-			isRunning = false;
+		private synchronized void wakeUp() {
+			isWokenUp = true;
+			if (isBlocked) {
+				thread.interrupt();
+			}
+		}
+
+		private synchronized boolean wasWokenUp() {
+			return isWokenUp;
+		}
+
+		private void consumeBatch() {
+			try {
+				batchConsumer.accept(batch);
+			} finally {
+				batch.clear();
+			}
 		}
 	}
 }
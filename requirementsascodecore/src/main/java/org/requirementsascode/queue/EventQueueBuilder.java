@@ -0,0 +1,165 @@
+package org.requirementsascode.queue;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * Builder used to configure and start an {@link EventQueue}.
+ *
+ * <p>
+ * By default, the queue is unbounded, its events are consumed by a single
+ * consumer on its own thread, and each consumer takes up to
+ * {@value #DEFAULT_MAX_BATCH_SIZE} events at a time out of the queue.
+ *
+ * @see EventQueue#builder()
+ * @author b_muth
+ *
+ */
+public class EventQueueBuilder {
+	public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+	private int capacity;
+	private BackpressurePolicy backpressurePolicy;
+	private int maxBatchSize;
+	private int consumerCount;
+	private ThreadFactory threadFactory;
+	private Executor executor;
+
+	EventQueueBuilder() {
+		this.capacity = Integer.MAX_VALUE;
+		this.backpressurePolicy = BackpressurePolicy.BLOCK;
+		this.maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+		this.consumerCount = 1;
+		this.threadFactory = Thread::new;
+	}
+
+	/**
+	 * Limits the number of events in the queue.
+	 *
+	 * @param capacity the maximum number of events
+	 * @return this builder
+	 */
+	public EventQueueBuilder capacity(int capacity) {
+		this.capacity = positive("capacity", capacity);
+		return this;
+	}
+
+	/**
+	 * Defines what happens when an event is put into the full queue. The default
+	 * is {@link BackpressurePolicy#BLOCK}.
+	 *
+	 * @param backpressurePolicy the policy
+	 * @return this builder
+	 */
+	public EventQueueBuilder whenFull(BackpressurePolicy backpressurePolicy) {
+		this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy);
+		return this;
+	}
+
+	/**
+	 * Limits the number of events that a consumer takes out of the queue at a
+	 * time.
+	 *
+	 * @param maxBatchSize the maximum number of events per batch
+	 * @return this builder
+	 */
+	public EventQueueBuilder maxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = positive("maxBatchSize", maxBatchSize);
+		return this;
+	}
+
+	/**
+	 * Defines the number of consumers that take events out of the queue
+	 * concurrently. Note that if there is more than one consumer, events may be
+	 * consumed in a different order than they have been put into the queue.
+	 *
+	 * @param consumerCount the number of consumers
+	 * @return this builder
+	 */
+	public EventQueueBuilder consumers(int consumerCount) {
+		this.consumerCount = positive("consumerCount", consumerCount);
+		return this;
+	}
+
+	/**
+	 * Runs each consumer on a new thread created by the specified factory.
+	 *
+	 * @param threadFactory the factory for the consumer threads
+	 * @return this builder
+	 */
+	public EventQueueBuilder threadFactory(ThreadFactory threadFactory) {
+		this.threadFactory = Objects.requireNonNull(threadFactory);
+		this.executor = null;
+		return this;
+	}
+
+	/**
+	 * Runs each consumer as a task of the specified executor. Each consumer
+	 * occupies a thread of the executor until the queue is stopped.
+	 *
+	 * @param executor the executor for the consumers
+	 * @return this builder
+	 */
+	public EventQueueBuilder executor(Executor executor) {
+		this.executor = Objects.requireNonNull(executor);
+		this.threadFactory = null;
+		return this;
+	}
+
+	/**
+	 * Creates the queue, and starts consuming its events one at a time.
+	 *
+	 * @param eventConsumer the target of events
+	 * @return the started queue
+	 */
+	public EventQueue consumeWith(Consumer<Object> eventConsumer) {
+		return consumeBatchesWith(EventQueue.eachEventTo(eventConsumer));
+	}
+
+	/**
+	 * Creates the queue, and starts consuming its events in batches. The consumer
+	 * must not keep a reference to the list of events, because it is reused for
+	 * the next batch.
+	 *
+	 * @param batchConsumer the target of the batches of events
+	 * @return the started queue
+	 */
+	public EventQueue consumeBatchesWith(Consumer<List<Object>> batchConsumer) {
+		Objects.requireNonNull(batchConsumer);
+		return new EventQueue(this, batchConsumer);
+	}
+
+	static int positive(String name, int value) {
+		if (value < 1) {
+			throw new IllegalArgumentException(name + " must be positive, but is " + value);
+		}
+		return value;
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	BackpressurePolicy getBackpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	int getConsumerCount() {
+		return consumerCount;
+	}
+
+	ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+
+	Executor getExecutor() {
+		return executor;
+	}
+}
@@ -0,0 +1,89 @@
+package org.requirementsascode.queue;
+
+import java.util.List;
+
+import org.requirementsascode.exception.EventQueueFull;
+
+/**
+ * An event queue that forwards events to an event consumer, on threads of its
+ * own. Implemented by {@link EventQueue} and {@link RingBufferEventQueue}, so
+ * one can replace the other.
+ *
+ * @author b_muth
+ *
+ */
+public interface ForwardingEventQueue {
+	/**
+	 * Puts an event in the queue, that will be provided to the consumer (if the
+	 * event queue hasn't been stopped). If the queue is full, what happens depends
+	 * on the queue's {@link BackpressurePolicy}.
+	 *
+	 * @param event the event for the queue
+	 * @throws EventQueueFull if the queue is full and its policy is
+	 *                        {@link BackpressurePolicy#REJECT}
+	 */
+	void put(Object event);
+
+	/**
+	 * Same as {@link #put(Object)}, but returns whether the event has been put in
+	 * the queue.
+	 *
+	 * @param event the event for the queue
+	 * @return true if the event has been put in the queue, false if it has been
+	 *         dropped, or the queue has been stopped
+	 * @throws EventQueueFull if the queue is full and its policy is
+	 *                        {@link BackpressurePolicy#REJECT}
+	 */
+	boolean offer(Object event);
+
+	/**
+	 * Stop providing events to the consumer. Events that a consumer has already
+	 * taken out of the queue are still provided.
+	 */
+	void stop();
+
+	/**
+	 * Same as {@link #stop()}, but returns the events that remain in the queue.
+	 *
+	 * @return the events that have not been provided to the consumer, in queue
+	 *         order
+	 */
+	List<Object> stopAndReturnPendingEvents();
+
+	/**
+	 * Stop accepting new events, provide all events in the queue to the consumer,
+	 * then stop.
+	 */
+	void drainAndStop();
+
+	/**
+	 * Returns whether this queue has been stopped, or is being stopped.
+	 *
+	 * @return true if stopped, false if not
+	 */
+	boolean isStopped();
+
+	/**
+	 * Returns whether this queue is empty.
+	 *
+	 * @return true if empty, false if not
+	 */
+	boolean isEmpty();
+
+	int getSize();
+
+	/**
+	 * Returns the maximum number of events in this queue.
+	 *
+	 * @return the capacity
+	 */
+	int getCapacity();
+
+	/**
+	 * Returns the number of events that have been dropped or rejected, because
+	 * the queue was full.
+	 *
+	 * @return the number of dropped events
+	 */
+	long getDroppedEventCount();
+}
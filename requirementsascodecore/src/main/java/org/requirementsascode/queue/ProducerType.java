@@ -0,0 +1,19 @@
+package org.requirementsascode.queue;
+
+/**
+ * Defines how many threads put events into a {@link RingBufferEventQueue}.
+ * 
+ * @author b_muth
+ *
+ */
+public enum ProducerType {
+	/**
+	 * Only a single thread puts events into the queue. Putting events is
+	 * cheapest, but the queue breaks if several threads put events.
+	 */
+	SINGLE,
+	/**
+	 * Any number of threads may put events into the queue concurrently.
+	 */
+	MULTI
+}
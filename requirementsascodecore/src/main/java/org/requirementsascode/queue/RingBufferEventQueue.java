@@ -0,0 +1,406 @@
+package org.requirementsascode.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.requirementsascode.exception.EventQueueFull;
+
+/**
+ * An event queue that forwards events to an event consumer, like
+ * {@link EventQueue}, but without locks and without allocating per event.
+ *
+ * <p>
+ * The events are kept in a preallocated ring buffer whose size is a power of
+ * two. A single consumer, running on its own thread, takes batches of events
+ * out of the buffer and forwards them in the order they have been put. Either a
+ * single thread or several threads may put events, see
+ * {@link ProducerType}. How the consumer waits for events is defined by the
+ * {@link WaitStrategy}.
+ *
+ * @see #builder()
+ * @author b_muth
+ *
+ */
+public class RingBufferEventQueue implements ForwardingEventQueue {
+	private static final long PARK_NANOS = 1_000;
+	// An idle consumer parks briefly this many times before it parks until woken up
+	private static final int MAX_PARKS_BEFORE_SLEEPING = 100;
+
+	private static final int RUNNING = 0;
+	private static final int DRAINING = 1;
+	private static final int STOPPED = 2;
+
+	private final AtomicReferenceArray<Object> slots;
+	private final int capacity;
+	private final int mask;
+	private final boolean isMultiProducer;
+	private final WaitStrategy waitStrategy;
+	private final BackpressurePolicy backpressurePolicy;
+	private final int maxBatchSize;
+	private final Consumer<List<Object>> batchConsumer;
+	// The sequence of the next event to be put
+	private final AtomicLong tail;
+	// The sequence of the next event to be consumed
+	private final AtomicLong head;
+	// The single producer's latest view of the head
+	private long headCache;
+	private final CountDownLatch consumerStopped;
+	private final AtomicLong droppedEventCount;
+	private volatile Thread consumerThread;
+	// Set by a consumer with the PARK strategy before it parks without timeout
+	private volatile boolean isConsumerSleeping;
+	private volatile int state;
+
+	/**
+	 * Create an event queue with the default capacity, whose events will be
+	 * consumed by the specified consumer, one at a time. Like an {@link EventQueue},
+	 * the queue may be put to by several threads.
+	 *
+	 * @param eventConsumer the target of events
+	 */
+	public RingBufferEventQueue(Consumer<Object> eventConsumer) {
+		this(new RingBufferEventQueueBuilder().producers(ProducerType.MULTI), EventQueue.eachEventTo(eventConsumer));
+	}
+
+	RingBufferEventQueue(RingBufferEventQueueBuilder builder, Consumer<List<Object>> batchConsumer) {
+		this.capacity = builder.getCapacity();
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+		this.isMultiProducer = ProducerType.MULTI.equals(builder.getProducerType());
+		this.waitStrategy = builder.getWaitStrategy();
+		this.backpressurePolicy = builder.getBackpressurePolicy();
+		this.maxBatchSize = builder.getMaxBatchSize();
+		this.batchConsumer = batchConsumer;
+		this.tail = new AtomicLong();
+		this.head = new AtomicLong();
+		this.consumerStopped = new CountDownLatch(1);
+		this.droppedEventCount = new AtomicLong();
+		this.state = RUNNING;
+		startConsumer(builder);
+	}
+
+	/**
+	 * Returns a builder to configure the capacity, producer type, wait strategy,
+	 * backpressure policy, batch size and consumer thread of a new ring buffer
+	 * event queue.
+	 *
+	 * @return the builder
+	 */
+	public static RingBufferEventQueueBuilder builder() {
+		return new RingBufferEventQueueBuilder();
+	}
+
+	private void startConsumer(RingBufferEventQueueBuilder builder) {
+		EventConsumer eventConsumer = new EventConsumer();
+		if (builder.getExecutor() != null) {
+			builder.getExecutor().execute(eventConsumer);
+		} else {
+			builder.getThreadFactory().newThread(eventConsumer).start();
+		}
+	}
+
+	@Override
+	public void put(Object event) {
+		offer(event);
+	}
+
+	@Override
+	public boolean offer(Object event) {
+		Objects.requireNonNull(event);
+		if (state != RUNNING) {
+			return false;
+		}
+
+		long sequence = claim();
+		if (sequence < 0) {
+			sequence = claimInFullQueue();
+			if (sequence < 0) {
+				return false;
+			}
+		}
+		publish(sequence, event);
+		return true;
+	}
+
+	private void publish(long sequence, Object event) {
+		if (WaitStrategy.PARK.equals(waitStrategy)) {
+			// The volatile write can't be reordered with reading the flag, so either the
+			// consumer sees the event before sleeping, or this thread wakes it up
+			slots.set(index(sequence), event);
+			if (isConsumerSleeping) {
+				wakeUpConsumer();
+			}
+		} else {
+			slots.lazySet(index(sequence), event);
+		}
+	}
+
+	private void wakeUpConsumer() {
+		Thread thread = consumerThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private long claim() {
+		return isMultiProducer ? claimByOneOfMultipleProducers() : claimBySingleProducer();
+	}
+
+	private long claimBySingleProducer() {
+		long sequence = tail.get();
+		if (sequence - headCache >= capacity) {
+			headCache = head.get();
+			if (sequence - headCache >= capacity) {
+				return -1;
+			}
+		}
+		tail.lazySet(sequence + 1);
+		return sequence;
+	}
+
+	private long claimByOneOfMultipleProducers() {
+		while (true) {
+			long sequence = tail.get();
+			if (sequence - head.get() >= capacity) {
+				return -1;
+			}
+			if (tail.compareAndSet(sequence, sequence + 1)) {
+				return sequence;
+			}
+		}
+	}
+
+	private long claimInFullQueue() {
+		switch (backpressurePolicy) {
+		case BLOCK:
+			return claimAndWait();
+		case DROP_NEWEST:
+			droppedEventCount.incrementAndGet();
+			return -1;
+		default:
+			droppedEventCount.incrementAndGet();
+			throw new EventQueueFull(capacity);
+		}
+	}
+
+	private long claimAndWait() {
+		long sequence = -1;
+		while (sequence < 0 && state == RUNNING) {
+			waitBriefly();
+			sequence = claim();
+		}
+		return sequence;
+	}
+
+	private void waitBriefly() {
+		switch (waitStrategy) {
+		case BUSY_SPIN:
+			break;
+		case YIELD:
+			Thread.yield();
+			break;
+		default:
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	private int index(long sequence) {
+		return (int) sequence & mask;
+	}
+
+	/**
+	 * Moves published events out of the buffer into the specified list. Must only
+	 * be called by the consumer, or after the consumer has stopped.
+	 */
+	private int drainTo(List<Object> events, int maxEventCount) {
+		long sequence = head.get();
+		int eventCount = 0;
+		while (eventCount < maxEventCount) {
+			int index = index(sequence);
+			Object event = slots.get(index);
+			if (event == null) {
+				// Not put yet, or claimed but not published yet
+				break;
+			}
+			slots.lazySet(index, null);
+			events.add(event);
+			sequence++;
+			eventCount++;
+		}
+		if (eventCount > 0) {
+			head.lazySet(sequence);
+		}
+		return eventCount;
+	}
+
+	/**
+	 * Stop providing events to the consumer. Events that the consumer has already
+	 * taken out of the queue are still provided. Events put concurrently with
+	 * stopping may be neither provided nor returned.
+	 *
+	 * Internally, that stops the consumer, and waits for it to finish (unless this
+	 * method is called by the consumer).
+	 *
+	 * @see #stopAndReturnPendingEvents()
+	 */
+	@Override
+	public void stop() {
+		stopAndReturnPendingEvents();
+	}
+
+	@Override
+	public List<Object> stopAndReturnPendingEvents() {
+		state = STOPPED;
+		wakeUpConsumer();
+		List<Object> pendingEvents = new ArrayList<>(getSize());
+		if (awaitConsumer()) {
+			drainTo(pendingEvents, Integer.MAX_VALUE);
+		}
+		return pendingEvents;
+	}
+
+	/**
+	 * Stop accepting new events, provide all events in the queue to the consumer,
+	 * then stop.
+	 *
+	 * Internally, that waits for the consumer to finish (unless this method is
+	 * called by the consumer).
+	 */
+	@Override
+	public void drainAndStop() {
+		if (state == RUNNING) {
+			state = DRAINING;
+		}
+		wakeUpConsumer();
+		awaitConsumer();
+		state = STOPPED;
+	}
+
+	/**
+	 * Waits for the consumer to finish.
+	 *
+	 * @return true if no other thread takes events out of the buffer anymore
+	 */
+	private boolean awaitConsumer() {
+		if (Thread.currentThread() == consumerThread) {
+			// The consumer can't wait for itself, but it won't take events anymore
+			return true;
+		}
+		try {
+			consumerStopped.await();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Returns whether this queue has been stopped, or is being stopped.
+	 *
+	 * @return true if stopped, false if not
+	 */
+	@Override
+	public boolean isStopped() {
+		return state != RUNNING;
+	}
+
+	/**
+	 * Returns whether this queue is empty.
+	 *
+	 * @return true if empty, false if not
+	 */
+	@Override
+	public boolean isEmpty() {
+		return getSize() == 0;
+	}
+
+	@Override
+	public int getSize() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, capacity));
+	}
+
+	/**
+	 * Returns the maximum number of events in this queue, i.e. the size of the
+	 * ring buffer.
+	 *
+	 * @return the capacity
+	 */
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of events that have been dropped or rejected, because
+	 * the queue was full.
+	 *
+	 * @return the number of dropped events
+	 */
+	@Override
+	public long getDroppedEventCount() {
+		return droppedEventCount.get();
+	}
+
+	private class EventConsumer implements Runnable {
+		private final List<Object> batch = new ArrayList<>(maxBatchSize);
+
+		@Override
+		public void run() {
+			consumerThread = Thread.currentThread();
+			try {
+				while (takeBatch()) {
+					consumeBatch();
+				}
+			} finally {
+				consumerThread = null;
+				consumerStopped.countDown();
+			}
+		}
+
+		private boolean takeBatch() {
+			for (int idleCount = 0;; idleCount++) {
+				int currentState = state;
+				if (currentState == STOPPED) {
+					return false;
+				}
+				if (drainTo(batch, maxBatchSize) > 0) {
+					return true;
+				}
+				if (currentState == DRAINING && isEmpty()) {
+					return false;
+				}
+				if (WaitStrategy.PARK.equals(waitStrategy) && idleCount >= MAX_PARKS_BEFORE_SLEEPING) {
+					sleep();
+				} else {
+					waitBriefly();
+				}
+			}
+		}
+
+		// Parks until a producer or a stopping thread wakes up the consumer
+		private void sleep() {
+			isConsumerSleeping = true;
+			// Check again, as an event may have been put before the flag was visible
+			if (state == RUNNING && slots.get(index(head.get())) == null) {
+				LockSupport.park(this);
+			}
+			isConsumerSleeping = false;
+		}
+
+		private void consumeBatch() {
+			try {
+				batchConsumer.accept(batch);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+}
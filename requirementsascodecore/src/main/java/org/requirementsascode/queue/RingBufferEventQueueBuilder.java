@@ -0,0 +1,189 @@
+package org.requirementsascode.queue;
+
+import static org.requirementsascode.queue.EventQueueBuilder.positive;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * Builder used to configure and start a {@link RingBufferEventQueue}.
+ *
+ * <p>
+ * By default, the queue has a capacity of {@value #DEFAULT_CAPACITY} events, a
+ * single producer, and its consumer parks while the queue is empty, see
+ * {@link WaitStrategy#PARK}.
+ *
+ * @see RingBufferEventQueue#builder()
+ * @author b_muth
+ *
+ */
+public class RingBufferEventQueueBuilder {
+	public static final int DEFAULT_CAPACITY = 1024;
+	static final int MAX_CAPACITY = 1 << 30;
+
+	private int capacity;
+	private ProducerType producerType;
+	private WaitStrategy waitStrategy;
+	private BackpressurePolicy backpressurePolicy;
+	private int maxBatchSize;
+	private ThreadFactory threadFactory;
+	private Executor executor;
+
+	RingBufferEventQueueBuilder() {
+		this.capacity = DEFAULT_CAPACITY;
+		this.producerType = ProducerType.SINGLE;
+		this.waitStrategy = WaitStrategy.PARK;
+		this.backpressurePolicy = BackpressurePolicy.BLOCK;
+		this.maxBatchSize = EventQueueBuilder.DEFAULT_MAX_BATCH_SIZE;
+		this.threadFactory = Thread::new;
+	}
+
+	/**
+	 * Defines the number of events in the ring buffer. The buffer is preallocated,
+	 * and its size is the specified capacity rounded up to the next power of two.
+	 *
+	 * @param capacity the minimum number of events
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder capacity(int capacity) {
+		positive("capacity", capacity);
+		if (capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity must not exceed " + MAX_CAPACITY + ", but is " + capacity);
+		}
+		this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		return this;
+	}
+
+	/**
+	 * Defines whether a single thread or several threads put events into the
+	 * queue.
+	 *
+	 * @param producerType the type of producer
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder producers(ProducerType producerType) {
+		this.producerType = Objects.requireNonNull(producerType);
+		return this;
+	}
+
+	/**
+	 * Defines how the consumer waits for events, and how producers wait for
+	 * space in the queue.
+	 *
+	 * @param waitStrategy the wait strategy
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder waitStrategy(WaitStrategy waitStrategy) {
+		this.waitStrategy = Objects.requireNonNull(waitStrategy);
+		return this;
+	}
+
+	/**
+	 * Defines what happens when an event is put into the full queue. The default
+	 * is {@link BackpressurePolicy#BLOCK}. {@link BackpressurePolicy#DROP_OLDEST}
+	 * is not supported, because only the consumer takes events out of the ring
+	 * buffer.
+	 *
+	 * @param backpressurePolicy the policy
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder whenFull(BackpressurePolicy backpressurePolicy) {
+		Objects.requireNonNull(backpressurePolicy);
+		if (BackpressurePolicy.DROP_OLDEST.equals(backpressurePolicy)) {
+			throw new IllegalArgumentException("A ring buffer event queue can't drop the oldest event");
+		}
+		this.backpressurePolicy = backpressurePolicy;
+		return this;
+	}
+
+	/**
+	 * Limits the number of events that the consumer takes out of the queue at a
+	 * time.
+	 *
+	 * @param maxBatchSize the maximum number of events per batch
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder maxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = positive("maxBatchSize", maxBatchSize);
+		return this;
+	}
+
+	/**
+	 * Runs the consumer on a new thread created by the specified factory.
+	 *
+	 * @param threadFactory the factory for the consumer thread
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder threadFactory(ThreadFactory threadFactory) {
+		this.threadFactory = Objects.requireNonNull(threadFactory);
+		this.executor = null;
+		return this;
+	}
+
+	/**
+	 * Runs the consumer as a task of the specified executor. The consumer occupies
+	 * a thread of the executor until the queue is stopped.
+	 *
+	 * @param executor the executor for the consumer
+	 * @return this builder
+	 */
+	public RingBufferEventQueueBuilder executor(Executor executor) {
+		this.executor = Objects.requireNonNull(executor);
+		this.threadFactory = null;
+		return this;
+	}
+
+	/**
+	 * Creates the queue, and starts consuming its events one at a time.
+	 *
+	 * @param eventConsumer the target of events
+	 * @return the started queue
+	 */
+	public RingBufferEventQueue consumeWith(Consumer<Object> eventConsumer) {
+		return consumeBatchesWith(EventQueue.eachEventTo(eventConsumer));
+	}
+
+	/**
+	 * Creates the queue, and starts consuming its events in batches. The consumer
+	 * must not keep a reference to the list of events, because it is reused for
+	 * the next batch.
+	 *
+	 * @param batchConsumer the target of the batches of events
+	 * @return the started queue
+	 */
+	public RingBufferEventQueue consumeBatchesWith(Consumer<List<Object>> batchConsumer) {
+		Objects.requireNonNull(batchConsumer);
+		return new RingBufferEventQueue(this, batchConsumer);
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	ProducerType getProducerType() {
+		return producerType;
+	}
+
+	WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	BackpressurePolicy getBackpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+
+	Executor getExecutor() {
+		return executor;
+	}
+}
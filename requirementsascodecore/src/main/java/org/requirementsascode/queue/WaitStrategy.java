@@ -0,0 +1,31 @@
+package org.requirementsascode.queue;
+
+/**
+ * Defines how a {@link RingBufferEventQueue} waits: its consumer when the queue
+ * is empty, and a producer when the queue is full and its backpressure policy
+ * is {@link BackpressurePolicy#BLOCK}.
+ * 
+ * <p>
+ * The strategies trade latency for CPU usage: a busy spinning consumer reacts
+ * to a new event fastest, but occupies a CPU core all the time, even while
+ * the queue is idle.
+ * 
+ * @author b_muth
+ *
+ */
+public enum WaitStrategy {
+	/**
+	 * Wait in a busy loop.
+	 */
+	BUSY_SPIN,
+	/**
+	 * Yield the CPU to other threads while waiting.
+	 */
+	YIELD,
+	/**
+	 * Park the waiting thread for a short time, again and again. A consumer that
+	 * has been idle for a while parks until an event is put, or the queue is
+	 * stopped, so an idle queue doesn't use any CPU.
+	 */
+	PARK
+}
@@ -0,0 +1,31 @@
+package org.requirementsascode.scheduler;
+
+/**
+ * A task that has been scheduled to run after a delay, by a {@link Scheduler}.
+ *
+ * @author b_muth
+ *
+ */
+public interface ScheduledTask {
+	/**
+	 * Cancels the task, unless it has already run or been cancelled.
+	 *
+	 * @return true if the task has been cancelled by this call, false otherwise
+	 */
+	boolean cancel();
+
+	/**
+	 * Returns whether the task has been cancelled.
+	 *
+	 * @return true if cancelled, false otherwise
+	 */
+	boolean isCancelled();
+
+	/**
+	 * Returns whether the delay of the task has expired, so it has been run or is
+	 * running.
+	 *
+	 * @return true if expired, false otherwise
+	 */
+	boolean isExpired();
+}
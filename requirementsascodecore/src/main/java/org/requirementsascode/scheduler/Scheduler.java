@@ -0,0 +1,66 @@
+package org.requirementsascode.scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.requirementsascode.AbstractActor;
+import org.requirementsascode.ModelRunner;
+
+/**
+ * A scheduler runs tasks after a delay, e.g. to post a timeout message to a
+ * model runner or actor. The tasks are run by the scheduler, on a thread of its
+ * choice.
+ *
+ * @see TimingWheelScheduler
+ * @author b_muth
+ *
+ */
+public interface Scheduler {
+	/**
+	 * Schedules the specified task to run once, after the specified delay.
+	 *
+	 * @param task  the task to run
+	 * @param delay the delay, not negative
+	 * @param unit  the unit of the delay
+	 * @return the scheduled task, that can be cancelled
+	 * @throws IllegalStateException if the scheduler has been shut down
+	 */
+	ScheduledTask schedule(Runnable task, long delay, TimeUnit unit);
+
+	/**
+	 * Posts the specified message to the actor after the specified delay, by
+	 * calling {@link AbstractActor#reactToAsync(Object)}. If the actor is in
+	 * mailbox mode, it reacts on its executor. Otherwise, it reacts on the
+	 * scheduler's thread.
+	 *
+	 * @param actor   the actor that receives the message
+	 * @param message the message
+	 * @param delay   the delay, not negative
+	 * @param unit    the unit of the delay
+	 * @return the scheduled task, that can be cancelled
+	 */
+	default ScheduledTask postDelayed(AbstractActor actor, Object message, long delay, TimeUnit unit) {
+		Objects.requireNonNull(actor);
+		Objects.requireNonNull(message);
+		return schedule(() -> actor.reactToAsync(message), delay, unit);
+	}
+
+	/**
+	 * Posts the specified message to the model runner after the specified delay,
+	 * by calling {@link ModelRunner#reactTo(Object)} on the scheduler's thread.
+	 * As a model runner is not thread-safe, no other thread must use the runner
+	 * at the same time, e.g. because the scheduler is driven by a
+	 * {@link VirtualClock} on the runner's thread.
+	 *
+	 * @param modelRunner the runner that receives the message
+	 * @param message     the message
+	 * @param delay       the delay, not negative
+	 * @param unit        the unit of the delay
+	 * @return the scheduled task, that can be cancelled
+	 */
+	default ScheduledTask postDelayed(ModelRunner modelRunner, Object message, long delay, TimeUnit unit) {
+		Objects.requireNonNull(modelRunner);
+		Objects.requireNonNull(message);
+		return schedule(() -> modelRunner.reactTo(message), delay, unit);
+	}
+}
@@ -0,0 +1,370 @@
+package org.requirementsascode.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A scheduler backed by a hierarchical timing wheel. Scheduling and cancelling
+ * a task take constant time, independent of the number of scheduled tasks.
+ *
+ * <p>
+ * Time is divided into ticks. The wheel has 6 levels of 64 slots each. A slot
+ * of the lowest level holds the tasks that expire in a single tick, a slot of
+ * the level above holds the tasks of 64 ticks, and so on. When the wheel advances to the
+ * first tick of a slot on a higher level, the tasks of that slot are
+ * redistributed to the levels below.
+ *
+ * <p>
+ * The expired tasks are run one after the other, by the thread that advances
+ * the wheel. That is a thread of the scheduler, or the thread that advances the
+ * virtual clock driving the scheduler. Keep the tasks short, e.g. post a
+ * message to an actor in mailbox mode.
+ *
+ * @see TimingWheelSchedulerBuilder
+ * @author b_muth
+ *
+ */
+public class TimingWheelScheduler implements Scheduler {
+	static final int SLOT_BITS = 6;
+	static final int SLOTS_PER_LEVEL = 1 << SLOT_BITS;
+	static final int LEVELS = 6;
+	private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+	private static final long MAX_TICKS_AHEAD = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	private static final int PENDING = 0;
+	private static final int CANCELLED = 1;
+	private static final int EXPIRED = 2;
+
+	private final long tickNanos;
+	private final LongSupplier nanoTime;
+	private final long startNanos;
+	private final VirtualClock virtualClock;
+	private final Thread thread;
+	private final ReentrantLock lock;
+	private final Timeout[][] slots;
+	private final int[] levelCounts;
+	private long nextTick;
+	private int pendingCount;
+	private volatile boolean isShutdown;
+
+	TimingWheelScheduler(TimingWheelSchedulerBuilder builder) {
+		this.tickNanos = builder.getTickNanos();
+		this.virtualClock = builder.getVirtualClock();
+		this.nanoTime = virtualClock != null ? virtualClock::nanoTime : System::nanoTime;
+		this.startNanos = nanoTime.getAsLong();
+		this.lock = new ReentrantLock();
+		this.slots = new Timeout[LEVELS][SLOTS_PER_LEVEL];
+		for (Timeout[] level : slots) {
+			for (int slot = 0; slot < SLOTS_PER_LEVEL; slot++) {
+				level[slot] = new Timeout();
+			}
+		}
+		this.levelCounts = new int[LEVELS];
+		// Tick 0 ends when the scheduler starts, so it has nothing to run
+		this.nextTick = 1;
+
+		if (virtualClock != null) {
+			this.thread = null;
+			virtualClock.drive(this);
+		} else {
+			this.thread = builder.getThreadFactory().newThread(this::advanceUntilShutdown);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Returns a builder for a scheduler.
+	 *
+	 * @return the builder
+	 */
+	public static TimingWheelSchedulerBuilder builder() {
+		return new TimingWheelSchedulerBuilder();
+	}
+
+	@Override
+	public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+		Objects.requireNonNull(task);
+		Objects.requireNonNull(unit);
+		if (delay < 0) {
+			throw new IllegalArgumentException("delay must not be negative, but is " + delay);
+		}
+
+		Timeout timeout = new Timeout(task, deadlineTick(unit.toNanos(delay)));
+		lock.lock();
+		try {
+			if (isShutdown) {
+				throw new IllegalStateException("Scheduler has been shut down");
+			}
+			add(timeout);
+			pendingCount++;
+		} finally {
+			lock.unlock();
+		}
+		return timeout;
+	}
+
+	private long deadlineTick(long delayNanos) {
+		long deadlineNanos = nanoTime.getAsLong() - startNanos + delayNanos;
+		if (deadlineNanos < 0) {
+			deadlineNanos = Long.MAX_VALUE;
+		}
+		// Round up, so that a task never runs before its delay has expired
+		return deadlineNanos / tickNanos + (deadlineNanos % tickNanos == 0 ? 0 : 1);
+	}
+
+	private void add(Timeout timeout) {
+		long tick = timeout.deadlineTick;
+		long ticksAhead = tick - nextTick;
+		if (ticksAhead < 0) {
+			tick = nextTick;
+			ticksAhead = 0;
+		} else if (ticksAhead > MAX_TICKS_AHEAD) {
+			// Too far ahead: park the timeout in the highest level, it will be
+			// redistributed from there
+			tick = nextTick + MAX_TICKS_AHEAD;
+			ticksAhead = MAX_TICKS_AHEAD;
+		}
+
+		int level = 0;
+		while (ticksAhead >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+		timeout.level = level;
+		timeout.linkBefore(slotOf(level, tick));
+		levelCounts[level]++;
+	}
+
+	private Timeout slotOf(int level, long tick) {
+		return slots[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK];
+	}
+
+	void advanceTo(long now) {
+		long lastTick = Math.floorDiv(now - startNanos, tickNanos);
+		List<Timeout> expiredTimeouts = Collections.emptyList();
+
+		lock.lock();
+		try {
+			while (nextTick <= lastTick) {
+				if (pendingCount == 0) {
+					// Nothing to run, so skip the empty ticks
+					nextTick = lastTick + 1;
+					break;
+				}
+				long tick = nextTick;
+				redistribute(tick);
+				Timeout slot = slotOf(0, tick);
+				if (slot.next != slot) {
+					if (expiredTimeouts.isEmpty()) {
+						expiredTimeouts = new ArrayList<>();
+					}
+					expire(slot, expiredTimeouts);
+				}
+				nextTick = Math.min(nextEventfulTick(tick + 1), lastTick + 1);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		for (Timeout timeout : expiredTimeouts) {
+			timeout.run();
+		}
+	}
+
+	/**
+	 * Returns the first tick, starting with the specified one, on which a task
+	 * may expire or be redistributed. If the lowest levels are empty, the wheel
+	 * can skip ahead to the next redistribution of the lowest non-empty level.
+	 */
+	private long nextEventfulTick(long tick) {
+		int level = 0;
+		while (level < LEVELS - 1 && levelCounts[level] == 0) {
+			level++;
+		}
+		long ticksPerSlot = 1L << (SLOT_BITS * level);
+		return (tick + ticksPerSlot - 1) & -ticksPerSlot;
+	}
+
+	private void redistribute(long tick) {
+		for (int level = 1; level < LEVELS; level++) {
+			if ((tick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+				break;
+			}
+			Timeout slot = slotOf(level, tick);
+			Timeout timeout = slot.next;
+			slot.clear();
+			while (timeout != slot) {
+				Timeout next = timeout.next;
+				levelCounts[level]--;
+				add(timeout);
+				timeout = next;
+			}
+		}
+	}
+
+	private void expire(Timeout slot, List<Timeout> expiredTimeouts) {
+		Timeout timeout = slot.next;
+		slot.clear();
+		while (timeout != slot) {
+			Timeout next = timeout.next;
+			timeout.state = EXPIRED;
+			levelCounts[0]--;
+			timeout.previous = null;
+			timeout.next = null;
+			expiredTimeouts.add(timeout);
+			pendingCount--;
+			timeout = next;
+		}
+	}
+
+	private void advanceUntilShutdown() {
+		while (!isShutdown) {
+			advanceTo(nanoTime.getAsLong());
+			// Only this thread advances the wheel, so it sees the latest nextTick
+			long endOfNextTick = startNanos + nextTick * tickNanos;
+			LockSupport.parkNanos(this, endOfNextTick - nanoTime.getAsLong());
+		}
+	}
+
+	/**
+	 * Returns the number of tasks that have neither expired nor been cancelled.
+	 *
+	 * @return the number of pending tasks
+	 */
+	public int getPendingCount() {
+		lock.lock();
+		try {
+			return pendingCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Shuts down the scheduler. The pending tasks are cancelled, and no more
+	 * tasks are accepted.
+	 *
+	 * @return the tasks that have been cancelled
+	 */
+	public List<Runnable> shutdown() {
+		List<Runnable> cancelledTasks = new ArrayList<>();
+		lock.lock();
+		try {
+			isShutdown = true;
+			for (Timeout[] level : slots) {
+				for (Timeout slot : level) {
+					for (Timeout timeout = slot.next; timeout != slot; timeout = timeout.next) {
+						timeout.state = CANCELLED;
+						cancelledTasks.add(timeout.task);
+					}
+					slot.clear();
+				}
+			}
+			Arrays.fill(levelCounts, 0);
+			pendingCount = 0;
+		} finally {
+			lock.unlock();
+		}
+
+		if (virtualClock != null) {
+			virtualClock.stopDriving(this);
+		} else {
+			LockSupport.unpark(thread);
+		}
+		return cancelledTasks;
+	}
+
+	/**
+	 * Returns whether the scheduler has been shut down.
+	 *
+	 * @return true if shut down, false otherwise
+	 */
+	public boolean isShutdown() {
+		return isShutdown;
+	}
+
+	/**
+	 * A scheduled task, linked into the list of its slot. The head of each list
+	 * is a timeout without a task.
+	 */
+	private class Timeout implements ScheduledTask {
+		private final Runnable task;
+		private final long deadlineTick;
+		private int level;
+		private Timeout previous;
+		private Timeout next;
+		private volatile int state;
+
+		Timeout() {
+			this.task = null;
+			this.deadlineTick = 0;
+			clear();
+		}
+
+		Timeout(Runnable task, long deadlineTick) {
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+		}
+
+		void linkBefore(Timeout slot) {
+			previous = slot.previous;
+			next = slot;
+			slot.previous.next = this;
+			slot.previous = this;
+		}
+
+		void unlink() {
+			previous.next = next;
+			next.previous = previous;
+			previous = null;
+			next = null;
+		}
+
+		void clear() {
+			previous = this;
+			next = this;
+		}
+
+		void run() {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				Thread currentThread = Thread.currentThread();
+				currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, e);
+			}
+		}
+
+		@Override
+		public boolean cancel() {
+			lock.lock();
+			try {
+				if (state != PENDING) {
+					return false;
+				}
+				unlink();
+				levelCounts[level]--;
+				state = CANCELLED;
+				pendingCount--;
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.requirementsascode.scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder used to configure and start a {@link TimingWheelScheduler}.
+ *
+ * <p>
+ * By default, the scheduler uses the system clock with a tick duration of
+ * {@value #DEFAULT_TICK_MILLIS} milliseconds, and advances on a daemon thread
+ * of its own.
+ *
+ * @see TimingWheelScheduler#builder()
+ * @author b_muth
+ *
+ */
+public class TimingWheelSchedulerBuilder {
+	public static final long DEFAULT_TICK_MILLIS = 10;
+
+	private long tickNanos;
+	private ThreadFactory threadFactory;
+	private VirtualClock virtualClock;
+
+	TimingWheelSchedulerBuilder() {
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_MILLIS);
+		this.threadFactory = TimingWheelSchedulerBuilder::daemonThread;
+	}
+
+	/**
+	 * Defines the resolution of the scheduler. A task runs at the end of the tick
+	 * its delay expires in, so up to one tick late, but never early.
+	 *
+	 * @param tickDuration the duration of a tick, positive
+	 * @param unit         the unit of the duration
+	 * @return this builder
+	 */
+	public TimingWheelSchedulerBuilder tickDuration(long tickDuration, TimeUnit unit) {
+		Objects.requireNonNull(unit);
+		long tickNanos = unit.toNanos(tickDuration);
+		if (tickNanos < 1) {
+			throw new IllegalArgumentException("tickDuration must be positive, but is " + tickDuration + " " + unit);
+		}
+		this.tickNanos = tickNanos;
+		return this;
+	}
+
+	/**
+	 * Advances the scheduler on a new thread created by the specified factory.
+	 *
+	 * @param threadFactory the factory for the scheduler's thread
+	 * @return this builder
+	 */
+	public TimingWheelSchedulerBuilder threadFactory(ThreadFactory threadFactory) {
+		this.threadFactory = Objects.requireNonNull(threadFactory);
+		this.virtualClock = null;
+		return this;
+	}
+
+	/**
+	 * Lets the specified virtual clock drive the scheduler, instead of the system
+	 * clock. The scheduler has no thread of its own then, it only advances when
+	 * the clock does.
+	 *
+	 * @param virtualClock the clock
+	 * @return this builder
+	 */
+	public TimingWheelSchedulerBuilder virtualClock(VirtualClock virtualClock) {
+		this.virtualClock = Objects.requireNonNull(virtualClock);
+		this.threadFactory = null;
+		return this;
+	}
+
+	/**
+	 * Creates the scheduler, and starts advancing it.
+	 *
+	 * @return the started scheduler
+	 */
+	public TimingWheelScheduler start() {
+		return new TimingWheelScheduler(this);
+	}
+
+	private static Thread daemonThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, "TimingWheelScheduler");
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	long getTickNanos() {
+		return tickNanos;
+	}
+
+	ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+
+	VirtualClock getVirtualClock() {
+		return virtualClock;
+	}
+}
@@ -0,0 +1,68 @@
+package org.requirementsascode.scheduler;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that only advances when told to, for deterministic and fast tests of
+ * timeouts. The schedulers driven by the clock run their expired tasks on the
+ * thread that advances the clock, before {@link #advance(long, TimeUnit)}
+ * returns.
+ *
+ * @see TimingWheelSchedulerBuilder#virtualClock(VirtualClock)
+ * @author b_muth
+ *
+ */
+public class VirtualClock {
+	private final List<TimingWheelScheduler> schedulers;
+	private volatile long nanoTime;
+
+	/**
+	 * Creates a clock whose time is 0.
+	 */
+	public VirtualClock() {
+		this.schedulers = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Returns the current time of the clock.
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	public long nanoTime() {
+		return nanoTime;
+	}
+
+	/**
+	 * Advances the clock by the specified duration, and runs the tasks whose
+	 * delays have expired meanwhile. Each scheduler runs its tasks in the order of
+	 * their deadlines.
+	 *
+	 * @param duration the duration, not negative
+	 * @param unit     the unit of the duration
+	 */
+	public void advance(long duration, TimeUnit unit) {
+		Objects.requireNonNull(unit);
+		if (duration < 0) {
+			throw new IllegalArgumentException("duration must not be negative, but is " + duration);
+		}
+		long now;
+		synchronized (this) {
+			now = nanoTime + unit.toNanos(duration);
+			nanoTime = now;
+		}
+		for (TimingWheelScheduler scheduler : schedulers) {
+			scheduler.advanceTo(now);
+		}
+	}
+
+	void drive(TimingWheelScheduler scheduler) {
+		schedulers.add(scheduler);
+	}
+
+	void stopDriving(TimingWheelScheduler scheduler) {
+		schedulers.remove(scheduler);
+	}
+}
@@ -0,0 +1,206 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+public class ActorMailboxTest extends AbstractTestCase {
+	private ExecutorService executor;
+	private List<Object> receivedMessages;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.executor = Executors.newFixedThreadPool(4);
+		this.receivedMessages = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void reactToAsyncWithoutMailboxReactsImmediately() {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString())
+			.build());
+
+		CompletableFuture<Optional<String>> futureEvent = actor.reactToAsync(entersText());
+
+		assertFalse(actor.hasMailbox());
+		assertTrue(futureEvent.isDone());
+		assertEquals(TEXT, futureEvent.join().get());
+	}
+
+	@Test
+	public void reactToAsyncInMailboxModeReactsOnExecutor() throws Exception {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersText.class).systemPublish(text -> Thread.currentThread().getName())
+			.build());
+		actor.useMailbox(executor);
+
+		CompletableFuture<Optional<String>> futureEvent = actor.reactToAsync(entersText());
+
+		String threadName = futureEvent.get(5, TimeUnit.SECONDS).get();
+		assertTrue(actor.hasMailbox());
+		assertTrue(threadName.startsWith("pool-"));
+	}
+
+	@Test
+	public void reactToInMailboxModeWaitsForPublishedEvent() {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString())
+			.build());
+		actor.useMailbox(executor);
+
+		Optional<String> publishedEvent = actor.reactTo(entersText());
+
+		assertEquals(TEXT, publishedEvent.get());
+	}
+
+	@Test
+	public void reactsToMessagesOfMailboxInOrder() throws Exception {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersNumber.class).system(number -> receivedMessages.add(number.value()))
+			.build());
+		actor.useMailbox(executor);
+
+		CompletableFuture<Optional<Object>> lastFutureEvent = null;
+		for (int i = 0; i < 1000; i++) {
+			lastFutureEvent = actor.reactToAsync(new EntersNumber(i));
+		}
+		lastFutureEvent.get(5, TimeUnit.SECONDS);
+
+		assertEquals(1000, receivedMessages.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, receivedMessages.get(i));
+		}
+	}
+
+	@Test
+	public void publishingToActorInMailboxModeDoesNotWait() throws Exception {
+		CountDownLatch recipientReleased = new CountDownLatch(1);
+		TestActor recipient = new TestActor(Model.builder()
+			.on(String.class).system(text -> {
+				await(recipientReleased);
+				receivedMessages.add(text);
+			})
+			.build());
+		recipient.useMailbox(executor);
+		TestActor publisher = new TestActor(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(recipient)
+			.build());
+		publisher.useMailbox(executor);
+
+		publisher.reactToAsync(entersText()).get(5, TimeUnit.SECONDS);
+		assertTrue(receivedMessages.isEmpty());
+
+		recipientReleased.countDown();
+		recipient.reactToAsync(entersNumber()).get(5, TimeUnit.SECONDS);
+		assertEquals(Collections.singletonList(TEXT), receivedMessages);
+	}
+
+	@Test
+	public void actorsInMailboxModeReactInParallel() throws Exception {
+		CyclicBarrier bothActorsReacting = new CyclicBarrier(2);
+		Model model = Model.builder()
+			.on(EntersText.class).system(text -> await(bothActorsReacting))
+			.build();
+		TestActor actor1 = new TestActor(model);
+		TestActor actor2 = new TestActor(model);
+		actor1.useMailbox(executor);
+		actor2.useMailbox(executor);
+
+		CompletableFuture<Optional<Object>> futureEvent1 = actor1.reactToAsync(entersText());
+		CompletableFuture<Optional<Object>> futureEvent2 = actor2.reactToAsync(entersText());
+		futureEvent1.get(10, TimeUnit.SECONDS);
+		futureEvent2.get(10, TimeUnit.SECONDS);
+
+		assertFalse(bothActorsReacting.isBroken());
+	}
+
+	@Test
+	public void reactToAsyncCompletesExceptionally() throws Exception {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersText.class).system(displaysEnteredText())
+			.on(EntersText.class).system(displaysEnteredText())
+			.build());
+		actor.useMailbox(executor);
+
+		try {
+			actor.reactToAsync(entersText()).get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof MoreThanOneStepCanReact);
+			return;
+		}
+		throw new AssertionError("Expected exception");
+	}
+
+	@Test(expected = MoreThanOneStepCanReact.class)
+	public void reactToInMailboxModeRethrowsException() {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersText.class).system(displaysEnteredText())
+			.on(EntersText.class).system(displaysEnteredText())
+			.build());
+		actor.useMailbox(executor);
+
+		actor.reactTo(entersText());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void doesNotSwitchToMailboxModeTwice() {
+		TestActor actor = new TestActor(Model.builder()
+			.on(EntersText.class).system(displaysEnteredText())
+			.build());
+		actor.useMailbox(executor);
+
+		actor.useMailbox(executor);
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void await(CyclicBarrier barrier) {
+		try {
+			barrier.await(5, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class TestActor extends AbstractActor {
+		private final Model behavior;
+
+		TestActor(Model behavior) {
+			this.behavior = behavior;
+		}
+
+		@Override
+		public Model behavior() {
+			return behavior;
+		}
+	}
+}
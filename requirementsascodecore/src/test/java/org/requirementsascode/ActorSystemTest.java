@@ -0,0 +1,209 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ActorSystemTest extends AbstractTestCase {
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.actorSystem = ActorSystem.create();
+	}
+
+	@After
+	public void tearDown() {
+		actorSystem.shutdown();
+	}
+
+	@Test
+	public void spawnedActorReactsInMailboxMode() throws Exception {
+		TestActor actor = actorSystem.spawn(new TestActor(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString())
+			.build()));
+
+		Optional<String> publishedEvent = actor.<EntersText, String>reactToAsync(entersText()).get(5, TimeUnit.SECONDS);
+
+		assertTrue(actor.hasMailbox());
+		assertEquals(TEXT, publishedEvent.get());
+		assertEquals(1, actorSystem.getActorCount());
+	}
+
+	@Test
+	public void spawnsManyActorsThatShareModel() throws Exception {
+		AtomicInteger reactionCount = new AtomicInteger();
+		Model model = Model.builder()
+			.on(EntersText.class).system(text -> reactionCount.incrementAndGet())
+			.build();
+
+		List<CompletableFuture<Optional<Object>>> futureEvents = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			TestActor actor = actorSystem.spawn(new TestActor(model));
+			futureEvents.add(actor.reactToAsync(entersText()));
+		}
+		CompletableFuture.allOf(futureEvents.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+		assertEquals(10_000, actorSystem.getActorCount());
+		assertEquals(10_000, reactionCount.get());
+	}
+
+	@Test
+	public void stoppedActorRejectsPendingAndNewMessages() throws Exception {
+		CountDownLatch reacting = new CountDownLatch(1);
+		CountDownLatch released = new CountDownLatch(1);
+		TestActor actor = actorSystem.spawn(new TestActor(Model.builder()
+			.on(EntersText.class).system(text -> {
+				reacting.countDown();
+				await(released);
+			})
+			.build()));
+
+		CompletableFuture<Optional<Object>> reactingFuture = actor.reactToAsync(entersText());
+		assertTrue(reacting.await(5, TimeUnit.SECONDS));
+		CompletableFuture<Optional<Object>> pendingFuture = actor.reactToAsync(entersText());
+		actorSystem.stop(actor);
+		CompletableFuture<Optional<Object>> newFuture = actor.reactToAsync(entersText());
+		released.countDown();
+
+		reactingFuture.get(5, TimeUnit.SECONDS);
+		assertRejected(pendingFuture);
+		assertRejected(newFuture);
+		assertEquals(0, actorSystem.getActorCount());
+	}
+
+	@Test
+	public void shutdownWaitsForReactingActors() throws Exception {
+		CountDownLatch reacting = new CountDownLatch(1);
+		AtomicInteger reactionCount = new AtomicInteger();
+		TestActor actor = actorSystem.spawn(new TestActor(Model.builder()
+			.on(EntersText.class).system(text -> {
+				reacting.countDown();
+				sleep(50);
+				reactionCount.incrementAndGet();
+			})
+			.build()));
+
+		actor.reactToAsync(entersText());
+		assertTrue(reacting.await(5, TimeUnit.SECONDS));
+		actorSystem.shutdown();
+
+		assertTrue(actorSystem.isShutdown());
+		assertTrue(actorSystem.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(1, reactionCount.get());
+		assertEquals(0, actorSystem.getActorCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void doesNotSpawnActorAfterShutdown() {
+		actorSystem.shutdown();
+		actorSystem.spawn(new TestActor(Model.builder().build()));
+	}
+
+	@Test
+	public void doesNotSpawnActorTwice() {
+		TestActor actor = actorSystem.spawn(new TestActor(Model.builder().build()));
+		try {
+			actorSystem.spawn(actor);
+		} catch (IllegalStateException e) {
+			assertEquals(1, actorSystem.getActorCount());
+			return;
+		}
+		throw new AssertionError("Expected exception");
+	}
+
+	@Test
+	public void closesActorsSpawnedConcurrentlyWithShutdown() throws Exception {
+		int actorCount = 1000;
+		List<TestActor> spawnedActors = Collections.synchronizedList(new ArrayList<>());
+		CompletableFuture<Void> spawning = CompletableFuture.runAsync(() -> {
+			for (int i = 0; i < actorCount; i++) {
+				try {
+					spawnedActors.add(actorSystem.spawn(new TestActor(Model.builder().build())));
+				} catch (IllegalStateException e) {
+					return;
+				}
+			}
+		});
+		while (spawnedActors.isEmpty() && !spawning.isDone()) {
+			Thread.yield();
+		}
+
+		actorSystem.shutdown();
+		spawning.get(5, TimeUnit.SECONDS);
+
+		assertEquals(0, actorSystem.getActorCount());
+		for (TestActor spawnedActor : spawnedActors) {
+			assertTrue(spawnedActor.getMailbox().isClosed());
+		}
+	}
+
+	@Test
+	public void usesSpecifiedExecutor() throws Exception {
+		actorSystem.shutdown();
+		actorSystem = new ActorSystem(Executors.newFixedThreadPool(2));
+		TestActor actor = actorSystem.spawn(new TestActor(Model.builder()
+			.on(EntersText.class).systemPublish(text -> Thread.currentThread().getName())
+			.build()));
+
+		String threadName = actor.<EntersText, String>reactToAsync(entersText()).get(5, TimeUnit.SECONDS).get();
+
+		assertFalse(actorSystem.usesVirtualThreads());
+		assertTrue(threadName.startsWith("pool-"));
+	}
+
+	private void assertRejected(CompletableFuture<?> futureEvent) throws Exception {
+		try {
+			futureEvent.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			return;
+		}
+		throw new AssertionError("Expected exception");
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class TestActor extends AbstractActor {
+		private final Model behavior;
+
+		TestActor(Model behavior) {
+			this.behavior = behavior;
+		}
+
+		@Override
+		public Model behavior() {
+			return behavior;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncSystemReactionTest extends AbstractTestCase {
+	private static final String SYSTEM_SAVES_TEXT = "System saves text";
+	private static final String SYSTEM_HANDLES_SAVED_TEXT = "System handles saved text";
+
+	private CompletableFuture<String> savedText;
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.savedText = new CompletableFuture<>();
+		this.executor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void publishesResultWhenStageCompletes() {
+		modelRunner.run(Model.builder()
+			.step(SYSTEM_SAVES_TEXT).on(EntersText.class).systemPublish(text -> savedText)
+			.step(SYSTEM_HANDLES_SAVED_TEXT).on(String.class).system(text -> displayedText = text)
+			.build());
+
+		Optional<Object> latestPublishedEvent = modelRunner.reactTo(entersText());
+		assertFalse(latestPublishedEvent.isPresent());
+		assertFalse(modelRunner.whenIdle().isDone());
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT);
+
+		savedText.complete(TEXT);
+
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_HANDLES_SAVED_TEXT);
+		assertEquals(TEXT, displayedText);
+		assertTrue(modelRunner.whenIdle().isDone());
+	}
+
+	@Test
+	public void publishesResultOfCompletedStageImmediately() {
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(text -> CompletableFuture.completedFuture(text.value()))
+			.build());
+
+		Optional<String> latestPublishedEvent = modelRunner.reactTo(entersText());
+
+		assertEquals(TEXT, latestPublishedEvent.get());
+	}
+
+	@Test
+	public void runsAutonomousSystemReactionWhenStageCompletes() {
+		modelRunner.run(modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_SAVES_TEXT).on(EntersText.class).systemPublish(text -> savedText)
+					.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.build());
+
+		modelRunner.reactTo(entersText());
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT);
+
+		savedText.complete(TEXT);
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_DISPLAYS_TEXT);
+	}
+
+	@Test
+	public void queuesMessagesWhileReactionIsPending() {
+		modelRunner.run(Model.builder()
+			.step(SYSTEM_SAVES_TEXT).on(EntersText.class).systemPublish(text -> savedText)
+			.step(SYSTEM_HANDLES_SAVED_TEXT).on(String.class).system(text -> {})
+			.step(SYSTEM_DISPLAYS_NUMBER).on(EntersNumber.class).system(displaysEnteredNumber())
+			.build());
+
+		modelRunner.reactTo(entersText(), entersNumber());
+		modelRunner.reactTo(new EntersNumber(1));
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT);
+
+		savedText.complete(TEXT);
+
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_HANDLES_SAVED_TEXT, SYSTEM_DISPLAYS_NUMBER,
+			SYSTEM_DISPLAYS_NUMBER);
+		assertEquals("1", displayedText);
+	}
+
+	@Test
+	public void suspendsAgainForQueuedMessageWithPendingReaction() {
+		CompletableFuture<String> savedTextAgain = new CompletableFuture<>();
+		modelRunner.run(modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_SAVES_TEXT).on(EntersText.class).systemPublish(text -> savedText)
+					.step(SYSTEM_HANDLES_SAVED_TEXT).on(String.class).system(text -> {})
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).on(EntersText.class).systemPublish(text -> savedTextAgain)
+					.step(SYSTEM_DISPLAYS_TEXT).on(String.class).system(text -> displayedText = text)
+			.build());
+
+		modelRunner.reactTo(entersText());
+		modelRunner.reactTo(entersAlternativeText());
+
+		savedText.complete(TEXT);
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_HANDLES_SAVED_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN);
+		assertFalse(modelRunner.whenIdle().isDone());
+
+		savedTextAgain.complete("Saved again");
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_HANDLES_SAVED_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN,
+			SYSTEM_DISPLAYS_TEXT);
+		assertEquals("Saved again", displayedText);
+		assertTrue(modelRunner.whenIdle().isDone());
+	}
+
+	@Test
+	public void resumesOnThreadThatCompletesStage() throws Exception {
+		modelRunner.run(Model.builder()
+			.step(SYSTEM_SAVES_TEXT).on(EntersText.class)
+				.systemPublish(text -> CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor))
+			.step(SYSTEM_HANDLES_SAVED_TEXT).on(String.class).system(threadName -> displayedText = threadName)
+			.build());
+		String executorThreadName = executor.submit(() -> Thread.currentThread().getName()).get();
+
+		modelRunner.reactTo(entersText());
+		modelRunner.reactTo(entersNumber());
+		modelRunner.whenIdle().get(5, TimeUnit.SECONDS);
+
+		assertEquals(executorThreadName, displayedText);
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_HANDLES_SAVED_TEXT);
+	}
+
+	@Test
+	public void handlesExceptionOfStageLikeExceptionOfReaction() {
+		modelRunner.run(Model.builder()
+			.step(SYSTEM_SAVES_TEXT).on(EntersText.class).systemPublish(text -> savedText)
+			.step(SYSTEM_HANDLES_EXCEPTION).on(IllegalStateException.class).system(e -> displayedText = e.getMessage())
+			.build());
+
+		modelRunner.reactTo(entersText());
+		savedText.completeExceptionally(new IllegalStateException(TEXT));
+
+		assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_HANDLES_EXCEPTION);
+		assertEquals(TEXT, displayedText);
+		assertTrue(modelRunner.whenIdle().isDone());
+	}
+
+	@Test
+	public void unhandledExceptionOfStageCompletesIdleFutureExceptionally() throws Exception {
+		modelRunner.run(Model.builder()
+			.step(SYSTEM_SAVES_TEXT).on(EntersText.class).systemPublish(text -> savedText)
+			.step(SYSTEM_DISPLAYS_NUMBER).on(EntersNumber.class).system(displaysEnteredNumber())
+			.build());
+
+		modelRunner.reactTo(entersText());
+		modelRunner.reactTo(entersNumber());
+		CompletableFuture<Void> idle = modelRunner.whenIdle();
+		savedText.completeExceptionally(new IllegalStateException(TEXT));
+
+		try {
+			idle.get();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			// The queued message is dispatched nevertheless
+			assertRecordedStepNames(SYSTEM_SAVES_TEXT, SYSTEM_DISPLAYS_NUMBER);
+			return;
+		}
+		throw new AssertionError("Expected exception");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void modelEngineDoesNotSupportPendingReaction() {
+		ModelEngine modelEngine = new ModelEngine(Model.builder()
+			.on(EntersText.class).systemPublish(text -> savedText)
+			.build());
+		modelEngine.reactTo(modelEngine.newSession(), entersText());
+	}
+}
@@ -0,0 +1,150 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.InfiniteRepetition;
+
+public class BatchReactToTest extends AbstractTestCase {
+	private int timesDisplayed;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.timesDisplayed = 0;
+	}
+
+	@Test
+	public void reactsToAllMessagesOfIterator() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		modelRunner.run(model);
+		BatchResult<Object> result = modelRunner.reactToAll(Arrays.asList(entersText(), entersNumber()).iterator());
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER);
+		assertEquals(2, result.getHandledCount());
+		assertEquals(0, result.getUnhandledCount());
+		assertEquals(2, result.getMessageCount());
+		assertFalse(result.getLatestPublishedEvent().isPresent());
+	}
+
+	@Test
+	public void countsUnhandledMessages() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		modelRunner.handleUnhandledWith(message -> {}).run(model);
+		BatchResult<Object> result = modelRunner
+			.reactToAll(Stream.of(entersNumber(), entersText(), entersText(), entersNumber()));
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+		assertEquals(1, result.getHandledCount());
+		assertEquals(3, result.getUnhandledCount());
+	}
+
+	@Test
+	public void reactsToAllMessagesOfLargeStream() {
+		int numberOfMessages = 100_000;
+		Model model = modelBuilder
+			.user(EntersNumber.class).system(number -> timesDisplayed++)
+			.build();
+
+		modelRunner.stopRecording().run(model);
+		BatchResult<Object> result = modelRunner.reactToAll(IntStream.range(0, numberOfMessages).mapToObj(EntersNumber::new));
+
+		assertEquals(numberOfMessages, timesDisplayed);
+		assertEquals(numberOfMessages, result.getHandledCount());
+	}
+
+	@Test
+	public void reactsToMessagesOfContainer() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		modelRunner.run(model);
+		Iterator<Object> messages = Arrays.<Object>asList(entersText(), Arrays.asList(entersNumber(), entersText())).iterator();
+		BatchResult<Object> result = modelRunner.reactToAll(messages);
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER, CUSTOMER_ENTERS_TEXT_AGAIN);
+		assertEquals(3, result.getHandledCount());
+	}
+
+	@Test
+	public void returnsLatestPublishedEventOfBatch() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).systemPublish(publishEnteredTextAsString())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		modelRunner.publishWith(event -> {}).run(model);
+		BatchResult<String> result = modelRunner.reactToAll(Stream.of(entersText(), entersNumber()));
+
+		assertEquals(TEXT, result.getLatestPublishedEvent().get());
+	}
+
+	@Test
+	public void doesNotReactToBatchWhenNotRunning() {
+		Model model = modelBuilder
+			.user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		modelRunner.run(model);
+		modelRunner.stop();
+		BatchResult<Object> result = modelRunner.reactToAll(Stream.of(entersText(), entersText()));
+
+		assertRecordedStepNames();
+		assertEquals(0, result.getHandledCount());
+		assertEquals(2, result.getUnhandledCount());
+	}
+
+	@Test(expected = InfiniteRepetition.class)
+	public void limitsStepsPerMessageOfBatch() {
+		Model model = modelBuilder
+			.user(EntersText.class).system(displaysEnteredText())
+			.condition(() -> timesDisplayed < 100).system(() -> timesDisplayed++)
+			.build();
+
+		modelRunner.stopRecording().limitStepsTo(10).run(model);
+		modelRunner.reactToAll(Stream.of(entersText()));
+	}
+
+	@Test
+	public void sessionReactsToAllMessagesOfBatch() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		ModelEngine modelEngine = new ModelEngine(model);
+		Session session = modelEngine.newSession();
+		BatchResult<Object> result = modelEngine.reactToAll(session, Stream.of(entersText(), entersNumber(), entersNumber()));
+
+		assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(session).get().getName());
+		assertEquals(2, result.getHandledCount());
+		assertEquals(1, result.getUnhandledCount());
+	}
+}
@@ -105,4 +105,44 @@ public class CanReactToTest extends AbstractTestCase {
 		Set<Step> stepsThatCanReact = modelRunner.getStepsThatCanReactTo(EntersText.class);
 		assertEquals(2, stepsThatCanReact.size());
 	}
+
+	@Test
+	public void oneStepCanReactIfEventImplementsInterface() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(Runnable.class).system(displaysConstantText())
+			.build();
+
+		modelRunner.run(model);
+
+		assertTrue(modelRunner.canReactTo(RunnableMessage.class));
+		assertFalse(modelRunner.canReactTo(EntersText.class));
+
+		modelRunner.reactTo(new RunnableMessage());
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+	}
+
+	private class RunnableMessage implements Runnable {
+		@Override
+		public void run() {
+		}
+	}
+
+	@Test
+	public void stepCanReactIfAddedToModelAfterModelHasBeenRun() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.on(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		modelRunner.run(model);
+		assertFalse(modelRunner.canReactTo(EntersNumber.class));
+
+		modelBuilder.useCase(USE_CASE_2)
+			.on(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		assertTrue(modelRunner.canReactTo(EntersNumber.class));
+		Set<Step> stepsThatCanReact = modelRunner.getStepsThatCanReactTo(EntersNumber.class);
+		assertEquals(1, stepsThatCanReact.size());
+	}
 }
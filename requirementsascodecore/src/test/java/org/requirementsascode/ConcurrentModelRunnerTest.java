@@ -0,0 +1,170 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+import org.requirementsascode.exception.NestedCallOfReactTo;
+
+public class ConcurrentModelRunnerTest extends AbstractTestCase {
+	private static final int THREAD_COUNT = 8;
+	private static final int MESSAGES_PER_THREAD = 10_000;
+
+	private ConcurrentModelRunner concurrentModelRunner;
+	private int reactionCount;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.concurrentModelRunner = new ConcurrentModelRunner(modelRunner);
+	}
+
+	@Test
+	public void reactsToMessageAndReturnsPublishedEvent() {
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString())
+			.build());
+
+		Optional<String> publishedEvent = concurrentModelRunner.reactTo(entersText());
+
+		assertEquals(TEXT, publishedEvent.get());
+	}
+
+	@Test
+	public void reactsToMessagesOfManyThreadsOneAtATime() throws Exception {
+		List<List<Integer>> receivedNumbersPerThread = new ArrayList<>();
+		for (int i = 0; i < THREAD_COUNT; i++) {
+			receivedNumbersPerThread.add(new ArrayList<>());
+		}
+		modelRunner.run(Model.builder()
+			.on(int[].class).system(threadAndNumber -> {
+				// Not thread-safe on purpose
+				reactionCount++;
+				receivedNumbersPerThread.get(threadAndNumber[0]).add(threadAndNumber[1]);
+			})
+			.build());
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREAD_COUNT; thread++) {
+				int threadId = thread;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+						concurrentModelRunner.reactTo(new int[] { threadId, i });
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		int totalReactionCount = concurrentModelRunner.execute(runner -> reactionCount).join();
+		assertEquals(THREAD_COUNT * MESSAGES_PER_THREAD, totalReactionCount);
+		for (List<Integer> receivedNumbers : receivedNumbersPerThread) {
+			assertEquals(MESSAGES_PER_THREAD, receivedNumbers.size());
+			for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+				assertEquals(i, (int) receivedNumbers.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void combinerReturnsWhileOtherThreadsKeepReacting() throws Exception {
+		CountDownLatch firstMessageReceived = new CountDownLatch(1);
+		CountDownLatch firstMessageReleased = new CountDownLatch(1);
+		AtomicBoolean isStopped = new AtomicBoolean();
+		modelRunner.run(Model.builder()
+			.on(Integer.class).system(number -> {
+				if (number == 0) {
+					firstMessageReceived.countDown();
+					awaitUninterruptibly(firstMessageReleased);
+				} else {
+					// Take long enough for the other threads to enqueue their next messages
+					LockSupport.parkNanos(100_000);
+				}
+			})
+			.build());
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT + 1);
+		try {
+			Future<?> combiningCall = executor.submit(() -> concurrentModelRunner.reactTo(0));
+			firstMessageReceived.await();
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREAD_COUNT; thread++) {
+				futures.add(executor.submit(() -> {
+					while (!isStopped.get()) {
+						concurrentModelRunner.reactTo(1);
+					}
+				}));
+			}
+			Thread.sleep(10);
+			firstMessageReleased.countDown();
+
+			combiningCall.get(10, TimeUnit.SECONDS);
+			isStopped.set(true);
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			isStopped.set(true);
+			firstMessageReleased.countDown();
+			executor.shutdown();
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void executesFunctionOnRunner() {
+		concurrentModelRunner.execute(runner -> runner.run(Model.builder()
+			.on(EntersText.class).system(displaysEnteredText())
+			.build()));
+
+		boolean canReact = concurrentModelRunner.execute(runner -> runner.canReactTo(EntersText.class)).join();
+
+		assertTrue(canReact);
+	}
+
+	@Test(expected = MoreThanOneStepCanReact.class)
+	public void rethrowsExceptionOfRunner() {
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).system(displaysEnteredText())
+			.on(EntersText.class).system(displaysEnteredText())
+			.build());
+
+		concurrentModelRunner.reactTo(entersText());
+	}
+
+	@Test(expected = NestedCallOfReactTo.class)
+	public void rejectsNestedReactToOfSystemReaction() {
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).system(text -> concurrentModelRunner.reactTo(entersNumber()))
+			.on(EntersNumber.class).system(displaysEnteredNumber())
+			.build());
+
+		concurrentModelRunner.reactTo(entersText());
+	}
+}
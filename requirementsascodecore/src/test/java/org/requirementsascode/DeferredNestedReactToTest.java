@@ -0,0 +1,142 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.NestedCallOfReactTo;
+
+public class DeferredNestedReactToTest extends AbstractTestCase {
+	private List<Object> handledMessages;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.handledMessages = new ArrayList<>();
+	}
+
+	@Test
+	public void doesNotDeferByDefault() {
+		assertFalse(modelRunner.isDeferringNestedReactTo());
+		assertTrue(modelRunner.deferNestedReactTo().isDeferringNestedReactTo());
+	}
+
+	@Test(expected = NestedCallOfReactTo.class)
+	public void throwsExceptionIfNotDeferring() {
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).system(text -> modelRunner.reactTo(entersNumber()))
+			.build());
+
+		modelRunner.reactTo(entersText());
+	}
+
+	@Test
+	public void dispatchesNestedMessagesInOrderAfterStep() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).system(text -> {
+						modelRunner.reactTo(new EntersNumber(1));
+						modelRunner.reactTo(new EntersNumber(2));
+						handledMessages.add(text.value());
+					})
+					.step(CUSTOMER_ENTERS_NUMBER).on(EntersNumber.class).system(number -> handledMessages.add(number.value()))
+					.step(SYSTEM_DISPLAYS_NUMBER).on(EntersNumber.class).system(number -> handledMessages.add(number.value()))
+			.build();
+
+		modelRunner.deferNestedReactTo().run(model);
+		modelRunner.reactTo(entersText());
+
+		assertEquals(Arrays.asList(TEXT, 1, 2), handledMessages);
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER, SYSTEM_DISPLAYS_NUMBER);
+	}
+
+	@Test
+	public void dispatchesNestedMessagesOfSeveralMessagesCall() {
+		modelRunner.deferNestedReactTo().run(Model.builder()
+			.on(EntersText.class).system(text -> modelRunner.reactTo(new EntersNumber(1), new EntersNumber(2)))
+			.on(EntersNumber.class).system(number -> handledMessages.add(number.value()))
+			.build());
+
+		modelRunner.reactTo(entersText(), entersText());
+
+		assertEquals(Arrays.asList(1, 2, 1, 2), handledMessages);
+	}
+
+	@Test
+	public void dispatchesNestedMessagesBeforePublishedMessage() {
+		modelRunner.deferNestedReactTo().run(Model.builder()
+			.on(EntersText.class).systemPublish(text -> {
+				modelRunner.reactTo(new EntersNumber(1));
+				return new EntersNumber(2);
+			})
+			.on(EntersNumber.class).system(number -> handledMessages.add(number.value()))
+			.build());
+
+		modelRunner.reactTo(entersText());
+
+		assertEquals(Arrays.asList(1, 2), handledMessages);
+	}
+
+	@Test
+	public void dispatchesMessagesOfNestedReactionsDepthFirst() {
+		modelRunner.deferNestedReactTo().run(Model.builder()
+			.on(EntersText.class).system(text -> {
+				modelRunner.reactTo(new EntersNumber(1));
+				modelRunner.reactTo(new EntersNumber(3));
+			})
+			.on(EntersNumber.class).system(number -> {
+				handledMessages.add(number.value());
+				if (number.value() == 1) {
+					modelRunner.reactTo(new EntersNumber(2));
+				}
+			})
+			.build());
+
+		modelRunner.reactTo(entersText());
+
+		assertEquals(Arrays.asList(1, 2, 3), handledMessages);
+	}
+
+	@Test
+	public void nestedCallReturnsEmptyOptionalAndKeepsResultOfOuterCall() {
+		List<Optional<Object>> nestedResults = new ArrayList<>();
+		modelRunner.deferNestedReactTo().run(Model.builder()
+			.on(EntersText.class).systemPublish(text -> {
+				nestedResults.add(modelRunner.reactTo(new EntersNumber(1)));
+				return String.valueOf(text.value());
+			})
+			.on(EntersNumber.class).system(number -> handledMessages.add(number.value()))
+			.build());
+
+		Optional<String> result = modelRunner.reactTo(entersText());
+
+		assertEquals(Arrays.asList(Optional.empty()), nestedResults);
+		assertEquals(TEXT, result.get());
+		assertEquals(Arrays.asList(1), handledMessages);
+	}
+
+	@Test
+	public void handlesManyNestedMessagesWithoutDeepRecursion() {
+		int messageCount = 100_000;
+		int[] countdown = { messageCount };
+		modelRunner.deferNestedReactTo().limitStepsTo(messageCount).run(Model.builder()
+			.on(EntersNumber.class).system(number -> {
+				if (--countdown[0] > 0) {
+					modelRunner.reactTo(number);
+				}
+			})
+			.build());
+
+		modelRunner.reactTo(entersNumber());
+
+		assertEquals(0, countdown[0]);
+	}
+}
@@ -0,0 +1,58 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that the dispatch index of a model doesn't keep the model reachable
+ * from the message classes it has dispatched.
+ *
+ * @author b_muth
+ */
+public class DispatchIndexTest {
+  private static final int MODEL_COUNT = 10_000;
+  private static final int MAX_GC_ATTEMPTS = 20;
+
+  @Test
+  public void modelsAreCollectedAfterDispatching() throws InterruptedException {
+    List<WeakReference<Model>> models = new ArrayList<>(MODEL_COUNT);
+    for (int i = 0; i < MODEL_COUNT; i++) {
+      Model model = Model.builder().user(String.class).system(s -> {}).build();
+      new ModelRunner().run(model).reactTo("x");
+      models.add(new WeakReference<>(model));
+    }
+
+    assertEquals(0, reachableModelCount(models));
+  }
+
+  @Test
+  public void recompiledModelsAreCollectedAfterDispatching() throws InterruptedException {
+    Model model = Model.builder().user(String.class).system(s -> {}).build();
+    ModelRunner modelRunner = new ModelRunner().run(model);
+    List<WeakReference<CompiledModel>> compiledModels = new ArrayList<>(MODEL_COUNT);
+    for (int i = 0; i < MODEL_COUNT; i++) {
+      modelRunner.reactTo("x");
+      compiledModels.add(new WeakReference<>(model.getCompiledModel()));
+      model.clearCompiledModel();
+    }
+    // The runner may keep the compiled model of its latest dispatch
+    modelRunner.reactTo("x");
+
+    assertEquals(0, reachableModelCount(compiledModels));
+  }
+
+  private int reachableModelCount(List<? extends WeakReference<?>> models) throws InterruptedException {
+    int reachableModelCount = models.size();
+    for (int attempt = 0; attempt < MAX_GC_ATTEMPTS && reachableModelCount > 0; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+      reachableModelCount = (int) models.stream().filter(model -> model.get() != null).count();
+    }
+    return reachableModelCount;
+  }
+}
@@ -14,6 +14,7 @@ import org.requirementsascode.exception.NoSuchElementInModel;
 public class ExceptionsThrownTest extends AbstractTestCase {
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
+	private int timesRun;
 
 	@Before
 	public void setup() {
@@ -200,4 +201,23 @@ public class ExceptionsThrownTest extends AbstractTestCase {
 
 		modelRunner.run(model);
 	}
+
+	@Test
+	public void throwsExceptionWhenMaxStepCountIsExceeded() {
+		thrown.expect(InfiniteRepetition.class);
+		thrown.expectMessage("S1");
+
+		Model model = modelBuilder
+		  .condition(() -> timesRun < 100).system(() -> timesRun++)
+		.build();
+
+		modelRunner.limitStepsTo(99).run(model);
+	}
+
+	@Test
+	public void throwsExceptionWhenMaxStepCountIsNotPositive() {
+		thrown.expect(IllegalArgumentException.class);
+
+		modelRunner.limitStepsTo(0);
+	}
 }
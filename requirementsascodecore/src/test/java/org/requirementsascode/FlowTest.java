@@ -18,6 +18,7 @@ import org.requirementsascode.systemreaction.IgnoresIt;
 public class FlowTest extends AbstractTestCase{
 	private Actor secondActor;
 	private int timesDisplayed;
+	private int timesConditionEvaluated;
 		
 	@Before
 	public void setup() {
@@ -1210,4 +1211,107 @@ public class FlowTest extends AbstractTestCase{
 		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_ALTERNATIVE_TEXT, CONTINUE,
 			CUSTOMER_ENTERS_TEXT_AGAIN, CUSTOMER_ENTERS_NUMBER);
 	}
+	
+	@Test
+	public void startsAlternativeFlowAfterAnyOfSeveralSteps() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+				.flow(ALTERNATIVE_FLOW).after(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER)
+					.step(CUSTOMER_ENTERS_ALTERNATIVE_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		modelRunner.run(model).reactTo(entersText(), entersNumber());
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_ALTERNATIVE_NUMBER);
+
+		modelRunner.restart();
+		modelRunner.startRecording();
+		modelRunner.reactTo(entersText(), entersText(), entersNumber(), entersNumber());
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN, CUSTOMER_ENTERS_NUMBER,
+			CUSTOMER_ENTERS_ALTERNATIVE_NUMBER);
+	}
+
+	@Test
+	public void onlyAnytimeFlowCanStartAfterStepOfDifferentModel() {
+		Model otherModel = Model.builder()
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.flow(ALTERNATIVE_FLOW).after(CUSTOMER_ENTERS_TEXT)
+					.step(CUSTOMER_ENTERS_ALTERNATIVE_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+				.flow(ALTERNATIVE_FLOW_2).anytime()
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		modelRunner.run(model);
+		modelRunner.setLatestStep(otherModel.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT));
+		modelRunner.reactTo(entersText(), entersNumber());
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_NUMBER);
+	}
+
+	@Test
+	public void evaluatesConditionOfInterruptingFlowOncePerMessage() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.flow(ALTERNATIVE_FLOW).anytime().condition(this::countsConditionEvaluation)
+					.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.useCase(USE_CASE_2)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText()).reactWhile(() -> false)
+			.build();
+
+		modelRunner.run(model).reactTo(entersText());
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+		assertEquals(1, timesConditionEvaluated);
+	}
+
+	private boolean countsConditionEvaluation() {
+		timesConditionEvaluated++;
+		return false;
+	}
+
+	@Test
+	public void runsStepsUpToMaxStepCount() {
+		Model model = modelBuilder
+			.condition(() -> timesDisplayed < 100).system(() -> timesDisplayed++)
+			.build();
+
+		modelRunner.limitStepsTo(100).run(model);
+
+		assertEquals(100, timesDisplayed);
+	}
+
+	@Test
+	public void runsLongChainOfAutonomousStepsWithSmallStack() throws InterruptedException {
+		Model model = modelBuilder
+			.condition(() -> timesDisplayed < 5000).system(() -> timesDisplayed++)
+			.build();
+
+		List<Throwable> exceptions = new ArrayList<>();
+		Thread thread = new Thread(null, () -> {
+			try {
+				modelRunner.run(model);
+			} catch (Throwable e) {
+				exceptions.add(e);
+			}
+		}, "Small stack", 128 * 1024);
+		thread.start();
+		thread.join();
+
+		assertTrue(exceptions.isEmpty());
+		assertEquals(5000, timesDisplayed);
+	}
 }
@@ -0,0 +1,255 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.InfiniteRepetition;
+
+public class ModelEngineTest extends AbstractTestCase {
+	private AtomicInteger textsDisplayed;
+	private AtomicInteger numbersDisplayed;
+	private ModelEngine forwardingEngine;
+	private Session forwardedToSession;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.textsDisplayed = new AtomicInteger();
+		this.numbersDisplayed = new AtomicInteger();
+	}
+
+	@Test
+	public void newSessionIsRunningAndHasNoLatestStep() {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		Session session = modelEngine.newSession();
+
+		assertTrue(session.isRunning());
+		assertEquals(Session.NO_LATEST_STEP, session.getLatestStepId());
+		assertFalse(modelEngine.getLatestStep(session).isPresent());
+	}
+
+	@Test
+	public void sessionsOfSameEngineHaveIndependentPositions() {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		Session session1 = modelEngine.newSession().startRecording();
+		Session session2 = modelEngine.newSession().startRecording();
+
+		modelEngine.reactTo(session1, entersText());
+		modelEngine.reactTo(session2, entersNumber());
+		modelEngine.reactTo(session1, entersNumber());
+
+		assertArrayEquals(new String[] { CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER }, session1.getRecordedStepNames());
+		assertArrayEquals(new String[0], session2.getRecordedStepNames());
+		assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(session1).get().getName());
+		assertFalse(modelEngine.getLatestStep(session2).isPresent());
+	}
+
+	@Test
+	public void sessionRemembersLatestStepAsId() {
+		Model model = textAndNumberModel();
+		ModelEngine modelEngine = new ModelEngine(model);
+		Session session = modelEngine.newSession();
+
+		modelEngine.reactTo(session, entersText());
+
+		Step latestStep = model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT);
+		assertEquals(modelEngine.getCompiledModel().getStepId(latestStep), session.getLatestStepId());
+	}
+
+	@Test
+	public void sessionContinuesAfterLatestStepThatHasBeenSet() {
+		Model model = textAndNumberModel();
+		ModelEngine modelEngine = new ModelEngine(model);
+		Session session = modelEngine.newSession();
+
+		modelEngine.setLatestStep(session, model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT));
+
+		assertTrue(modelEngine.canReactTo(session, EntersNumber.class));
+		modelEngine.setLatestStep(session, null);
+		assertFalse(modelEngine.getLatestStep(session).isPresent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotSetLatestStepOfOtherModel() {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		Model otherModel = textAndNumberModel();
+		Session session = modelEngine.newSession();
+
+		modelEngine.setLatestStep(session, otherModel.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT));
+	}
+
+	@Test
+	public void sessionCanReactOnlyToMessageOfNextStep() {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		Session session = modelEngine.newSession();
+
+		assertTrue(modelEngine.canReactTo(session, EntersText.class));
+		assertFalse(modelEngine.canReactTo(session, EntersNumber.class));
+
+		modelEngine.reactTo(session, entersText());
+
+		assertFalse(modelEngine.canReactTo(session, EntersText.class));
+		assertTrue(modelEngine.canReactTo(session, EntersNumber.class));
+		assertEquals(EntersNumber.class, modelEngine.getReactToTypes(session).iterator().next());
+	}
+
+	@Test
+	public void stoppedSessionDoesNotReact() {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		Session session = modelEngine.newSession().startRecording();
+
+		session.stop();
+		modelEngine.reactTo(session, entersText());
+
+		assertFalse(session.isRunning());
+		assertArrayEquals(new String[0], session.getRecordedStepNames());
+	}
+
+	@Test
+	public void restartedSessionStartsOver() {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		Session session = modelEngine.newSession().startRecording();
+
+		modelEngine.reactTo(session, entersText());
+		session.stop();
+		modelEngine.restart(session);
+		modelEngine.reactTo(session, entersText());
+
+		assertTrue(session.isRunning());
+		assertArrayEquals(new String[] { CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT }, session.getRecordedStepNames());
+	}
+
+	@Test
+	public void newSessionTriggersAutonomousSystemReaction() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.build();
+
+		ModelEngine modelEngine = new ModelEngine(model);
+		Session session = modelEngine.newSession();
+
+		assertEquals(TEXT, displayedText);
+		assertEquals(SYSTEM_DISPLAYS_TEXT, modelEngine.getLatestStep(session).get().getName());
+	}
+
+	@Test
+	public void sessionReturnsPublishedEvent() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).systemPublish(publishEnteredTextAsString())
+			.build();
+
+		ModelEngine modelEngine = new ModelEngine(model).publishWith(event -> {});
+		Session session = modelEngine.newSession();
+		Optional<String> publishedEvent = modelEngine.reactTo(session, entersText());
+
+		assertEquals(TEXT, publishedEvent.get());
+	}
+
+	@Test
+	public void engineUsesUnhandledMessageHandler() {
+		List<Object> unhandledMessages = new ArrayList<>();
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel()).handleUnhandledWith(unhandledMessages::add);
+		Session session = modelEngine.newSession();
+
+		EntersNumber entersNumber = entersNumber();
+		modelEngine.reactTo(session, entersNumber);
+
+		assertEquals(1, unhandledMessages.size());
+		assertEquals(entersNumber, unhandledMessages.get(0));
+	}
+
+	@Test
+	public void sessionCanReactToMessageInSystemReactionOfOtherSession() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(this::forwardsNumber)
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		this.forwardingEngine = new ModelEngine(model);
+		Session session1 = forwardingEngine.newSession();
+		Session session2 = forwardingEngine.newSession();
+
+		forwardingEngine.reactTo(session2, entersText());
+		this.forwardedToSession = session2;
+		forwardingEngine.reactTo(session1, entersText());
+
+		assertEquals(CUSTOMER_ENTERS_TEXT, forwardingEngine.getLatestStep(session1).get().getName());
+		assertEquals(CUSTOMER_ENTERS_NUMBER, forwardingEngine.getLatestStep(session2).get().getName());
+		assertEquals(Integer.toString(NUMBER), displayedText);
+	}
+
+	private void forwardsNumber(EntersText entersText) {
+		if (forwardedToSession != null) {
+			forwardingEngine.reactTo(forwardedToSession, entersNumber());
+		}
+	}
+
+	@Test
+	public void sessionsAreDispatchedConcurrentlyThroughSharedEngine() throws Exception {
+		ModelEngine modelEngine = new ModelEngine(textAndNumberModel());
+		int numberOfSessions = 1000;
+		List<Session> sessions = new ArrayList<>();
+		for (int i = 0; i < numberOfSessions; i++) {
+			sessions.add(modelEngine.newSession());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Session session : sessions) {
+				futures.add(executor.submit(() -> {
+					modelEngine.reactTo(session, entersText());
+					modelEngine.reactTo(session, entersNumber());
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(numberOfSessions, textsDisplayed.get());
+		assertEquals(numberOfSessions, numbersDisplayed.get());
+		for (Session session : sessions) {
+			assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(session).get().getName());
+		}
+	}
+
+	@Test(expected = InfiniteRepetition.class)
+	public void engineLimitsStepsPerMessage() {
+		Model model = modelBuilder
+			.condition(() -> textsDisplayed.get() < 100).system(() -> textsDisplayed.incrementAndGet())
+			.build();
+
+		new ModelEngine(model).limitStepsTo(10).newSession();
+	}
+
+	private Model textAndNumberModel() {
+		Model model = Model.builder()
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(text -> textsDisplayed.incrementAndGet())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(number -> numbersDisplayed.incrementAndGet())
+			.build();
+		return model;
+	}
+}
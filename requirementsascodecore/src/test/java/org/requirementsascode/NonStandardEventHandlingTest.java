@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -145,7 +146,7 @@ public class NonStandardEventHandlingTest extends AbstractTestCase {
 
 		modelRunner.publishWith(event -> {
 			Step step = modelRunner.getLatestStep().get();
-			step.getPublishTo().ifPresent(to -> actualRecipients.add(to));
+			actualRecipients.addAll(Arrays.asList(step.getPublishToAll()));
 		});
 		modelRunner.run(model).reactTo(entersText(), "Some String");
 
@@ -0,0 +1,230 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PublishToSeveralActorsTest extends AbstractTestCase {
+	private ExecutorService executor;
+	private List<String> receivedMessages;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.executor = Executors.newFixedThreadPool(4);
+		this.receivedMessages = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void buildsStepWithSeveralRecipients() {
+		RecipientActor projection = new RecipientActor("Projection", text -> {});
+		RecipientActor auditLog = new RecipientActor("Audit log", text -> {});
+
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step("S1").on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(projection, auditLog)
+			.build();
+
+		Step step = model.findUseCase(USE_CASE).findStep("S1");
+		assertArrayEquals(new AbstractActor[] { projection, auditLog }, step.getPublishToAll());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotBuildStepWithDuplicateRecipient() {
+		RecipientActor projection = new RecipientActor("Projection", text -> {});
+
+		Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(projection, projection)
+			.build();
+	}
+
+	@Test
+	public void deliversToRecipientsOneAfterTheOtherByDefault() {
+		RecipientActor projection = recordingRecipient("Projection");
+		RecipientActor auditLog = recordingRecipient("Audit log");
+		RecipientActor notifier = recordingRecipient("Notifier");
+
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(projection, auditLog, notifier)
+			.build());
+		modelRunner.reactTo(entersText());
+
+		assertTrue(modelRunner.whenDelivered().isDone());
+		assertEquals(Arrays.asList("Projection: " + TEXT, "Audit log: " + TEXT, "Notifier: " + TEXT), receivedMessages);
+	}
+
+	@Test
+	public void obtrudingDeliveryFutureDoesNotAffectOtherRunners() {
+		new ModelRunner().whenDelivered().obtrudeException(new IllegalStateException(TEXT));
+
+		RecipientActor recipient = recordingRecipient("Recipient");
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(recipient)
+			.build());
+		modelRunner.reactTo(entersText());
+
+		assertFalse(modelRunner.whenDelivered().isCompletedExceptionally());
+		assertFalse(modelRunner.whenIdle().isCompletedExceptionally());
+	}
+
+	@Test
+	public void deliversToRecipientsConcurrently() {
+		CyclicBarrier allRecipientsReacting = new CyclicBarrier(3);
+		Consumer<String> awaitsOtherRecipients = text -> await(allRecipientsReacting);
+		RecipientActor projection = new RecipientActor("Projection", awaitsOtherRecipients);
+		RecipientActor auditLog = new RecipientActor("Audit log", awaitsOtherRecipients);
+		RecipientActor notifier = new RecipientActor("Notifier", awaitsOtherRecipients);
+
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(projection, auditLog, notifier)
+			.build());
+		modelRunner.deliverConcurrently(executor, DeliveryOrder.PER_RECIPIENT);
+		modelRunner.reactTo(entersText());
+		modelRunner.whenDelivered().join();
+
+		assertFalse(allRecipientsReacting.isBroken());
+	}
+
+	@Test
+	public void deliversMessagesInOrderPerRecipient() {
+		List<Object> projectedMessages = Collections.synchronizedList(new ArrayList<>());
+		List<Object> loggedMessages = Collections.synchronizedList(new ArrayList<>());
+		RecipientActor projection = new RecipientActor("Projection", projectedMessages::add);
+		RecipientActor auditLog = new RecipientActor("Audit log", loggedMessages::add);
+
+		modelRunner.run(Model.builder()
+			.on(EntersNumber.class).systemPublish(number -> String.valueOf(number.value())).to(projection, auditLog)
+			.build());
+		modelRunner.deliverConcurrently(executor, DeliveryOrder.PER_RECIPIENT);
+		List<Object> publishedMessages = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			modelRunner.reactTo(new EntersNumber(i));
+			publishedMessages.add(String.valueOf(i));
+		}
+		modelRunner.whenDelivered().join();
+
+		assertEquals(publishedMessages, projectedMessages);
+		assertEquals(publishedMessages, loggedMessages);
+	}
+
+	@Test
+	public void deliversNextMessageAfterAllRecipientsReactedToPrevious() throws Exception {
+		CountDownLatch firstMessageReceived = new CountDownLatch(1);
+		CountDownLatch slowRecipientReleased = new CountDownLatch(1);
+		RecipientActor slowRecipient = new RecipientActor("Slow", text -> {
+			firstMessageReceived.countDown();
+			await(slowRecipientReleased);
+		});
+		RecipientActor fastRecipient = recordingRecipient("Fast");
+
+		modelRunner.run(Model.builder()
+			.on(EntersNumber.class).systemPublish(number -> String.valueOf(number.value())).to(slowRecipient, fastRecipient)
+			.build());
+		modelRunner.deliverConcurrently(executor, DeliveryOrder.PER_MESSAGE);
+		modelRunner.reactTo(new EntersNumber(1));
+		modelRunner.reactTo(new EntersNumber(2));
+		assertTrue(firstMessageReceived.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(Arrays.asList("Fast: 1"), receivedMessages);
+
+		slowRecipientReleased.countDown();
+		modelRunner.whenDelivered().join();
+		assertEquals(Arrays.asList("Fast: 1", "Fast: 2"), receivedMessages);
+	}
+
+	@Test
+	public void deliveryCompletesExceptionallyIfRecipientFails() {
+		RecipientActor failingRecipient = new RecipientActor("Failing", text -> {
+			throw new IllegalStateException(text);
+		});
+		RecipientActor recipient = recordingRecipient("Recipient");
+
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(failingRecipient, recipient)
+			.build());
+		modelRunner.deliverConcurrently(executor, DeliveryOrder.PER_RECIPIENT);
+		modelRunner.reactTo(entersText());
+
+		try {
+			modelRunner.whenDelivered().join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertEquals(Arrays.asList("Recipient: " + TEXT), receivedMessages);
+			return;
+		}
+		throw new AssertionError("Expected exception");
+	}
+
+	@Test
+	public void deliveryWaitsForRecipientInMailboxMode() {
+		RecipientActor recipient = recordingRecipient("Recipient");
+		recipient.useMailbox(executor);
+
+		modelRunner.run(Model.builder()
+			.on(EntersText.class).systemPublish(publishEnteredTextAsString()).to(recipient)
+			.build());
+		modelRunner.reactTo(entersText());
+		modelRunner.whenDelivered().join();
+
+		assertEquals(Arrays.asList("Recipient: " + TEXT), receivedMessages);
+	}
+
+	private RecipientActor recordingRecipient(String name) {
+		return new RecipientActor(name, text -> receivedMessages.add(name + ": " + text));
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void await(CyclicBarrier barrier) {
+		try {
+			barrier.await(5, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class RecipientActor extends AbstractActor {
+		private final Model behavior;
+
+		RecipientActor(String name, Consumer<String> reactsToText) {
+			super(name);
+			this.behavior = Model.builder()
+				.on(String.class).system(reactsToText)
+				.build();
+		}
+
+		@Override
+		public Model behavior() {
+			return behavior;
+		}
+	}
+}
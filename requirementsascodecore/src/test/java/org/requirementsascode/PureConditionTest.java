@@ -0,0 +1,92 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PureConditionTest extends AbstractTestCase {
+	private int timesConditionEvaluated;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.timesConditionEvaluated = 0;
+	}
+
+	@Test
+	public void evaluatesPureConditionOfStepsOncePerQuery() {
+		PureCondition isTextAvailable = PureCondition.of(this::countsAndReturnsTrue);
+		Model model = modelBuilder
+			.condition(isTextAvailable).user(EntersText.class).system(displaysEnteredText())
+			.condition(isTextAvailable).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		modelRunner.run(model);
+		modelRunner.getReactToTypes();
+
+		assertEquals(1, timesConditionEvaluated);
+		assertEquals(1, modelRunner.getConditionMetrics().getSavedEvaluationCount());
+	}
+
+	@Test
+	public void evaluatesConditionThatIsNotPureForEachStep() {
+		Condition isTextAvailable = this::countsAndReturnsTrue;
+		Model model = modelBuilder
+			.condition(isTextAvailable).user(EntersText.class).system(displaysEnteredText())
+			.condition(isTextAvailable).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		modelRunner.run(model);
+		modelRunner.getReactToTypes();
+
+		assertEquals(2, timesConditionEvaluated);
+		assertEquals(2, modelRunner.getConditionMetrics().getEvaluationCount());
+		assertEquals(0, modelRunner.getConditionMetrics().getSavedEvaluationCount());
+	}
+
+	@Test
+	public void evaluatesPureConditionOfFlowAndCaseOncePerMessage() {
+		PureCondition isTextAvailable = PureCondition.of(this::countsAndReturnsTrue);
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow().condition(isTextAvailable)
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).inCase(isTextAvailable).system(displaysEnteredText())
+			.build();
+
+		modelRunner.run(model).reactTo(entersText());
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+		assertEquals(1, timesConditionEvaluated);
+		assertEquals(1, modelRunner.getConditionMetrics().getEvaluationCount());
+		assertEquals(1, modelRunner.getConditionMetrics().getSavedEvaluationCount());
+	}
+
+	@Test
+	public void evaluatesPureConditionAgainForNextMessage() {
+		PureCondition isTextAvailable = PureCondition.of(this::countsAndReturnsTrue);
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+						.reactWhile(isTextAvailable)
+			.build();
+
+		modelRunner.run(model).reactTo(entersText(), entersText(), entersText());
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT);
+		assertEquals(3, timesConditionEvaluated);
+	}
+
+	@Test
+	public void doesNotWrapPureConditionAgain() {
+		PureCondition isTextAvailable = PureCondition.of(this::countsAndReturnsTrue);
+		assertSame(isTextAvailable, PureCondition.of(isTextAvailable));
+	}
+
+	private boolean countsAndReturnsTrue() {
+		timesConditionEvaluated++;
+		return true;
+	}
+}
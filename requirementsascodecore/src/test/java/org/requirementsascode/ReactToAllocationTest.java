@@ -0,0 +1,122 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that dispatching a message to an already running model doesn't
+ * allocate any objects, apart from what the system reaction allocates.
+ *
+ * @author b_muth
+ */
+public class ReactToAllocationTest {
+  private static final int WARMUP_DISPATCHES = 20_000;
+  private static final int MEASURED_DISPATCHES = 10_000;
+
+  private com.sun.management.ThreadMXBean threadMXBean;
+  private EntersText entersText;
+  private long messagesHandled;
+
+  @Before
+  public void setup() {
+    java.lang.management.ThreadMXBean managementThreadMXBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(managementThreadMXBean instanceof com.sun.management.ThreadMXBean);
+
+    this.threadMXBean = (com.sun.management.ThreadMXBean) managementThreadMXBean;
+    assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+    this.entersText = new EntersText("Hello");
+  }
+
+  @Test
+  public void runnerDispatchesMessagesWithoutAllocating() {
+    ModelRunner modelRunner = new ModelRunner().run(model());
+
+    long bytesPerDispatch = measureBytesPerDispatch(() -> modelRunner.reactTo(entersText));
+
+    assertEquals(0, bytesPerDispatch);
+    assertEquals(WARMUP_DISPATCHES + MEASURED_DISPATCHES, messagesHandled);
+  }
+
+  @Test
+  public void runnerRunAsUserDispatchesMessagesWithoutAllocating() {
+    Model model = model();
+    AbstractActor user = model.getUserActor();
+    ModelRunner modelRunner = new ModelRunner().run(model);
+
+    long bytesPerDispatch = measureBytesPerDispatch(() -> modelRunner.as(user).reactTo(entersText));
+
+    assertEquals(0, bytesPerDispatch);
+    assertEquals(WARMUP_DISPATCHES + MEASURED_DISPATCHES, messagesHandled);
+  }
+
+  @Test
+  public void actorDispatchesMessagesWithoutAllocating() {
+    AbstractActor actor = new AbstractActor() {
+      @Override
+      public Model behavior() {
+        return model();
+      }
+    };
+
+    long bytesPerDispatch = measureBytesPerDispatch(() -> actor.reactTo(entersText));
+
+    assertEquals(0, bytesPerDispatch);
+    assertEquals(WARMUP_DISPATCHES + MEASURED_DISPATCHES, messagesHandled);
+  }
+
+  private Model model() {
+    Model model = Model.builder()
+      .useCase("Use case")
+        .basicFlow()
+          .step("Customer enters text").user(EntersText.class).system(this::handlesText).reactWhile(() -> true)
+        .flow("Alternative flow").after("Customer enters text").condition(() -> false)
+          .step("Customer enters alternative text").user(EntersText.class).system(this::handlesText)
+      .build();
+    return model;
+  }
+
+  private long measureBytesPerDispatch(Runnable dispatch) {
+    for (int i = 0; i < WARMUP_DISPATCHES; i++) {
+      dispatch.run();
+    }
+
+    long threadId = Thread.currentThread().getId();
+
+    // Measure the bytes allocated by the measurement itself, to subtract them
+    long overheadStart = threadMXBean.getThreadAllocatedBytes(threadId);
+    long overheadEnd = threadMXBean.getThreadAllocatedBytes(threadId);
+    long overhead = overheadEnd - overheadStart;
+
+    long start = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_DISPATCHES; i++) {
+      dispatch.run();
+    }
+    long end = threadMXBean.getThreadAllocatedBytes(threadId);
+
+    long allocatedBytes = Math.max(0, end - start - overhead);
+    return allocatedBytes / MEASURED_DISPATCHES;
+  }
+
+  private void handlesText(EntersText entersText) {
+    messagesHandled++;
+  }
+
+  public static class EntersText {
+    private final String text;
+
+    public EntersText(String text) {
+      this.text = text;
+    }
+
+    public String getText() {
+      return text;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionRegistryTest extends AbstractTestCase {
+	private ModelEngine modelEngine;
+	private InMemorySessionStore<String> sessionStore;
+	private AtomicLong nanoTime;
+	private int reactionCount;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).system(text -> reactionCount++)
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).on(EntersText.class).system(text -> reactionCount++)
+			.build();
+		this.modelEngine = new ModelEngine(model);
+		this.sessionStore = new InMemorySessionStore<>();
+		this.nanoTime = new AtomicLong();
+	}
+
+	@Test
+	public void createsSessionPerKeyWhenFirstMessageArrives() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).build();
+		assertFalse(registry.contains("Alice"));
+
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Bob", entersText());
+
+		assertEquals(2, registry.size());
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, latestStepName(registry, "Alice"));
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepName(registry, "Bob"));
+	}
+
+	@Test
+	public void dispatchesMessagesOfManyThreadsOneAtATimePerStripe() throws Exception {
+		SessionRegistry<Integer> registry = SessionRegistry.builder(modelEngine).stripes(1).build();
+		int threadCount = 8;
+		int messagesPerThread = 5_000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadCount; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < messagesPerThread; i++) {
+						// Not thread-safe on purpose: the reactions increment a plain counter
+						registry.reactTo(i % 100, entersText());
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(100, registry.size());
+		// Each session reacts twice, then its flow has ended
+		assertEquals(200, reactionCount);
+	}
+
+	@Test
+	public void passivatesLeastRecentlyUsedSessionAndReactivatesIt() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).stripes(1).maxSize(2)
+			.passivateTo(sessionStore).build();
+
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Bob", entersText());
+		registry.reactTo("Carol", entersText());
+
+		assertEquals(2, registry.size());
+		assertFalse(registry.contains("Alice"));
+		assertEquals(1, sessionStore.size());
+
+		registry.reactTo("Alice", entersText());
+
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, latestStepName(registry, "Alice"));
+		assertFalse(registry.contains("Bob"));
+		assertEquals(1, sessionStore.size());
+	}
+
+	@Test
+	public void evictedSessionWithoutStoreStartsOver() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).stripes(1).maxSize(1).build();
+
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Bob", entersText());
+		registry.reactTo("Alice", entersText());
+
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepName(registry, "Alice"));
+	}
+
+	@Test
+	public void evictsIdleSessions() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).expireAfterIdle(10, TimeUnit.SECONDS)
+			.passivateTo(sessionStore).nanoTime(nanoTime::get).build();
+
+		registry.reactTo("Alice", entersText());
+		nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+		registry.reactTo("Bob", entersText());
+		nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(6));
+		registry.evictIdleSessions();
+
+		assertFalse(registry.contains("Alice"));
+		assertTrue(registry.contains("Bob"));
+		assertEquals(1, sessionStore.size());
+
+		registry.reactTo("Alice", entersText());
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, latestStepName(registry, "Alice"));
+	}
+
+	@Test
+	public void accessKeepsSessionFromExpiring() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).stripes(1)
+			.expireAfterIdle(10, TimeUnit.SECONDS).passivateTo(sessionStore).nanoTime(nanoTime::get).build();
+
+		registry.reactTo("Alice", entersText());
+		nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(8));
+		registry.reactTo("Alice", entersText());
+		nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(8));
+		registry.reactTo("Bob", entersText());
+
+		assertTrue(registry.contains("Alice"));
+		assertEquals(0, sessionStore.size());
+	}
+
+	@Test
+	public void passivatesAllSessions() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).passivateTo(sessionStore).build();
+
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Bob", entersText());
+		registry.passivateAll();
+
+		assertEquals(0, registry.size());
+		assertEquals(2, sessionStore.size());
+	}
+
+	@Test
+	public void removesSessionFromRegistryAndStore() {
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).stripes(1).maxSize(1)
+			.passivateTo(sessionStore).build();
+
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Bob", entersText());
+		registry.remove("Alice");
+		registry.remove("Bob");
+
+		assertEquals(0, registry.size());
+		assertEquals(0, sessionStore.size());
+	}
+
+	@Test
+	public void removingSessionDoesNotReactivateIt() {
+		AtomicInteger reactivationCount = new AtomicInteger();
+		InMemorySessionStore<String> countingSessionStore = new InMemorySessionStore<String>() {
+			@Override
+			public OptionalInt reactivate(String key) {
+				reactivationCount.incrementAndGet();
+				return super.reactivate(key);
+			}
+		};
+		SessionRegistry<String> registry = SessionRegistry.builder(modelEngine).stripes(1).maxSize(1)
+			.passivateTo(countingSessionStore).build();
+
+		registry.reactTo("Alice", entersText());
+		registry.reactTo("Bob", entersText());
+		int reactivationsBeforeRemoving = reactivationCount.get();
+		registry.remove("Alice");
+
+		assertEquals(reactivationsBeforeRemoving, reactivationCount.get());
+		assertEquals(0, countingSessionStore.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotAcceptZeroStripes() {
+		SessionRegistry.builder(modelEngine).stripes(0);
+	}
+
+	private String latestStepName(SessionRegistry<String> registry, String key) {
+		return registry.getLatestStep(key).get().getName();
+	}
+}
@@ -0,0 +1,166 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.scheduler.TimingWheelScheduler;
+import org.requirementsascode.scheduler.VirtualClock;
+
+public class TimeoutTest extends AbstractTestCase {
+	private static final String CUSTOMER_TIMES_OUT = "Customer times out";
+
+	private VirtualClock clock;
+	private TimingWheelScheduler scheduler;
+	private Model model;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.clock = new VirtualClock();
+		this.scheduler = TimingWheelScheduler.builder().virtualClock(clock).start();
+		this.model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).system(displaysEnteredText())
+						.timeoutAfter(15, TimeUnit.MINUTES, new TimedOut())
+					.step(CUSTOMER_ENTERS_NUMBER).on(EntersNumber.class).system(displaysEnteredNumber())
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).on(EntersText.class).system(displaysEnteredText())
+						.timeoutAfter(1, TimeUnit.MINUTES, new TimedOut())
+				.flow(ALTERNATIVE_FLOW).after(CUSTOMER_ENTERS_TEXT)
+					.step(CUSTOMER_TIMES_OUT).on(TimedOut.class).system(() -> {})
+			.build();
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void buildsStepWithTimeout() {
+		Step step = model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT);
+		assertEquals(TimeUnit.MINUTES.toNanos(15), step.getTimeoutNanos());
+		assertEquals(TimedOut.class, step.getTimeoutMessage().get().getClass());
+	}
+
+	@Test
+	public void postsTimeoutMessageIfNoOtherStepRunsInTime() {
+		modelRunner.scheduleWith(scheduler).run(model);
+		modelRunner.reactTo(entersText());
+
+		clock.advance(14, TimeUnit.MINUTES);
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepName());
+
+		clock.advance(1, TimeUnit.MINUTES);
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_TIMES_OUT);
+	}
+
+	@Test
+	public void nextStepCancelsTimeout() {
+		modelRunner.scheduleWith(scheduler).run(model);
+		modelRunner.reactTo(entersText());
+		clock.advance(10, TimeUnit.MINUTES);
+		modelRunner.reactTo(entersNumber());
+
+		clock.advance(1, TimeUnit.HOURS);
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER);
+		assertEquals(0, scheduler.getPendingCount());
+	}
+
+	@Test
+	public void nextStepSchedulesItsOwnTimeout() {
+		modelRunner.scheduleWith(scheduler).run(model);
+		modelRunner.reactTo(entersText(), entersNumber(), entersText());
+
+		// The timeout of the last step is posted, but no step reacts to it
+		clock.advance(15, TimeUnit.MINUTES);
+
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, latestStepName());
+		assertEquals(0, scheduler.getPendingCount());
+	}
+
+	@Test
+	public void stopCancelsTimeout() {
+		modelRunner.scheduleWith(scheduler).run(model);
+		modelRunner.reactTo(entersText());
+		modelRunner.stop();
+
+		assertEquals(0, scheduler.getPendingCount());
+	}
+
+	@Test
+	public void postsTimeoutMessageToOwningActor() {
+		TimingOutActor actor = new TimingOutActor(model);
+		actor.useMailbox(Runnable::run);
+		actor.getModelRunner().scheduleWith(scheduler);
+		actor.reactTo(entersText());
+
+		clock.advance(15, TimeUnit.MINUTES);
+
+		assertEquals(CUSTOMER_TIMES_OUT, actor.getModelRunner().getLatestStep().get().getName());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void throwsExceptionIfOwningActorIsNotInMailboxMode() {
+		TimingOutActor actor = new TimingOutActor(model);
+		actor.getModelRunner().scheduleWith(scheduler);
+		try {
+			actor.reactTo(entersText());
+		} finally {
+			assertFalse(actor.getModelRunner().getLatestStep().isPresent());
+			assertEquals(0, scheduler.getPendingCount());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void throwsExceptionIfRunnerHasNoScheduler() {
+		modelRunner.run(model);
+		try {
+			modelRunner.reactTo(entersText());
+		} finally {
+			assertFalse(modelRunner.getLatestStep().isPresent());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotBuildStepWithNegativeTimeout() {
+		Model.builder()
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).system(displaysEnteredText())
+						.timeoutAfter(-1, TimeUnit.MINUTES, new TimedOut());
+	}
+
+	@Test
+	public void scheduledMessageIsPostedToModelRunner() {
+		modelRunner.scheduleWith(scheduler).run(model);
+		scheduler.postDelayed(modelRunner, entersText(), 1, TimeUnit.SECONDS);
+		assertFalse(modelRunner.getLatestStep().isPresent());
+
+		clock.advance(1, TimeUnit.SECONDS);
+
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepName());
+	}
+
+	private static class TimedOut {
+	}
+
+	private static class TimingOutActor extends AbstractActor {
+		private final Model behavior;
+
+		TimingOutActor(Model behavior) {
+			this.behavior = behavior;
+		}
+
+		@Override
+		public Model behavior() {
+			return behavior;
+		}
+	}
+}
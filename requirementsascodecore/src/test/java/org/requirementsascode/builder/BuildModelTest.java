@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.requirementsascode.AbstractActor;
 import org.requirementsascode.AbstractTestCase;
 import org.requirementsascode.Actor;
+import org.requirementsascode.CompiledModel;
 import org.requirementsascode.Flow;
 import org.requirementsascode.FlowStep;
 import org.requirementsascode.Model;
@@ -741,4 +742,64 @@ public class BuildModelTest extends AbstractTestCase {
 		assertTrue(actor1 == actor2);
 		assertEquals(customer, actor1);
   }
+
+  @Test
+  public void compilesStepsWithIdsAndSlices() {
+		Model model = 
+			modelBuilder.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+				.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_NUMBER)
+					.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.useCase(USE_CASE_2)
+				.basicFlow()
+					.step(SYSTEM_DISPLAYS_NUMBER).on(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+	
+		CompiledModel compiledModel = model.getCompiledModel();
+		assertEquals(4, compiledModel.getStepCount());
+		
+		for (int stepId = 0; stepId < compiledModel.getStepCount(); stepId++) {
+			Step step = compiledModel.getStep(stepId);
+			assertEquals(stepId, compiledModel.getStepId(step));
+			assertEquals(step, compiledModel.getSteps().get(stepId));
+		}
+		
+		UseCase useCase = model.findUseCase(USE_CASE);
+		List<Step> useCaseSteps = compiledModel.getSteps(useCase);
+		assertEquals(3, useCaseSteps.size());
+		assertEquals(CUSTOMER_ENTERS_TEXT, useCaseSteps.get(0).getName());
+		assertEquals(CUSTOMER_ENTERS_ALTERNATIVE_TEXT, useCaseSteps.get(2).getName());
+		
+		List<FlowStep> basicFlowSteps = compiledModel.getSteps(useCase.getBasicFlow());
+		assertEquals(2, basicFlowSteps.size());
+		assertEquals(CUSTOMER_ENTERS_NUMBER, basicFlowSteps.get(1).getName());
+		
+		List<FlowStep> alternativeFlowSteps = compiledModel.getSteps(useCase.findFlow(ALTERNATIVE_FLOW));
+		assertEquals(1, alternativeFlowSteps.size());
+		
+		List<Step> useCase2Steps = compiledModel.getSteps(model.findUseCase(USE_CASE_2));
+		assertEquals(1, useCase2Steps.size());
+		assertEquals(3, compiledModel.getStepId(useCase2Steps.get(0)));
+  }
+  
+  @Test
+  public void recompilesModelIfStepIsAddedAfterBuilding() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.on(EntersText.class).system(displaysEnteredText())
+			.build();
+		CompiledModel compiledModel = model.getCompiledModel();
+		assertTrue(compiledModel == model.getCompiledModel());
+		
+		modelBuilder.useCase(USE_CASE_2)
+			.on(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		CompiledModel recompiledModel = model.getCompiledModel();
+		assertFalse(compiledModel == recompiledModel);
+		assertEquals(1, compiledModel.getStepCount());
+		assertEquals(2, recompiledModel.getStepCount());
+		assertEquals(2, model.getSteps().size());
+  }
 }
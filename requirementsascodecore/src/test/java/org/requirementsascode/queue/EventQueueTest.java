@@ -0,0 +1,247 @@
+package org.requirementsascode.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.EventQueueFull;
+
+public class EventQueueTest {
+	private List<Object> consumedEvents;
+	private CountDownLatch firstEventConsumed;
+	private CountDownLatch consumerReleased;
+	private EventQueue eventQueue;
+
+	@Before
+	public void setup() {
+		this.consumedEvents = Collections.synchronizedList(new ArrayList<>());
+		this.firstEventConsumed = new CountDownLatch(1);
+		this.consumerReleased = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		consumerReleased.countDown();
+		if (eventQueue != null) {
+			eventQueue.stop();
+		}
+	}
+
+	@Test
+	public void consumesEventsInOrder() {
+		eventQueue = new EventQueue(consumedEvents::add);
+
+		for (int i = 0; i < 1000; i++) {
+			eventQueue.put(i);
+		}
+		eventQueue.drainAndStop();
+
+		assertEquals(1000, consumedEvents.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, consumedEvents.get(i));
+		}
+		assertTrue(eventQueue.isEmpty());
+		assertTrue(eventQueue.isStopped());
+	}
+
+	@Test
+	public void consumesBatchesUpToMaxBatchSize() throws Exception {
+		List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		eventQueue = EventQueue.builder().maxBatchSize(4).consumeBatchesWith(batch -> {
+			batchSizes.add(batch.size());
+			consumedEvents.addAll(batch);
+			blockFirstEvent();
+		});
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		for (int i = 1; i <= 10; i++) {
+			eventQueue.put(i);
+		}
+		consumerReleased.countDown();
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(1, 4, 4, 2), batchSizes);
+		assertEquals(11, consumedEvents.size());
+	}
+
+	@Test
+	public void dropsOldestEventWhenFull() throws Exception {
+		eventQueue = EventQueue.builder().capacity(2).whenFull(BackpressurePolicy.DROP_OLDEST)
+			.consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		assertTrue(eventQueue.offer(1));
+		assertTrue(eventQueue.offer(2));
+		assertTrue(eventQueue.offer(3));
+		consumerReleased.countDown();
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(0, 2, 3), consumedEvents);
+		assertEquals(1, eventQueue.getDroppedEventCount());
+	}
+
+	@Test
+	public void dropsNewestEventWhenFull() throws Exception {
+		eventQueue = EventQueue.builder().capacity(2).whenFull(BackpressurePolicy.DROP_NEWEST)
+			.consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		assertTrue(eventQueue.offer(1));
+		assertTrue(eventQueue.offer(2));
+		assertFalse(eventQueue.offer(3));
+		consumerReleased.countDown();
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(0, 1, 2), consumedEvents);
+		assertEquals(1, eventQueue.getDroppedEventCount());
+	}
+
+	@Test(expected = EventQueueFull.class)
+	public void rejectsEventWhenFull() throws Exception {
+		eventQueue = EventQueue.builder().capacity(1).whenFull(BackpressurePolicy.REJECT)
+			.consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		eventQueue.put(1);
+		eventQueue.put(2);
+	}
+
+	@Test
+	public void blocksWhenFullUntilThereIsSpace() throws Exception {
+		eventQueue = EventQueue.builder().capacity(1).consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		eventQueue.put(1);
+		CompletableFuture<Boolean> blockedPut = CompletableFuture.supplyAsync(() -> eventQueue.offer(2));
+		Thread.sleep(50);
+		assertFalse(blockedPut.isDone());
+
+		consumerReleased.countDown();
+		assertTrue(blockedPut.get(5, TimeUnit.SECONDS));
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(0, 1, 2), consumedEvents);
+	}
+
+	@Test
+	public void stopReturnsPendingEvents() throws Exception {
+		eventQueue = new EventQueue(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		eventQueue.put(1);
+		eventQueue.put(2);
+		CompletableFuture<List<Object>> stop = CompletableFuture.supplyAsync(eventQueue::stopAndReturnPendingEvents);
+		while (!eventQueue.isStopped()) {
+			Thread.yield();
+		}
+		consumerReleased.countDown();
+
+		assertEquals(Arrays.asList(1, 2), stop.get(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(0), consumedEvents);
+	}
+
+	@Test
+	public void doesNotAcceptEventsAfterStop() {
+		eventQueue = new EventQueue(consumedEvents::add);
+		eventQueue.stop();
+
+		assertFalse(eventQueue.offer(0));
+		assertTrue(eventQueue.isEmpty());
+	}
+
+	@Test
+	public void consumesEventsWithSeveralConsumersOfExecutor() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			AtomicInteger eventCount = new AtomicInteger();
+			eventQueue = EventQueue.builder().capacity(100).consumers(4).executor(executor)
+				.consumeWith(event -> eventCount.incrementAndGet());
+
+			for (int i = 0; i < 10_000; i++) {
+				eventQueue.put(i);
+			}
+			eventQueue.drainAndStop();
+
+			assertEquals(10_000, eventCount.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void createsConsumerThreadWithThreadFactory() {
+		eventQueue = EventQueue.builder().threadFactory(runnable -> new Thread(runnable, "EventQueueTest"))
+			.consumeWith(event -> consumedEvents.add(Thread.currentThread().getName()));
+
+		eventQueue.put(0);
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList("EventQueueTest"), consumedEvents);
+	}
+
+	@Test
+	public void idleConsumerBlocksUntilStopped() throws Exception {
+		List<Thread> consumerThreads = new ArrayList<>();
+		eventQueue = EventQueue.builder().threadFactory(runnable -> {
+			Thread consumerThread = new Thread(runnable);
+			consumerThreads.add(consumerThread);
+			return consumerThread;
+		}).consumeWith(consumedEvents::add);
+		Thread consumerThread = consumerThreads.get(0);
+
+		// An idle consumer waits without timeout, instead of polling
+		while (consumerThread.getState() != Thread.State.WAITING) {
+			assertTrue(consumerThread.isAlive());
+			Thread.sleep(1);
+		}
+		eventQueue.stop();
+		consumerThread.join(5000);
+
+		assertFalse(consumerThread.isAlive());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionWhenCapacityIsNotPositive() {
+		EventQueue.builder().capacity(0);
+	}
+
+	private void consumeAndBlockFirstEvent(Object event) {
+		consumedEvents.add(event);
+		blockFirstEvent();
+	}
+
+	private void blockFirstEvent() {
+		if (firstEventConsumed.getCount() > 0) {
+			firstEventConsumed.countDown();
+			try {
+				consumerReleased.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void awaitFirstEvent() throws InterruptedException {
+		assertTrue(firstEventConsumed.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,278 @@
+package org.requirementsascode.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.EventQueueFull;
+
+public class RingBufferEventQueueTest {
+	private List<Object> consumedEvents;
+	private CountDownLatch firstEventConsumed;
+	private CountDownLatch consumerReleased;
+	private RingBufferEventQueue eventQueue;
+
+	@Before
+	public void setup() {
+		this.consumedEvents = Collections.synchronizedList(new ArrayList<>());
+		this.firstEventConsumed = new CountDownLatch(1);
+		this.consumerReleased = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		consumerReleased.countDown();
+		if (eventQueue != null) {
+			eventQueue.stop();
+		}
+	}
+
+	@Test
+	public void consumesEventsOfSingleProducerInOrder() {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			consumedEvents.clear();
+			eventQueue = RingBufferEventQueue.builder().capacity(16).waitStrategy(waitStrategy).consumeWith(consumedEvents::add);
+
+			for (int i = 0; i < 10_000; i++) {
+				eventQueue.put(i);
+			}
+			eventQueue.drainAndStop();
+
+			assertEquals(10_000, consumedEvents.size());
+			for (int i = 0; i < 10_000; i++) {
+				assertEquals(i, consumedEvents.get(i));
+			}
+			assertTrue(eventQueue.isEmpty());
+		}
+	}
+
+	@Test
+	public void consumesEventsOfMultipleProducersInOrderPerProducer() throws Exception {
+		int producerCount = 4;
+		int eventsPerProducer = 10_000;
+		eventQueue = RingBufferEventQueue.builder().capacity(64).producers(ProducerType.MULTI)
+			.waitStrategy(WaitStrategy.YIELD).consumeWith(consumedEvents::add);
+
+		ExecutorService executor = Executors.newFixedThreadPool(producerCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int producer = 0; producer < producerCount; producer++) {
+				int producerId = producer;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < eventsPerProducer; i++) {
+						eventQueue.put(new int[] { producerId, i });
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		eventQueue.drainAndStop();
+
+		assertEquals(producerCount * eventsPerProducer, consumedEvents.size());
+		int[] nextEventOfProducer = new int[producerCount];
+		for (Object consumedEvent : consumedEvents) {
+			int[] event = (int[]) consumedEvent;
+			assertEquals(nextEventOfProducer[event[0]]++, event[1]);
+		}
+	}
+
+	@Test
+	public void replacesEventQueueCreatedWithConstructor() throws Exception {
+		ForwardingEventQueue forwardingEventQueue = new RingBufferEventQueue(consumedEvents::add);
+		eventQueue = (RingBufferEventQueue) forwardingEventQueue;
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> evenEvents = executor.submit(() -> putEvents(forwardingEventQueue, 0));
+			Future<?> oddEvents = executor.submit(() -> putEvents(forwardingEventQueue, 1));
+			evenEvents.get();
+			oddEvents.get();
+		} finally {
+			executor.shutdown();
+		}
+		forwardingEventQueue.drainAndStop();
+
+		assertEquals(10_000, consumedEvents.size());
+		assertEquals(RingBufferEventQueueBuilder.DEFAULT_CAPACITY, forwardingEventQueue.getCapacity());
+	}
+
+	private void putEvents(ForwardingEventQueue forwardingEventQueue, int firstEvent) {
+		for (int i = firstEvent; i < 10_000; i += 2) {
+			forwardingEventQueue.put(i);
+		}
+	}
+
+	@Test
+	public void roundsCapacityUpToPowerOfTwo() {
+		eventQueue = RingBufferEventQueue.builder().capacity(1000).consumeWith(consumedEvents::add);
+		assertEquals(1024, eventQueue.getCapacity());
+	}
+
+	@Test
+	public void consumesBatchesUpToMaxBatchSize() throws Exception {
+		List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		eventQueue = RingBufferEventQueue.builder().maxBatchSize(4).consumeBatchesWith(batch -> {
+			batchSizes.add(batch.size());
+			consumedEvents.addAll(batch);
+			blockFirstEvent();
+		});
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		for (int i = 1; i <= 10; i++) {
+			eventQueue.put(i);
+		}
+		consumerReleased.countDown();
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(1, 4, 4, 2), batchSizes);
+		assertEquals(11, consumedEvents.size());
+	}
+
+	@Test
+	public void dropsNewestEventWhenFull() throws Exception {
+		eventQueue = RingBufferEventQueue.builder().capacity(2).whenFull(BackpressurePolicy.DROP_NEWEST)
+			.consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		assertTrue(eventQueue.offer(1));
+		assertTrue(eventQueue.offer(2));
+		assertFalse(eventQueue.offer(3));
+		consumerReleased.countDown();
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(0, 1, 2), consumedEvents);
+		assertEquals(1, eventQueue.getDroppedEventCount());
+	}
+
+	@Test(expected = EventQueueFull.class)
+	public void rejectsEventWhenFull() throws Exception {
+		eventQueue = RingBufferEventQueue.builder().capacity(1).whenFull(BackpressurePolicy.REJECT)
+			.consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		eventQueue.put(1);
+		eventQueue.put(2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotSupportDroppingOldestEvent() {
+		RingBufferEventQueue.builder().whenFull(BackpressurePolicy.DROP_OLDEST);
+	}
+
+	@Test
+	public void blocksWhenFullUntilThereIsSpace() throws Exception {
+		eventQueue = RingBufferEventQueue.builder().capacity(1).consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		eventQueue.put(1);
+		CompletableFuture<Boolean> blockedPut = CompletableFuture.supplyAsync(() -> eventQueue.offer(2));
+		Thread.sleep(50);
+		assertFalse(blockedPut.isDone());
+
+		consumerReleased.countDown();
+		assertTrue(blockedPut.get(5, TimeUnit.SECONDS));
+		eventQueue.drainAndStop();
+
+		assertEquals(Arrays.asList(0, 1, 2), consumedEvents);
+	}
+
+	@Test
+	public void stopReturnsPendingEvents() throws Exception {
+		eventQueue = RingBufferEventQueue.builder().consumeWith(this::consumeAndBlockFirstEvent);
+
+		eventQueue.put(0);
+		awaitFirstEvent();
+		eventQueue.put(1);
+		eventQueue.put(2);
+		CompletableFuture<List<Object>> stop = CompletableFuture.supplyAsync(eventQueue::stopAndReturnPendingEvents);
+		while (!eventQueue.isStopped()) {
+			Thread.yield();
+		}
+		consumerReleased.countDown();
+
+		assertEquals(Arrays.asList(1, 2), stop.get(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(0), consumedEvents);
+	}
+
+	@Test
+	public void doesNotAcceptEventsAfterStop() {
+		eventQueue = RingBufferEventQueue.builder().consumeWith(consumedEvents::add);
+		eventQueue.stop();
+
+		assertFalse(eventQueue.offer(0));
+		assertTrue(eventQueue.isEmpty());
+	}
+
+	@Test
+	public void idleConsumerBlocksUntilEventIsPut() throws Exception {
+		List<Thread> consumerThreads = new ArrayList<>();
+		eventQueue = RingBufferEventQueue.builder().threadFactory(runnable -> {
+			Thread consumerThread = new Thread(runnable);
+			consumerThreads.add(consumerThread);
+			return consumerThread;
+		}).producers(ProducerType.MULTI).consumeWith(consumedEvents::add);
+		Thread consumerThread = consumerThreads.get(0);
+
+		// An idle consumer parks without timeout, instead of polling
+		awaitWaiting(consumerThread);
+		eventQueue.put(0);
+		while (consumedEvents.isEmpty()) {
+			Thread.sleep(1);
+		}
+		awaitWaiting(consumerThread);
+		eventQueue.stop();
+		consumerThread.join(5000);
+
+		assertEquals(Arrays.asList(0), consumedEvents);
+		assertFalse(consumerThread.isAlive());
+	}
+
+	private void awaitWaiting(Thread consumerThread) throws InterruptedException {
+		while (consumerThread.getState() != Thread.State.WAITING) {
+			assertTrue(consumerThread.isAlive());
+			Thread.sleep(1);
+		}
+	}
+
+	private void consumeAndBlockFirstEvent(Object event) {
+		consumedEvents.add(event);
+		blockFirstEvent();
+	}
+
+	private void blockFirstEvent() {
+		if (firstEventConsumed.getCount() > 0) {
+			firstEventConsumed.countDown();
+			try {
+				consumerReleased.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void awaitFirstEvent() throws InterruptedException {
+		assertTrue(firstEventConsumed.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,159 @@
+package org.requirementsascode.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelSchedulerTest {
+	private VirtualClock clock;
+	private TimingWheelScheduler scheduler;
+	private List<String> ranTasks;
+
+	@Before
+	public void setup() {
+		this.clock = new VirtualClock();
+		this.scheduler = TimingWheelScheduler.builder().tickDuration(10, TimeUnit.MILLISECONDS).virtualClock(clock)
+			.start();
+		this.ranTasks = new ArrayList<>();
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void runsTaskWhenDelayHasExpired() {
+		scheduler.schedule(recordingTask("Task"), 25, TimeUnit.MILLISECONDS);
+
+		clock.advance(20, TimeUnit.MILLISECONDS);
+		assertTrue(ranTasks.isEmpty());
+
+		clock.advance(10, TimeUnit.MILLISECONDS);
+		assertEquals(Arrays.asList("Task"), ranTasks);
+		assertEquals(0, scheduler.getPendingCount());
+	}
+
+	@Test
+	public void runsTaskWithoutDelayOnNextTick() {
+		ScheduledTask task = scheduler.schedule(recordingTask("Task"), 0, TimeUnit.MILLISECONDS);
+
+		clock.advance(10, TimeUnit.MILLISECONDS);
+
+		assertTrue(task.isExpired());
+		assertEquals(Arrays.asList("Task"), ranTasks);
+	}
+
+	@Test
+	public void runsTasksOfAllLevelsInOrderOfTheirDeadlines() {
+		scheduler.schedule(recordingTask("1 hour"), 1, TimeUnit.HOURS);
+		scheduler.schedule(recordingTask("50 milliseconds"), 50, TimeUnit.MILLISECONDS);
+		scheduler.schedule(recordingTask("3 days"), 3, TimeUnit.DAYS);
+		scheduler.schedule(recordingTask("700 milliseconds"), 700, TimeUnit.MILLISECONDS);
+		scheduler.schedule(recordingTask("61 minutes"), 61, TimeUnit.MINUTES);
+		scheduler.schedule(recordingTask("45 seconds"), 45, TimeUnit.SECONDS);
+
+		clock.advance(1, TimeUnit.HOURS);
+		assertEquals(Arrays.asList("50 milliseconds", "700 milliseconds", "45 seconds", "1 hour"), ranTasks);
+
+		clock.advance(3, TimeUnit.DAYS);
+		assertEquals(Arrays.asList("50 milliseconds", "700 milliseconds", "45 seconds", "1 hour", "61 minutes", "3 days"),
+			ranTasks);
+	}
+
+	@Test
+	public void runsTaskBeyondRangeOfWheel() {
+		// 64^6 ticks of 10 milliseconds are about 21 years
+		scheduler.schedule(recordingTask("Task"), 30 * 365, TimeUnit.DAYS);
+
+		clock.advance(30 * 365 - 1, TimeUnit.DAYS);
+		assertTrue(ranTasks.isEmpty());
+
+		clock.advance(1, TimeUnit.DAYS);
+		assertEquals(Arrays.asList("Task"), ranTasks);
+	}
+
+	@Test
+	public void runsTaskScheduledAfterClockAdvancedWithoutTasks() {
+		clock.advance(5, TimeUnit.HOURS);
+		scheduler.schedule(recordingTask("Task"), 1, TimeUnit.SECONDS);
+
+		clock.advance(999, TimeUnit.MILLISECONDS);
+		assertTrue(ranTasks.isEmpty());
+
+		clock.advance(1, TimeUnit.MILLISECONDS);
+		assertEquals(Arrays.asList("Task"), ranTasks);
+	}
+
+	@Test
+	public void doesNotRunCancelledTask() {
+		ScheduledTask task = scheduler.schedule(recordingTask("Cancelled"), 2, TimeUnit.MINUTES);
+		scheduler.schedule(recordingTask("Task"), 3, TimeUnit.MINUTES);
+
+		assertTrue(task.cancel());
+		assertFalse(task.cancel());
+		assertEquals(1, scheduler.getPendingCount());
+
+		clock.advance(5, TimeUnit.MINUTES);
+		assertTrue(task.isCancelled());
+		assertEquals(Arrays.asList("Task"), ranTasks);
+	}
+
+	@Test
+	public void shutdownCancelsPendingTasks() {
+		ScheduledTask task = scheduler.schedule(recordingTask("Task"), 1, TimeUnit.SECONDS);
+
+		List<Runnable> cancelledTasks = scheduler.shutdown();
+		clock.advance(1, TimeUnit.SECONDS);
+
+		assertEquals(1, cancelledTasks.size());
+		assertTrue(task.isCancelled());
+		assertTrue(ranTasks.isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void doesNotScheduleTaskAfterShutdown() {
+		scheduler.shutdown();
+		scheduler.schedule(recordingTask("Task"), 1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void runsTasksOnItsOwnThreadWithSystemClock() throws InterruptedException {
+		TimingWheelScheduler systemClockScheduler = TimingWheelScheduler.builder().tickDuration(1, TimeUnit.MILLISECONDS)
+			.start();
+		try {
+			CountDownLatch tasksRan = new CountDownLatch(2);
+			List<String> ranTasks = Collections.synchronizedList(new ArrayList<>());
+			long start = System.nanoTime();
+			systemClockScheduler.schedule(() -> {
+				ranTasks.add("Later");
+				tasksRan.countDown();
+			}, 40, TimeUnit.MILLISECONDS);
+			systemClockScheduler.schedule(() -> {
+				ranTasks.add("Sooner");
+				tasksRan.countDown();
+			}, 20, TimeUnit.MILLISECONDS);
+
+			assertTrue(tasksRan.await(5, TimeUnit.SECONDS));
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+			assertEquals(Arrays.asList("Sooner", "Later"), ranTasks);
+		} finally {
+			systemClockScheduler.shutdown();
+		}
+	}
+
+	private Runnable recordingTask(String name) {
+		return () -> ranTasks.add(name);
+	}
+}
@@ -0,0 +1,67 @@
+package creditcard_eventsourcing.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import creditcard_eventsourcing.model.CreditCardAggregateRoot;
+import creditcard_eventsourcing.model.event.CardWithdrawn;
+import creditcard_eventsourcing.model.event.LimitAssigned;
+import creditcard_eventsourcing.persistence.EventStore;
+import creditcard_eventsourcing.persistence.InMemoryEventStore;
+import creditcard_eventsourcing.persistence.SnapshotStore;
+
+/**
+ * Measures the time it takes to load the aggregate roots of 100,000 credit
+ * cards, the way the <code>/cards</code> endpoint of the controller does. Each
+ * card has a limit assigned, and has been withdrawn from once.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CreditCardListBenchmark {
+	private static final int CARD_COUNT = 100_000;
+
+	private EventStore eventStore;
+	private SnapshotStore snapshotStore;
+
+	@Setup
+	public void setup() {
+		this.eventStore = new InMemoryEventStore();
+		this.snapshotStore = new SnapshotStore();
+		for (int i = 0; i < CARD_COUNT; i++) {
+			UUID uuid = UUID.randomUUID();
+			eventStore.append(uuid, 0, Arrays.asList(new LimitAssigned(uuid, BigDecimal.TEN, Instant.now()),
+				new CardWithdrawn(uuid, BigDecimal.ONE, Instant.now())));
+		}
+	}
+
+	@Benchmark
+	public List<CreditCardAggregateRoot> listCreditCards() {
+		List<CreditCardAggregateRoot> creditCards = new ArrayList<>(CARD_COUNT);
+		for (UUID uuid : eventStore.uuids()) {
+			creditCards.add(new CreditCardAggregateRoot(uuid, eventStore, snapshotStore));
+		}
+		return creditCards;
+	}
+}
@@ -0,0 +1,84 @@
+package creditcard_eventsourcing.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import creditcard_eventsourcing.model.CreditCardAggregateRoot;
+import creditcard_eventsourcing.model.command.RequestRepay;
+import creditcard_eventsourcing.model.event.CardRepaid;
+import creditcard_eventsourcing.model.event.DomainEvent;
+import creditcard_eventsourcing.model.event.LimitAssigned;
+import creditcard_eventsourcing.persistence.EventStore;
+import creditcard_eventsourcing.persistence.InMemoryEventStore;
+import creditcard_eventsourcing.persistence.SnapshotStore;
+
+/**
+ * Measures the latency of a command for a credit card with a long history. The
+ * aggregate root either replays all events of the card for each command, or
+ * loads the card from its latest snapshot and replays only the events after it.
+ * With snapshots, the latency should not depend on the number of events.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreditCardSnapshotBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	private int eventCount;
+
+	private CreditCardAggregateRoot replayingAggregateRoot;
+	private CreditCardAggregateRoot snapshottingAggregateRoot;
+	private RequestRepay requestRepay;
+
+	@Setup
+	public void setup() {
+		this.requestRepay = new RequestRepay(BigDecimal.ONE);
+
+		EventStore eventStore = new InMemoryEventStore();
+		UUID replayedCard = cardWithHistory(eventStore);
+		this.replayingAggregateRoot = new CreditCardAggregateRoot(replayedCard, eventStore);
+
+		// The command of the setup brings the card to a multiple of the snapshot
+		// interval, so the benchmark starts with a snapshot
+		UUID snapshottedCard = cardWithHistory(eventStore);
+		this.snapshottingAggregateRoot = new CreditCardAggregateRoot(snapshottedCard, eventStore, new SnapshotStore());
+		snapshottingAggregateRoot.accept(requestRepay);
+	}
+
+	private UUID cardWithHistory(EventStore eventStore) {
+		UUID uuid = UUID.randomUUID();
+		List<DomainEvent> events = new ArrayList<>();
+		events.add(new LimitAssigned(uuid, BigDecimal.TEN, Instant.now()));
+		for (int i = 2; i < eventCount; i++) {
+			events.add(new CardRepaid(uuid, BigDecimal.ONE, Instant.now()));
+		}
+		eventStore.append(uuid, 0, events);
+		return uuid;
+	}
+
+	@Benchmark
+	public CreditCardAggregateRoot acceptReplayingAllEvents() {
+		replayingAggregateRoot.accept(requestRepay);
+		return replayingAggregateRoot;
+	}
+
+	@Benchmark
+	public CreditCardAggregateRoot acceptLoadingFromSnapshot() {
+		snapshottingAggregateRoot.accept(requestRepay);
+		return snapshottingAggregateRoot;
+	}
+}
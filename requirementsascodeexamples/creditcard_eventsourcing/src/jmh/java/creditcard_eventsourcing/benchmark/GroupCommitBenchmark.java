@@ -0,0 +1,94 @@
+package creditcard_eventsourcing.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import creditcard_eventsourcing.model.event.CardRepaid;
+import creditcard_eventsourcing.model.event.DomainEvent;
+import creditcard_eventsourcing.persistence.GroupCommitEventStore;
+import creditcard_eventsourcing.persistence.MappedFileEventStore;
+
+/**
+ * Measures the throughput of 16 threads that durably append events to the
+ * streams of different cards. Each append is either forced to disk on its own,
+ * or committed in a group with the appends of the other threads. The segment
+ * files are created in the temporary directory, so make sure it is on a local
+ * disk, not in memory.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class GroupCommitBenchmark {
+	@Param({ "0", "200" })
+	private long maxWaitMicros;
+
+	private Path directory;
+	private MappedFileEventStore forcingEventStore;
+	private GroupCommitEventStore groupCommitEventStore;
+
+	@Setup
+	public void setup() throws IOException {
+		this.directory = Files.createTempDirectory("GroupCommitBenchmark");
+		this.forcingEventStore = new MappedFileEventStore(directory.resolve("forcing"));
+		this.groupCommitEventStore = new GroupCommitEventStore(new MappedFileEventStore(directory.resolve("group")), 64,
+			maxWaitMicros, TimeUnit.MICROSECONDS);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		forcingEventStore.close();
+		groupCommitEventStore.close();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(file -> file.delete());
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Card {
+		private UUID uuid;
+		private List<DomainEvent> events;
+		private int version;
+
+		@Setup
+		public void setup() {
+			this.uuid = UUID.randomUUID();
+			this.events = Collections.singletonList(new CardRepaid(uuid, BigDecimal.ONE, Instant.now()));
+		}
+	}
+
+	@Benchmark
+	public int appendForcingEachAppend(Card card) {
+		card.version = forcingEventStore.append(card.uuid, card.version, card.events);
+		forcingEventStore.force();
+		return card.version;
+	}
+
+	@Benchmark
+	public int appendWithGroupCommit(Card card) {
+		card.version = groupCommitEventStore.append(card.uuid, card.version, card.events);
+		return card.version;
+	}
+}
@@ -12,6 +12,7 @@ import creditcard_eventsourcing.model.CreditCardAggregateRoot;
 import creditcard_eventsourcing.model.command.RequestToAssignLimit;
 import creditcard_eventsourcing.model.command.RequestWithdrawal;
 import creditcard_eventsourcing.persistence.EventStore;
+import creditcard_eventsourcing.persistence.SnapshotStore;
 
 /**
  * Based on code by Jakub Pilimon:
@@ -23,9 +24,11 @@ import creditcard_eventsourcing.persistence.EventStore;
 public class EventsourcingApplication {
 
 	private final EventStore eventStore;
+	private final SnapshotStore snapshotStore;
 
-	public EventsourcingApplication(EventStore eventStore) {
+	public EventsourcingApplication(EventStore eventStore, SnapshotStore snapshotStore) {
 		this.eventStore = eventStore;
+		this.snapshotStore = snapshotStore;
 	}
 
 	public static void main(String[] args) {
@@ -34,7 +37,7 @@ public class EventsourcingApplication {
 
 	@Scheduled(fixedRate = 2000)
 	public void randomCards() {
-		CreditCardAggregateRoot cardModelRunner = new CreditCardAggregateRoot(UUID.randomUUID(), eventStore);
+		CreditCardAggregateRoot cardModelRunner = new CreditCardAggregateRoot(UUID.randomUUID(), eventStore, snapshotStore);
 		cardModelRunner.accept(new RequestToAssignLimit(BigDecimal.TEN));
 		cardModelRunner.accept(new RequestWithdrawal(BigDecimal.ONE));
 	}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import creditcard_eventsourcing.model.CreditCardAggregateRoot;
 import creditcard_eventsourcing.persistence.EventStore;
+import creditcard_eventsourcing.persistence.SnapshotStore;
 
 /**
  * Based on code by Jakub Pilimon:
@@ -21,13 +22,16 @@ import creditcard_eventsourcing.persistence.EventStore;
 class CreditCardController {
 	@Autowired
 	EventStore eventStore;
+	
+	@Autowired
+	SnapshotStore snapshotStore;
 
 	@GetMapping("/cards")
 	List<CreditCardAggregateRoot> creditCardList() {
 		List<CreditCardAggregateRoot> creditCards = new ArrayList<>();
 		Set<UUID> uuids = eventStore.uuids();
 		for (UUID uuid : uuids) {
-			CreditCardAggregateRoot creditCard = new CreditCardAggregateRoot(uuid, eventStore);
+			CreditCardAggregateRoot creditCard = new CreditCardAggregateRoot(uuid, eventStore, snapshotStore);
 			creditCards.add(creditCard);
 		}
 		return creditCards;
@@ -2,12 +2,14 @@ package creditcard_eventsourcing.model;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.requirementsascode.Model;
-import org.requirementsascode.ModelRunner;
+import org.requirementsascode.ModelEngine;
+import org.requirementsascode.Session;
 import org.requirementsascode.Step;
 
 import creditcard_eventsourcing.model.event.CardRepaid;
@@ -23,6 +25,7 @@ import creditcard_eventsourcing.model.event.LimitAssigned;
  */
 class CreditCard 
 {
+	static final String handlingEvents = "Handling events";
 	static final String assigningLimit = "Assigning limit";
 	static final String assigningLimitTwice = "Assigning limit twice";
 	static final String withdrawingCard = "Withdrawing card";
@@ -35,18 +38,37 @@ class CreditCard
 	private BigDecimal initialLimit;
 	private BigDecimal usedLimit = BigDecimal.ZERO;
 	private int withdrawals;
+	private int version;
+	
+	// The model is built once, and shared by all credit cards. Its system
+	// reactions change the state of the credit card that handles an event on
+	// the current thread.
+	private static final ThreadLocal<CreditCard> handlingCreditCard = new ThreadLocal<>();
+	private static final ModelEngine modelEngine = new ModelEngine(buildModel());
 	
 	private final UUID uuid;
-	private final Model eventHandlingModel;
 	private List<DomainEvent> pendingEvents = new ArrayList<>();
-	private ModelRunner modelRunner;
+	private final Session session;
 
-	public CreditCard(UUID uuid, List<DomainEvent> events) {
+	public CreditCard(UUID uuid, Iterator<DomainEvent> events) {
 		this.uuid = uuid;
-		this.eventHandlingModel = buildModel();
-		this.modelRunner = new ModelRunner().run(eventHandlingModel);
+		this.session = modelEngine.newSession();
 		replay(uuid, events);
 	}
+
+	/**
+	 * Restores the credit card from the specified snapshot, and replays the events
+	 * that happened after it.
+	 * 
+	 * @param snapshot the latest snapshot of the credit card
+	 * @param newerEvents the events after the snapshot
+	 */
+	public CreditCard(CreditCardSnapshot snapshot, Iterator<DomainEvent> newerEvents) {
+		this.uuid = snapshot.uuid();
+		this.session = modelEngine.newSession();
+		restore(snapshot);
+		replay(uuid, newerEvents);
+	}
 	
 	/*
 	 * UUID
@@ -60,14 +82,19 @@ class CreditCard
 	 * 
 	 * @return the event to method call mapping model
 	 */
-	private Model buildModel() {
+	private static Model buildModel() {
 		return Model.builder()
-			.step(assigningLimit).on(LimitAssigned.class).system(event -> assignLimit(event.getAmount()))
-			.step(withdrawingCard).on(CardWithdrawn.class).system(event -> withdraw(event.getAmount()))
-			.step(repaying).on(CardRepaid.class).system(event -> repay(event.getAmount()))
-			.step(closingCycle).on(CycleClosed.class).system(event -> closeCycle())
+			.useCase(handlingEvents)
+			.step(assigningLimit).on(LimitAssigned.class).system(event -> handlingCreditCard().assignLimit(event.getAmount()))
+			.step(withdrawingCard).on(CardWithdrawn.class).system(event -> handlingCreditCard().withdraw(event.getAmount()))
+			.step(repaying).on(CardRepaid.class).system(event -> handlingCreditCard().repay(event.getAmount()))
+			.step(closingCycle).on(CycleClosed.class).system(event -> handlingCreditCard().closeCycle())
 		.build();
 	}
+	
+	private static CreditCard handlingCreditCard() {
+		return handlingCreditCard.get();
+	}
 
 	/*
 	 * State changing methods
@@ -125,17 +152,51 @@ class CreditCard
 		return pendingEvents;
 	}
 	
-	private void replay(UUID uuid, List<DomainEvent> events) {
-		events.forEach(this::mutate);
-	}
-	
-	private void mutate(DomainEvent event) {
-		modelRunner.reactTo(event);
+	private void replay(UUID uuid, Iterator<DomainEvent> events) {
+		CreditCard previousCreditCard = handlingCreditCard.get();
+		handlingCreditCard.set(this);
+		try {
+			version += (int) modelEngine.reactToAll(session, events).getMessageCount();
+		} finally {
+			handlingCreditCard.set(previousCreditCard);
+		}
 	}
 	
 	void apply(DomainEvent event) {
-		modelRunner.reactTo(event);
+		CreditCard previousCreditCard = handlingCreditCard.get();
+		handlingCreditCard.set(this);
+		try {
+			modelEngine.reactTo(session, event);
+		} finally {
+			handlingCreditCard.set(previousCreditCard);
+		}
 		pendingEvents.add(event);
+		version++;
+	}
+
+	/**
+	 * Returns the number of events of the credit card, including the pending ones.
+	 * 
+	 * @return the version
+	 */
+	int version() {
+		return version;
+	}
+
+	CreditCardSnapshot snapshot() {
+		String latestStepName = latestStep().map(Step::getName).orElse(null);
+		return new CreditCardSnapshot(uuid, version, initialLimit, usedLimit, withdrawals, latestStepName);
+	}
+
+	private void restore(CreditCardSnapshot snapshot) {
+		this.initialLimit = snapshot.initialLimit();
+		this.usedLimit = snapshot.usedLimit();
+		this.withdrawals = snapshot.withdrawals();
+		this.version = snapshot.version();
+		snapshot.latestStepName().ifPresent(stepName -> {
+			Step latestStep = modelEngine.getModel().findUseCase(handlingEvents).findStep(stepName);
+			modelEngine.setLatestStep(session, latestStep);
+		});
 	}
 
 	public void flushEvents() {
@@ -143,7 +204,7 @@ class CreditCard
 	}
 	
 	Optional<Step> latestStep() {
-		Optional<Step> latestStep = modelRunner.getLatestStep();
+		Optional<Step> latestStep = modelEngine.getLatestStep(session);
 		return latestStep;
 	}
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import static creditcard_eventsourcing.model.CreditCard.withdrawingCardTooOften;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,7 +20,8 @@ import java.util.function.Function;
 
 import org.requirementsascode.Condition;
 import org.requirementsascode.Model;
-import org.requirementsascode.ModelRunner;
+import org.requirementsascode.ModelEngine;
+import org.requirementsascode.Session;
 import org.requirementsascode.Step;
 
 import creditcard_eventsourcing.model.command.RequestToCloseCycle;
@@ -32,6 +34,7 @@ import creditcard_eventsourcing.model.event.CycleClosed;
 import creditcard_eventsourcing.model.event.DomainEvent;
 import creditcard_eventsourcing.model.event.LimitAssigned;
 import creditcard_eventsourcing.persistence.EventStore;
+import creditcard_eventsourcing.persistence.SnapshotStore;
 
 public class CreditCardAggregateRoot {
 	private static final String useCreditCard = "Use credit card";
@@ -42,30 +45,64 @@ public class CreditCardAggregateRoot {
 	private static final Class<RequestRepay> requestsRepay = RequestRepay.class;
 	private static final Class<RequestToCloseCycle> requestToCloseCycle = RequestToCloseCycle.class;
 
+	// The model is built once, and shared by all aggregate roots. Its command
+	// handling methods and conditions delegate to the aggregate root that
+	// handles a command on the current thread.
+	private static final ThreadLocal<CreditCardAggregateRoot> handlingAggregateRoot = new ThreadLocal<>();
+
 	// Command handling methods
-	private Function<RequestToAssignLimit, DomainEvent> assignedLimit = this::assignedLimit;
-	private Function<RequestWithdrawal, DomainEvent> withdrawnCard = this::withdrawnCard;
-	private Function<RequestRepay, DomainEvent> repay = this::repay;
-	private Function<RequestToCloseCycle, DomainEvent> closedCycle = this::closedCycle;
-	private Consumer<RequestToAssignLimit> throwsAssignLimitException = this::throwAssignLimitException;
-	private Consumer<RequestWithdrawal> throwsTooManyWithdrawalsException = this::throwTooManyWithdrawalsException;
+	private static final Function<RequestToAssignLimit, DomainEvent> assignedLimit = request -> handlingAggregateRoot().assignedLimit(request);
+	private static final Function<RequestWithdrawal, DomainEvent> withdrawnCard = request -> handlingAggregateRoot().withdrawnCard(request);
+	private static final Function<RequestRepay, DomainEvent> repay = request -> handlingAggregateRoot().repay(request);
+	private static final Function<RequestToCloseCycle, DomainEvent> closedCycle = request -> handlingAggregateRoot().closedCycle(request);
+	private static final Consumer<RequestToAssignLimit> throwsAssignLimitException = request -> handlingAggregateRoot().throwAssignLimitException(request);
+	private static final Consumer<RequestWithdrawal> throwsTooManyWithdrawalsException = request -> handlingAggregateRoot().throwTooManyWithdrawalsException(request);
 
 	// Conditions
-	private Condition tooManyWithdrawalsInCycle = this::tooManyWithdrawalsInCycle;
-	private Condition limitAlreadyAssigned = this::limitAlreadyAssigned;
-	private Condition accountIsOpen = this::accountIsOpen;
+	private static final Condition tooManyWithdrawalsInCycle = () -> handlingAggregateRoot().tooManyWithdrawalsInCycle();
+	private static final Condition limitAlreadyAssigned = () -> handlingAggregateRoot().limitAlreadyAssigned();
+	private static final Condition accountIsOpen = () -> handlingAggregateRoot().accountIsOpen();
+
+	// The engine reuses a model runner per thread for the sessions of all aggregate roots
+	private static final ModelEngine modelEngine = new ModelEngine(buildModel());
 
 	// Other fields
 	private final UUID uuid;
 	private final EventStore eventStore;
-	private final Model model;
+	private final Optional<SnapshotStore> snapshotStore;
+	private final Session session;
 	
 	private CreditCard creditCard;
 
+	/**
+	 * Creates an aggregate root that loads the credit card by replaying all of its
+	 * events.
+	 * 
+	 * @param uuid the id of the credit card
+	 * @param eventStore the store of the events
+	 */
 	public CreditCardAggregateRoot(UUID uuid, EventStore eventStore) {
+		this(uuid, eventStore, Optional.empty());
+	}
+
+	/**
+	 * Creates an aggregate root that loads the credit card from its latest
+	 * snapshot, and replays only the events after it. Saving the credit card takes
+	 * a snapshot every few events.
+	 * 
+	 * @param uuid the id of the credit card
+	 * @param eventStore the store of the events
+	 * @param snapshotStore the store of the snapshots
+	 */
+	public CreditCardAggregateRoot(UUID uuid, EventStore eventStore, SnapshotStore snapshotStore) {
+		this(uuid, eventStore, Optional.of(snapshotStore));
+	}
+
+	private CreditCardAggregateRoot(UUID uuid, EventStore eventStore, Optional<SnapshotStore> snapshotStore) {
 		this.uuid = uuid;
 		this.eventStore = eventStore;
-		this.model = buildModel();
+		this.snapshotStore = snapshotStore;
+		this.session = modelEngine.newSession();
 		this.creditCard = loadCreditCard();
 	}
 
@@ -74,7 +111,7 @@ public class CreditCardAggregateRoot {
 	 * 
 	 * @return the use case model
 	 */
-	private Model buildModel() {
+	private static Model buildModel() {
 		Model model = Model.builder()
 		  .useCase(useCreditCard)
 		    .basicFlow()
@@ -116,19 +153,34 @@ public class CreditCardAggregateRoot {
 		saveCreditCard();
 	}
 	
-	// Loads the credit card from the event store, replaying all saved events
+	// Loads the credit card from the latest snapshot if there is one,
+	// and replays the saved events after it
 	CreditCard loadCreditCard() {
-		List<DomainEvent> events = eventStore.loadEvents(uuid());
+		Optional<CreditCardSnapshot> snapshot = snapshotStore.flatMap(store -> store.loadSnapshot(uuid()));
+		if (snapshot.isPresent()) {
+			Iterator<DomainEvent> newerEvents = eventStore.read(uuid(), snapshot.get().version());
+			return new CreditCard(snapshot.get(), newerEvents);
+		}
+		Iterator<DomainEvent> events = eventStore.read(uuid(), 0);
 		CreditCard creditCard = new CreditCard(uuid(), events);
 		return creditCard;
 	}
 	
-	// Creates a new model runner and restores the previous state.
-	// The runner handles the command and returns an event.
+	// Restores the previous state of the session.
+	// The engine handles the command and returns an event.
 	private Optional<DomainEvent> restoreStateAndHandle(Object command) {
-		ModelRunner modelRunner = new ModelRunner().run(model());
-		restorePreviousStateOf(modelRunner);
-		return modelRunner.reactTo(command);
+		restorePreviousStateOf(session);
+		CreditCardAggregateRoot previousAggregateRoot = handlingAggregateRoot.get();
+		handlingAggregateRoot.set(this);
+		try {
+			return modelEngine.reactTo(session, command);
+		} finally {
+			handlingAggregateRoot.set(previousAggregateRoot);
+		}
+	}
+
+	private static CreditCardAggregateRoot handlingAggregateRoot() {
+		return handlingAggregateRoot.get();
 	}
 
 	// If a command handler returned an event, apply it to the credit card 
@@ -136,12 +188,16 @@ public class CreditCardAggregateRoot {
 		event.ifPresent(ev -> creditCard().apply(ev));
 	}
 	
-	// Save all pending events of the credit card to the event store
+	// Append all pending events of the credit card to the event store,
+	// and take a snapshot if it is due. Appending fails if another command
+	// for the card has been handled since loading it.
 	private void saveCreditCard() {
-    List<DomainEvent> currentStream = eventStore().loadEvents(uuid());
-    currentStream.addAll(creditCard().pendingEvents());
-		eventStore().save(uuid(), currentStream);
-    creditCard().flushEvents();
+		List<DomainEvent> pendingEvents = creditCard().pendingEvents();
+		int previousVersion = creditCard().version() - pendingEvents.size();
+		eventStore().append(uuid(), previousVersion, pendingEvents);
+		creditCard().flushEvents();
+		snapshotStore.filter(store -> store.isSnapshotDue(previousVersion, creditCard().version()))
+			.ifPresent(store -> store.save(creditCard().snapshot()));
 	}
 
 	// Command handling methods (that return events)
@@ -190,14 +246,12 @@ public class CreditCardAggregateRoot {
 		return creditCard().isAccountOpen();
 	}
 	
-	// Methods for restoring the previous state of the ModelRunner
+	// Methods for restoring the previous state of the session
 	
-	private void restorePreviousStateOf(ModelRunner modelRunner) {
+	private void restorePreviousStateOf(Session session) {
 		Optional<Step> latestStepOfEventModel = creditCard().latestStep();
-		latestStepOfEventModel.ifPresent(step -> {
-			Step latestStepOfCommandModel = findNamedStep(step.getName());
-			modelRunner.setLatestStep(latestStepOfCommandModel);
-		});
+		Step latestStepOfCommandModel = latestStepOfEventModel.map(step -> findNamedStep(step.getName())).orElse(null);
+		modelEngine.setLatestStep(session, latestStepOfCommandModel);
 	}
 
 	private Step findNamedStep(final String stepName) {
@@ -218,6 +272,6 @@ public class CreditCardAggregateRoot {
 	}
 
 	private Model model() {
-		return model;
+		return modelEngine.getModel();
 	}
 }
@@ -0,0 +1,60 @@
+package creditcard_eventsourcing.model;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The state of a credit card after a certain number of events, so that loading
+ * the credit card only needs to replay the events after it.
+ * 
+ * @author b_muth
+ *
+ */
+public class CreditCardSnapshot {
+	private final UUID uuid;
+	private final int version;
+	private final BigDecimal initialLimit;
+	private final BigDecimal usedLimit;
+	private final int withdrawals;
+	private final String latestStepName;
+
+	CreditCardSnapshot(UUID uuid, int version, BigDecimal initialLimit, BigDecimal usedLimit, int withdrawals,
+		String latestStepName) {
+		this.uuid = uuid;
+		this.version = version;
+		this.initialLimit = initialLimit;
+		this.usedLimit = usedLimit;
+		this.withdrawals = withdrawals;
+		this.latestStepName = latestStepName;
+	}
+
+	public UUID uuid() {
+		return uuid;
+	}
+
+	/**
+	 * Returns the number of events the snapshot includes.
+	 * 
+	 * @return the version of the credit card
+	 */
+	public int version() {
+		return version;
+	}
+
+	BigDecimal initialLimit() {
+		return initialLimit;
+	}
+
+	BigDecimal usedLimit() {
+		return usedLimit;
+	}
+
+	int withdrawals() {
+		return withdrawals;
+	}
+
+	Optional<String> latestStepName() {
+		return Optional.ofNullable(latestStepName);
+	}
+}
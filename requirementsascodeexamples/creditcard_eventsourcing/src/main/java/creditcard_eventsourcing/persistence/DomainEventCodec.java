@@ -0,0 +1,196 @@
+package creditcard_eventsourcing.persistence;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+import creditcard_eventsourcing.model.event.CardRepaid;
+import creditcard_eventsourcing.model.event.CardWithdrawn;
+import creditcard_eventsourcing.model.event.CycleClosed;
+import creditcard_eventsourcing.model.event.DomainEvent;
+import creditcard_eventsourcing.model.event.LimitAssigned;
+
+/**
+ * Encodes domain events to a binary format, and decodes them. Uses absolute
+ * gets and puts only, so several threads can decode from the same buffer.
+ *
+ * <p>
+ * An event starts with a type byte, followed by the card number, the amount if
+ * the event has one, and the timestamp. An amount is encoded as its scale and
+ * its unscaled value. Unscaled values that fit into a long are encoded as a
+ * long, larger ones as the bytes of a BigInteger.
+ *
+ * @author b_muth
+ *
+ */
+class DomainEventCodec {
+	private static final byte LIMIT_ASSIGNED = 1;
+	private static final byte CARD_WITHDRAWN = 2;
+	private static final byte CARD_REPAID = 3;
+	private static final byte CYCLE_CLOSED = 4;
+
+	private static final byte LONG_VALUE = 0;
+	private static final byte BIG_VALUE = 1;
+
+	private static final int UUID_SIZE = 2 * Long.BYTES;
+	private static final int INSTANT_SIZE = Long.BYTES + Integer.BYTES;
+
+	private DomainEventCodec() {
+	}
+
+	static int encodedSize(DomainEvent event) {
+		int size = 1 + UUID_SIZE + INSTANT_SIZE;
+		BigDecimal amount = amountOf(event);
+		if (amount != null) {
+			size += Integer.BYTES + 1;
+			BigInteger unscaledValue = amount.unscaledValue();
+			size += unscaledValue.bitLength() < Long.SIZE ? Long.BYTES
+				: Integer.BYTES + unscaledValue.toByteArray().length;
+		}
+		return size;
+	}
+
+	/**
+	 * Encodes the specified event into the buffer, at the specified offset.
+	 *
+	 * @param event  the event to encode
+	 * @param buffer the buffer to encode into
+	 * @param offset the index of the first byte
+	 * @return the index after the last byte
+	 */
+	static int encode(DomainEvent event, ByteBuffer buffer, int offset) {
+		if (event instanceof LimitAssigned) {
+			LimitAssigned limitAssigned = (LimitAssigned) event;
+			buffer.put(offset, LIMIT_ASSIGNED);
+			offset = putUuid(buffer, offset + 1, limitAssigned.getCardNo());
+			offset = putAmount(buffer, offset, limitAssigned.getAmount());
+			return putInstant(buffer, offset, limitAssigned.getTimestamp());
+		} else if (event instanceof CardWithdrawn) {
+			CardWithdrawn cardWithdrawn = (CardWithdrawn) event;
+			buffer.put(offset, CARD_WITHDRAWN);
+			offset = putUuid(buffer, offset + 1, cardWithdrawn.getCardNo());
+			offset = putAmount(buffer, offset, cardWithdrawn.getAmount());
+			return putInstant(buffer, offset, cardWithdrawn.getTimestamp());
+		} else if (event instanceof CardRepaid) {
+			CardRepaid cardRepaid = (CardRepaid) event;
+			buffer.put(offset, CARD_REPAID);
+			offset = putUuid(buffer, offset + 1, cardRepaid.getCardNo());
+			offset = putAmount(buffer, offset, cardRepaid.getAmount());
+			return putInstant(buffer, offset, cardRepaid.getTimestamp());
+		} else if (event instanceof CycleClosed) {
+			CycleClosed cycleClosed = (CycleClosed) event;
+			buffer.put(offset, CYCLE_CLOSED);
+			offset = putUuid(buffer, offset + 1, cycleClosed.getCardNo());
+			return putInstant(buffer, offset, cycleClosed.getTimestamp());
+		}
+		throw unknownEventType(event);
+	}
+
+	/**
+	 * Decodes the event at the specified offset of the buffer.
+	 *
+	 * @param buffer the buffer to decode from
+	 * @param offset the index of the first byte
+	 * @return the event
+	 */
+	static DomainEvent decode(ByteBuffer buffer, int offset) {
+		byte type = buffer.get(offset);
+		UUID cardNo = getUuid(buffer, offset + 1);
+		offset += 1 + UUID_SIZE;
+		if (type == CYCLE_CLOSED) {
+			return new CycleClosed(cardNo, getInstant(buffer, offset));
+		}
+
+		BigDecimal amount = getAmount(buffer, offset);
+		offset = skipAmount(buffer, offset);
+		Instant timestamp = getInstant(buffer, offset);
+		switch (type) {
+		case LIMIT_ASSIGNED:
+			return new LimitAssigned(cardNo, amount, timestamp);
+		case CARD_WITHDRAWN:
+			return new CardWithdrawn(cardNo, amount, timestamp);
+		case CARD_REPAID:
+			return new CardRepaid(cardNo, amount, timestamp);
+		default:
+			throw new IllegalStateException("Unknown event type " + type + " at offset " + offset);
+		}
+	}
+
+	static int putUuid(ByteBuffer buffer, int offset, UUID uuid) {
+		buffer.putLong(offset, uuid.getMostSignificantBits());
+		buffer.putLong(offset + Long.BYTES, uuid.getLeastSignificantBits());
+		return offset + UUID_SIZE;
+	}
+
+	static UUID getUuid(ByteBuffer buffer, int offset) {
+		return new UUID(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+	}
+
+	private static int putAmount(ByteBuffer buffer, int offset, BigDecimal amount) {
+		buffer.putInt(offset, amount.scale());
+		BigInteger unscaledValue = amount.unscaledValue();
+		if (unscaledValue.bitLength() < Long.SIZE) {
+			buffer.put(offset + Integer.BYTES, LONG_VALUE);
+			buffer.putLong(offset + Integer.BYTES + 1, unscaledValue.longValue());
+			return offset + Integer.BYTES + 1 + Long.BYTES;
+		}
+		byte[] bytes = unscaledValue.toByteArray();
+		buffer.put(offset + Integer.BYTES, BIG_VALUE);
+		buffer.putInt(offset + Integer.BYTES + 1, bytes.length);
+		int index = offset + 2 * Integer.BYTES + 1;
+		for (byte b : bytes) {
+			buffer.put(index++, b);
+		}
+		return index;
+	}
+
+	private static BigDecimal getAmount(ByteBuffer buffer, int offset) {
+		int scale = buffer.getInt(offset);
+		if (buffer.get(offset + Integer.BYTES) == LONG_VALUE) {
+			return BigDecimal.valueOf(buffer.getLong(offset + Integer.BYTES + 1), scale);
+		}
+		// Amounts this large are rare, so copying their bytes doesn't matter
+		byte[] bytes = new byte[buffer.getInt(offset + Integer.BYTES + 1)];
+		int index = offset + 2 * Integer.BYTES + 1;
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(index++);
+		}
+		return new BigDecimal(new BigInteger(bytes), scale);
+	}
+
+	private static int skipAmount(ByteBuffer buffer, int offset) {
+		if (buffer.get(offset + Integer.BYTES) == LONG_VALUE) {
+			return offset + Integer.BYTES + 1 + Long.BYTES;
+		}
+		return offset + 2 * Integer.BYTES + 1 + buffer.getInt(offset + Integer.BYTES + 1);
+	}
+
+	private static int putInstant(ByteBuffer buffer, int offset, Instant instant) {
+		buffer.putLong(offset, instant.getEpochSecond());
+		buffer.putInt(offset + Long.BYTES, instant.getNano());
+		return offset + INSTANT_SIZE;
+	}
+
+	private static Instant getInstant(ByteBuffer buffer, int offset) {
+		return Instant.ofEpochSecond(buffer.getLong(offset), buffer.getInt(offset + Long.BYTES));
+	}
+
+	private static BigDecimal amountOf(DomainEvent event) {
+		if (event instanceof LimitAssigned) {
+			return ((LimitAssigned) event).getAmount();
+		} else if (event instanceof CardWithdrawn) {
+			return ((CardWithdrawn) event).getAmount();
+		} else if (event instanceof CardRepaid) {
+			return ((CardRepaid) event).getAmount();
+		} else if (event instanceof CycleClosed) {
+			return null;
+		}
+		throw unknownEventType(event);
+	}
+
+	private static IllegalArgumentException unknownEventType(DomainEvent event) {
+		return new IllegalArgumentException("Can't encode events of type " + event.getClass().getName());
+	}
+}
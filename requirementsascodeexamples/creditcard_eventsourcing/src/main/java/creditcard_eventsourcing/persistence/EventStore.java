@@ -1,36 +1,59 @@
 package creditcard_eventsourcing.persistence;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
-import org.springframework.stereotype.Repository;
-
 import creditcard_eventsourcing.model.event.DomainEvent;
 
 /**
- * Based on code by Jakub Pilimon:
- * https://gitlab.com/pilloPl/eventsourced-credit-cards/blob/4329a0aac283067f1376b3802e13f5a561f18753
+ * An append-only store of event streams, one per credit card. The version of a
+ * stream is the number of events in it. Appending to a stream checks the
+ * version the caller expects, so concurrent commands for the same card don't
+ * overwrite each other's events.
  * 
+ * @see InMemoryEventStore
+ * @see MappedFileEventStore
  * @author b_muth
  *
  */
-@Repository
-public class EventStore {
-	private final Map<UUID, List<DomainEvent>> eventStream = new HashMap<>();
+public interface EventStore {
+	/**
+	 * Appends the specified events to the stream of the specified card, if the
+	 * stream has the expected version.
+	 * 
+	 * @param uuid            the id of the card
+	 * @param expectedVersion the number of events the caller expects in the stream
+	 * @param events          the events to append
+	 * @return the version of the stream after appending
+	 * @throws WrongExpectedVersion if the stream has a different version
+	 */
+	int append(UUID uuid, int expectedVersion, List<? extends DomainEvent> events);
 
-	public void save(UUID uuid, List<DomainEvent> currentStream) {
-		eventStream.put(uuid, currentStream);
-	}
+	/**
+	 * Returns an iterator over the events of the specified card, starting after
+	 * the specified number of events. The iterator doesn't copy the events. It
+	 * iterates up to the version of the stream at the time of the call.
+	 * 
+	 * @param uuid        the id of the card
+	 * @param fromVersion the number of events to skip, e.g. those of a snapshot
+	 * @return the iterator over the events
+	 */
+	Iterator<DomainEvent> read(UUID uuid, int fromVersion);
 
-	public List<DomainEvent> loadEvents(UUID uuid) {
-		return eventStream.getOrDefault(uuid, new ArrayList<>());
-	}
+	/**
+	 * Returns the number of events of the specified card.
+	 * 
+	 * @param uuid the id of the card
+	 * @return the version of the card's stream, or 0 if there is none
+	 */
+	int version(UUID uuid);
 
-	public Set<UUID> uuids() {
-		return eventStream.keySet();
-	}
+	/**
+	 * Returns the ids of the cards that have a stream.
+	 * 
+	 * @return the ids
+	 */
+	Set<UUID> uuids();
 }
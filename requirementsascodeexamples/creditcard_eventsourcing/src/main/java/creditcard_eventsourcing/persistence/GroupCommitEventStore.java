@@ -0,0 +1,265 @@
+package creditcard_eventsourcing.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import creditcard_eventsourcing.model.event.DomainEvent;
+
+/**
+ * Makes the appends to a {@link MappedFileEventStore} durable, by group commit.
+ * A committer thread collects the appends of concurrent callers into a batch,
+ * appends them to the store, and forces the store to disk once for the whole
+ * batch. Each caller returns when its batch is durable.
+ *
+ * <p>
+ * A batch ends when it holds the maximum number of appends, or when the
+ * maximum wait time has passed since its first append arrived. With a maximum
+ * wait of 0, a batch holds the appends that arrived while the previous batch
+ * was forced.
+ *
+ * <p>
+ * Readers may see events before they are durable.
+ *
+ * <p>
+ * If appending or forcing a batch fails with an unexpected exception or error,
+ * e.g. because the disk is full, the store fails: the appends of the batch and
+ * all pending appends complete exceptionally, and the store doesn't accept
+ * appends anymore. The events of a batch whose force failed stay appended to
+ * the event store, even though their appends failed.
+ *
+ * @author b_muth
+ *
+ */
+public class GroupCommitEventStore implements EventStore, Closeable {
+	// How often the committer checks whether the store has been closed, while waiting
+	private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final MappedFileEventStore eventStore;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+	private final BlockingQueue<PendingAppend> pendingAppends;
+	private final Thread committer;
+	private volatile boolean isClosed;
+	private volatile Throwable failure;
+
+	/**
+	 * Creates a group commit store for the specified event store, and starts its
+	 * committer thread.
+	 *
+	 * @param eventStore   the store to append to
+	 * @param maxBatchSize the maximum number of appends per batch
+	 * @param maxWait      the maximum time to wait for more appends, after the
+	 *                     first append of a batch arrived
+	 * @param unit         the unit of the maximum wait time
+	 */
+	public GroupCommitEventStore(MappedFileEventStore eventStore, int maxBatchSize, long maxWait, TimeUnit unit) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive, but is " + maxBatchSize);
+		}
+		if (maxWait < 0) {
+			throw new IllegalArgumentException("maxWait must not be negative, but is " + maxWait);
+		}
+		this.eventStore = Objects.requireNonNull(eventStore);
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = unit.toNanos(maxWait);
+		this.pendingAppends = new LinkedBlockingQueue<>();
+		this.committer = new Thread(this::commitBatches, "GroupCommitEventStore");
+		committer.setDaemon(true);
+		committer.start();
+	}
+
+	/**
+	 * Appends the events, and waits until they are durable. If forcing the batch
+	 * of the append fails, this method throws the exception, but the events stay
+	 * appended. The store doesn't accept appends after that, see the class
+	 * comment.
+	 *
+	 * @throws IllegalStateException if the store has been closed, or has failed
+	 */
+	@Override
+	public int append(UUID uuid, int expectedVersion, List<? extends DomainEvent> events) {
+		try {
+			return appendAsync(uuid, expectedVersion, events).join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends the events in the next batch, without waiting.
+	 *
+	 * @param uuid            the id of the card
+	 * @param expectedVersion the number of events the caller expects in the stream
+	 * @param events          the events to append. The list is copied, so the
+	 *                        caller may reuse it right away.
+	 * @return a future that completes with the version of the stream after
+	 *         appending, when the events are durable. It completes exceptionally
+	 *         with {@link WrongExpectedVersion} if the stream has a different
+	 *         version, or with the exception that made the store fail.
+	 * @throws IllegalStateException if the store has been closed, or has failed
+	 */
+	public CompletableFuture<Integer> appendAsync(UUID uuid, int expectedVersion, List<? extends DomainEvent> events) {
+		// Copy the events, as the committer thread writes them later
+		PendingAppend pendingAppend = new PendingAppend(Objects.requireNonNull(uuid), expectedVersion,
+			new ArrayList<>(events));
+		checkAcceptsAppends();
+		pendingAppends.add(pendingAppend);
+		// If the store has been closed or has failed concurrently, the append may
+		// never be committed
+		if ((isClosed || failure != null) && pendingAppends.remove(pendingAppend)) {
+			checkAcceptsAppends();
+		}
+		return pendingAppend.version;
+	}
+
+	private void checkAcceptsAppends() {
+		if (failure != null) {
+			throw failed();
+		}
+		if (isClosed) {
+			throw closed();
+		}
+	}
+
+	private IllegalStateException failed() {
+		return new IllegalStateException("The store has failed", failure);
+	}
+
+	private static IllegalStateException closed() {
+		return new IllegalStateException("The store has been closed");
+	}
+
+	private void commitBatches() {
+		List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+		try {
+			while (!isClosed || !pendingAppends.isEmpty()) {
+				if (collectBatch(batch)) {
+					commit(batch);
+					batch.clear();
+				}
+			}
+		} catch (InterruptedException e) {
+			// Closed while waiting for appends
+		} catch (Throwable e) {
+			failure = e;
+			batch.forEach(pendingAppend -> pendingAppend.version.completeExceptionally(e));
+			batch.clear();
+			failPendingAppends(batch, failed());
+			return;
+		}
+		failPendingAppends(batch, closed());
+	}
+
+	/*
+	 * Waits for the first append of a batch, then for more until the batch is
+	 * full, the maximum wait time has passed, or the store is closed. Returns
+	 * false if no append arrived.
+	 */
+	private boolean collectBatch(List<PendingAppend> batch) throws InterruptedException {
+		PendingAppend first = pendingAppends.poll(CLOSE_CHECK_NANOS, TimeUnit.NANOSECONDS);
+		if (first == null) {
+			return false;
+		}
+		batch.add(first);
+		long deadline = System.nanoTime() + maxWaitNanos;
+		while (batch.size() < maxBatchSize && !isClosed) {
+			pendingAppends.drainTo(batch, maxBatchSize - batch.size());
+			long remainingNanos = deadline - System.nanoTime();
+			if (batch.size() == maxBatchSize || remainingNanos <= 0) {
+				break;
+			}
+			PendingAppend next = pendingAppends.poll(Math.min(remainingNanos, CLOSE_CHECK_NANOS), TimeUnit.NANOSECONDS);
+			if (next != null) {
+				batch.add(next);
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Appends and forces the batch. An append that is rejected by the event store
+	 * fails on its own. If the event store fails in another way, or forcing fails,
+	 * the exception makes the whole store fail.
+	 */
+	private void commit(List<PendingAppend> batch) {
+		for (PendingAppend pendingAppend : batch) {
+			try {
+				pendingAppend.newVersion = eventStore.append(pendingAppend.uuid, pendingAppend.expectedVersion,
+					pendingAppend.events);
+			} catch (WrongExpectedVersion | IllegalArgumentException | NullPointerException e) {
+				pendingAppend.version.completeExceptionally(e);
+			}
+		}
+		eventStore.force();
+		batch.forEach(pendingAppend -> pendingAppend.version.complete(pendingAppend.newVersion));
+	}
+
+	private void failPendingAppends(List<PendingAppend> batch, IllegalStateException exception) {
+		pendingAppends.drainTo(batch);
+		batch.forEach(pendingAppend -> pendingAppend.version.completeExceptionally(exception));
+	}
+
+	@Override
+	public Iterator<DomainEvent> read(UUID uuid, int fromVersion) {
+		return eventStore.read(uuid, fromVersion);
+	}
+
+	@Override
+	public int version(UUID uuid) {
+		return eventStore.version(uuid);
+	}
+
+	@Override
+	public Set<UUID> uuids() {
+		return eventStore.uuids();
+	}
+
+	/**
+	 * Commits the pending appends, stops the committer thread, and closes the
+	 * event store.
+	 */
+	@Override
+	public void close() throws IOException {
+		isClosed = true;
+		try {
+			committer.join();
+		} catch (InterruptedException e) {
+			committer.interrupt();
+			Thread.currentThread().interrupt();
+		}
+		failPendingAppends(new ArrayList<>(), failure != null ? failed() : closed());
+		eventStore.close();
+	}
+
+	private static class PendingAppend {
+		private final UUID uuid;
+		private final int expectedVersion;
+		private final List<? extends DomainEvent> events;
+		private final CompletableFuture<Integer> version;
+		private int newVersion;
+
+		PendingAppend(UUID uuid, int expectedVersion, List<? extends DomainEvent> events) {
+			this.uuid = uuid;
+			this.expectedVersion = expectedVersion;
+			this.events = events;
+			this.version = new CompletableFuture<>();
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package creditcard_eventsourcing.persistence;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Repository;
+
+import creditcard_eventsourcing.model.event.DomainEvent;
+
+/**
+ * Based on code by Jakub Pilimon:
+ * https://gitlab.com/pilloPl/eventsourced-credit-cards/blob/4329a0aac283067f1376b3802e13f5a561f18753
+ * 
+ * <p>
+ * An event store that keeps the event streams in memory. Appends to different
+ * streams run in parallel, and reads never block.
+ * 
+ * @author b_muth
+ *
+ */
+@Repository
+public class InMemoryEventStore implements EventStore {
+	private final ConcurrentMap<UUID, EventStream> eventStreams = new ConcurrentHashMap<>();
+
+	@Override
+	public int append(UUID uuid, int expectedVersion, List<? extends DomainEvent> events) {
+		Objects.requireNonNull(uuid);
+		Objects.requireNonNull(events);
+		EventStream eventStream = eventStreams.computeIfAbsent(uuid, id -> new EventStream());
+		return eventStream.append(uuid, expectedVersion, events);
+	}
+
+	@Override
+	public Iterator<DomainEvent> read(UUID uuid, int fromVersion) {
+		if (fromVersion < 0) {
+			throw new IllegalArgumentException("fromVersion must not be negative, but is " + fromVersion);
+		}
+		EventStream eventStream = eventStreams.get(uuid);
+		return eventStream == null ? new EventIterator(new DomainEvent[0], 0, 0) : eventStream.read(fromVersion);
+	}
+
+	@Override
+	public int version(UUID uuid) {
+		EventStream eventStream = eventStreams.get(uuid);
+		return eventStream == null ? 0 : eventStream.version;
+	}
+
+	@Override
+	public Set<UUID> uuids() {
+		return eventStreams.keySet();
+	}
+
+	/*
+	 * The events of a stream are in an array that grows by doubling. An append
+	 * publishes the array before the new version, both volatile. So a reader that
+	 * reads the version first sees an array with at least that many events.
+	 */
+	private static class EventStream {
+		private volatile DomainEvent[] events = new DomainEvent[16];
+		private volatile int version;
+
+		synchronized int append(UUID uuid, int expectedVersion, List<? extends DomainEvent> newEvents) {
+			if (version != expectedVersion) {
+				throw new WrongExpectedVersion(uuid, expectedVersion, version);
+			}
+			int newVersion = version + newEvents.size();
+			DomainEvent[] currentEvents = events;
+			if (newVersion > currentEvents.length) {
+				currentEvents = Arrays.copyOf(currentEvents, Math.max(newVersion, 2 * currentEvents.length));
+			}
+			int index = version;
+			for (DomainEvent event : newEvents) {
+				currentEvents[index++] = Objects.requireNonNull(event);
+			}
+			events = currentEvents;
+			version = newVersion;
+			return newVersion;
+		}
+
+		EventIterator read(int fromVersion) {
+			int toVersion = version;
+			return new EventIterator(events, Math.min(fromVersion, toVersion), toVersion);
+		}
+	}
+
+	private static class EventIterator implements Iterator<DomainEvent> {
+		private final DomainEvent[] events;
+		private final int toVersion;
+		private int next;
+
+		EventIterator(DomainEvent[] events, int fromVersion, int toVersion) {
+			this.events = events;
+			this.next = fromVersion;
+			this.toVersion = toVersion;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < toVersion;
+		}
+
+		@Override
+		public DomainEvent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return events[next++];
+		}
+	}
+}
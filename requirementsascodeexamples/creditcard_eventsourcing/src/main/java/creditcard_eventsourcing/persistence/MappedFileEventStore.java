@@ -0,0 +1,450 @@
+package creditcard_eventsourcing.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import creditcard_eventsourcing.model.event.DomainEvent;
+
+/**
+ * An event store that appends the events of all streams to a log of
+ * memory-mapped segment files of a fixed size, in a directory. The events of an
+ * append are written as one batch, that never spans segments. When a batch
+ * doesn't fit into the current segment, the store rolls over to a new one
+ * before writing it.
+ *
+ * <p>
+ * Each batch of the log starts with a header: its length, a checksum of the
+ * rest of the batch, the id of the stream and the number of events. Each event
+ * follows with its length and its binary encoding. The store keeps the
+ * positions of the events of each stream in memory, and decodes the events
+ * straight from the mapped segments when reading them.
+ *
+ * <p>
+ * Opening the store scans the segments to rebuild the positions. The scan of a
+ * segment stops at the first batch with a length of 0 or a wrong checksum, so a
+ * batch that was only partly written when the process crashed is dropped as a
+ * whole, together with the rest of its segment. As later batches may depend
+ * on it, a batch with a wrong checksum also discards all later segments. The
+ * store forces a full segment to disk before rolling over to a new one, so
+ * that a new segment never survives a crash without the segments before it.
+ *
+ * <p>
+ * The operating system writes the mapped segments to disk in the background.
+ * Call {@link #force()} to make the appended events durable, or use a
+ * {@link GroupCommitEventStore} that forces the events of many appends at once.
+ * Closing the store forces the segments to disk as well.
+ *
+ * @author b_muth
+ *
+ */
+public class MappedFileEventStore implements EventStore, Closeable {
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String SEGMENT_SUFFIX = ".segment";
+	private static final int STREAM_ID_SIZE = 2 * Long.BYTES;
+	// The length and checksum, followed by the checksummed stream id and event count
+	private static final int CHECKSUMMED_OFFSET = 2 * Integer.BYTES;
+	private static final int BATCH_HEADER_SIZE = CHECKSUMMED_OFFSET + STREAM_ID_SIZE + Integer.BYTES;
+	private static final int EVENT_HEADER_SIZE = Integer.BYTES;
+
+	private final Path directory;
+	private final int segmentSize;
+	private final ConcurrentMap<UUID, StreamIndex> streamIndexes = new ConcurrentHashMap<>();
+	private final Object writeLock = new Object();
+	private final CRC32 writeChecksum = new CRC32();
+	private final Object forceLock = new Object();
+	private volatile Segment[] segments;
+	private int writeOffset;
+	private int forcedSegmentCount;
+
+	/**
+	 * Opens the store in the specified directory, with segments of the default
+	 * size.
+	 *
+	 * @param directory the directory of the segment files
+	 * @throws IOException if the segments can't be created or read
+	 */
+	public MappedFileEventStore(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens the store in the specified directory. Creates the directory and the
+	 * first segment if necessary, and recovers the streams from existing segments.
+	 *
+	 * @param directory   the directory of the segment files
+	 * @param segmentSize the size of new segment files, in bytes
+	 * @throws IOException if the segments can't be created or read
+	 */
+	public MappedFileEventStore(Path directory, int segmentSize) throws IOException {
+		if (segmentSize <= BATCH_HEADER_SIZE + EVENT_HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize is too small: " + segmentSize);
+		}
+		this.directory = Objects.requireNonNull(directory);
+		this.segmentSize = segmentSize;
+		Files.createDirectories(directory);
+		this.segments = openSegments();
+		if (segments.length == 0) {
+			this.segments = new Segment[] { Segment.open(segmentPath(0), segmentSize) };
+		}
+		recover();
+	}
+
+	private Segment[] openSegments() throws IOException {
+		List<Path> segmentPaths = new ArrayList<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+			paths.forEach(segmentPaths::add);
+		}
+		segmentPaths.sort(null);
+		Segment[] openedSegments = new Segment[segmentPaths.size()];
+		for (int i = 0; i < openedSegments.length; i++) {
+			Path path = segmentPaths.get(i);
+			if (!path.equals(segmentPath(i))) {
+				throw new IOException("Expected segment " + segmentPath(i) + ", but found " + path);
+			}
+			openedSegments[i] = Segment.open(path, segmentSize);
+		}
+		return openedSegments;
+	}
+
+	private Path segmentPath(int segmentNumber) {
+		return directory.resolve(String.format("%010d%s", segmentNumber, SEGMENT_SUFFIX));
+	}
+
+	/*
+	 * Recovers the batches up to the first invalid one. The batches after it may
+	 * have been appended on top of it, so they are discarded as well, including
+	 * later segments.
+	 */
+	private void recover() throws IOException {
+		CRC32 checksum = new CRC32();
+		for (int segmentNumber = 0; segmentNumber < segments.length; segmentNumber++) {
+			MappedByteBuffer buffer = segments[segmentNumber].buffer;
+			int offset = 0;
+			int batchSize;
+			while ((batchSize = validBatchSizeAt(buffer, offset, checksum)) > 0) {
+				recoverBatch(segmentNumber, buffer, offset);
+				offset += batchSize;
+			}
+			writeOffset = offset;
+			if (batchSize < 0) {
+				// Clear a partly written batch, so that it can't be mistaken for a valid one
+				// when new batches are written over its beginning
+				clear(buffer, offset);
+				deleteSegmentsAfter(segmentNumber);
+			}
+		}
+	}
+
+	private void deleteSegmentsAfter(int segmentNumber) throws IOException {
+		for (int i = segments.length - 1; i > segmentNumber; i--) {
+			segments[i].channel.close();
+			Files.delete(segmentPath(i));
+		}
+		segments = Arrays.copyOf(segments, segmentNumber + 1);
+	}
+
+	private void recoverBatch(int segmentNumber, ByteBuffer buffer, int offset) {
+		UUID uuid = DomainEventCodec.getUuid(buffer, offset + CHECKSUMMED_OFFSET);
+		int eventCount = buffer.getInt(offset + CHECKSUMMED_OFFSET + STREAM_ID_SIZE);
+		StreamIndex streamIndex = streamIndexes.computeIfAbsent(uuid, id -> new StreamIndex());
+		int eventOffset = offset + BATCH_HEADER_SIZE;
+		for (int i = 0; i < eventCount; i++) {
+			streamIndex.add(position(segmentNumber, eventOffset));
+			eventOffset += EVENT_HEADER_SIZE + buffer.getInt(eventOffset);
+		}
+	}
+
+	/*
+	 * Returns the size of the batch at the specified offset, 0 if the segment
+	 * ends there, or -1 if the batch is invalid.
+	 */
+	private static int validBatchSizeAt(ByteBuffer buffer, int offset, CRC32 checksum) {
+		if (offset + BATCH_HEADER_SIZE > buffer.capacity()) {
+			return 0;
+		}
+		int length = buffer.getInt(offset);
+		if (length == 0) {
+			return 0;
+		}
+		if (length < BATCH_HEADER_SIZE - CHECKSUMMED_OFFSET || length > buffer.capacity() - offset - CHECKSUMMED_OFFSET) {
+			return -1;
+		}
+		int batchSize = CHECKSUMMED_OFFSET + length;
+		int expectedChecksum = buffer.getInt(offset + Integer.BYTES);
+		if (checksumOf(buffer, offset + CHECKSUMMED_OFFSET, length, checksum) != expectedChecksum) {
+			return -1;
+		}
+		return hasValidEvents(buffer, offset, batchSize) ? batchSize : -1;
+	}
+
+	// Checks that the lengths of the events add up to the size of the batch
+	private static boolean hasValidEvents(ByteBuffer buffer, int offset, int batchSize) {
+		int eventCount = buffer.getInt(offset + CHECKSUMMED_OFFSET + STREAM_ID_SIZE);
+		int eventOffset = offset + BATCH_HEADER_SIZE;
+		int batchEnd = offset + batchSize;
+		for (int i = 0; i < eventCount; i++) {
+			if (eventOffset + EVENT_HEADER_SIZE > batchEnd) {
+				return false;
+			}
+			int eventLength = buffer.getInt(eventOffset);
+			if (eventLength <= 0 || eventLength > batchEnd - eventOffset - EVENT_HEADER_SIZE) {
+				return false;
+			}
+			eventOffset += EVENT_HEADER_SIZE + eventLength;
+		}
+		return eventCount > 0 && eventOffset == batchEnd;
+	}
+
+	private static int checksumOf(ByteBuffer buffer, int offset, int length, CRC32 checksum) {
+		ByteBuffer payload = buffer.duplicate();
+		payload.limit(offset + length).position(offset);
+		checksum.reset();
+		checksum.update(payload);
+		return (int) checksum.getValue();
+	}
+
+	private static void clear(ByteBuffer buffer, int offset) {
+		for (int index = offset; index < buffer.capacity(); index++) {
+			buffer.put(index, (byte) 0);
+		}
+	}
+
+	@Override
+	public int append(UUID uuid, int expectedVersion, List<? extends DomainEvent> events) {
+		Objects.requireNonNull(uuid);
+		Objects.requireNonNull(events);
+		StreamIndex streamIndex = streamIndexes.computeIfAbsent(uuid, id -> new StreamIndex());
+		synchronized (streamIndex) {
+			if (streamIndex.version != expectedVersion) {
+				throw new WrongExpectedVersion(uuid, expectedVersion, streamIndex.version);
+			}
+			if (events.isEmpty()) {
+				return streamIndex.version;
+			}
+			long[] positions = write(uuid, events);
+			return streamIndex.addAll(positions);
+		}
+	}
+
+	private long[] write(UUID uuid, List<? extends DomainEvent> events) {
+		// Check all events before writing any, so that a batch isn't written in part
+		int[] lengths = new int[events.size()];
+		long batchSize = BATCH_HEADER_SIZE;
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = DomainEventCodec.encodedSize(Objects.requireNonNull(events.get(i)));
+			batchSize += EVENT_HEADER_SIZE + lengths[i];
+		}
+		if (batchSize > segmentSize) {
+			throw new IllegalArgumentException("Batch of " + batchSize + " bytes doesn't fit into a segment");
+		}
+		synchronized (writeLock) {
+			return write(uuid, events, lengths, (int) batchSize);
+		}
+	}
+
+	private long[] write(UUID uuid, List<? extends DomainEvent> events, int[] lengths, int batchSize) {
+		// Reserve the space of the whole batch first, so that a failing roll leaves
+		// nothing written
+		Segment segment = segments[segments.length - 1];
+		if (batchSize > segment.buffer.capacity() - writeOffset) {
+			segment = rollSegment();
+		}
+
+		MappedByteBuffer buffer = segment.buffer;
+		int segmentNumber = segments.length - 1;
+		int offset = writeOffset;
+		long[] positions = new long[lengths.length];
+		int eventOffset = offset + BATCH_HEADER_SIZE;
+		for (int i = 0; i < lengths.length; i++) {
+			positions[i] = position(segmentNumber, eventOffset);
+			buffer.putInt(eventOffset, lengths[i]);
+			DomainEventCodec.encode(events.get(i), buffer, eventOffset + EVENT_HEADER_SIZE);
+			eventOffset += EVENT_HEADER_SIZE + lengths[i];
+		}
+		DomainEventCodec.putUuid(buffer, offset + CHECKSUMMED_OFFSET, uuid);
+		buffer.putInt(offset + CHECKSUMMED_OFFSET + STREAM_ID_SIZE, lengths.length);
+		int length = batchSize - CHECKSUMMED_OFFSET;
+		buffer.putInt(offset + Integer.BYTES, checksumOf(buffer, offset + CHECKSUMMED_OFFSET, length, writeChecksum));
+		// The length comes last, so that a batch is invisible to recovery until it
+		// is complete
+		buffer.putInt(offset, length);
+		writeOffset += batchSize;
+		return positions;
+	}
+
+	private Segment rollSegment() {
+		try {
+			// Force the full segment first, so that after a crash, the new segment can't
+			// survive without the batches it was appended on top of
+			segments[segments.length - 1].buffer.force();
+			Segment segment = Segment.open(segmentPath(segments.length), segmentSize);
+			Segment[] newSegments = Arrays.copyOf(segments, segments.length + 1);
+			newSegments[segments.length] = segment;
+			segments = newSegments;
+			writeOffset = 0;
+			return segment;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Iterator<DomainEvent> read(UUID uuid, int fromVersion) {
+		if (fromVersion < 0) {
+			throw new IllegalArgumentException("fromVersion must not be negative, but is " + fromVersion);
+		}
+		StreamIndex streamIndex = streamIndexes.get(uuid);
+		if (streamIndex == null) {
+			return new EventIterator(segments, new long[0], 0, 0);
+		}
+		// Read the version before the positions and segments it was published after
+		int toVersion = streamIndex.version;
+		return new EventIterator(segments, streamIndex.positions, Math.min(fromVersion, toVersion), toVersion);
+	}
+
+	@Override
+	public int version(UUID uuid) {
+		StreamIndex streamIndex = streamIndexes.get(uuid);
+		return streamIndex == null ? 0 : streamIndex.version;
+	}
+
+	@Override
+	public Set<UUID> uuids() {
+		return streamIndexes.keySet();
+	}
+
+	/**
+	 * Forces the events appended so far to disk. Only forces the segments that
+	 * have been written to since the previous call.
+	 */
+	public void force() {
+		Segment[] currentSegments = segments;
+		synchronized (forceLock) {
+			for (int i = forcedSegmentCount; i < currentSegments.length; i++) {
+				currentSegments[i].buffer.force();
+			}
+			// Only the last segment can still change
+			forcedSegmentCount = currentSegments.length - 1;
+		}
+	}
+
+	/**
+	 * Forces the segments to disk, and closes their files. The store must not be
+	 * used after closing it.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (writeLock) {
+			for (Segment segment : segments) {
+				segment.buffer.force();
+				segment.channel.close();
+			}
+		}
+	}
+
+	private static long position(int segmentNumber, int offset) {
+		return ((long) segmentNumber << 32) | offset;
+	}
+
+	private static class Segment {
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+
+		private Segment(FileChannel channel, MappedByteBuffer buffer) {
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+
+		static Segment open(Path path, int segmentSize) throws IOException {
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+			// Existing segments keep their size, even if the configured size changed
+			long size = channel.size() > 0 ? channel.size() : segmentSize;
+			return new Segment(channel, channel.map(MapMode.READ_WRITE, 0, size));
+		}
+	}
+
+	/*
+	 * The positions of the events of a stream, in an array that grows by
+	 * doubling. The segment number is in the upper, the offset of the event's
+	 * length in the lower 32 bits of a position. Publishes the array before the new version, as
+	 * InMemoryEventStore does.
+	 */
+	private static class StreamIndex {
+		private volatile long[] positions = new long[16];
+		private volatile int version;
+
+		void add(long position) {
+			long[] currentPositions = positions;
+			if (version == currentPositions.length) {
+				currentPositions = Arrays.copyOf(currentPositions, 2 * currentPositions.length);
+			}
+			currentPositions[version] = position;
+			positions = currentPositions;
+			version++;
+		}
+
+		int addAll(long[] newPositions) {
+			int newVersion = version + newPositions.length;
+			long[] currentPositions = positions;
+			if (newVersion > currentPositions.length) {
+				currentPositions = Arrays.copyOf(currentPositions, Math.max(newVersion, 2 * currentPositions.length));
+			}
+			System.arraycopy(newPositions, 0, currentPositions, version, newPositions.length);
+			positions = currentPositions;
+			version = newVersion;
+			return newVersion;
+		}
+	}
+
+	private static class EventIterator implements Iterator<DomainEvent> {
+		private final Segment[] segments;
+		private final long[] positions;
+		private final int toVersion;
+		private int next;
+
+		EventIterator(Segment[] segments, long[] positions, int fromVersion, int toVersion) {
+			this.segments = segments;
+			this.positions = positions;
+			this.next = fromVersion;
+			this.toVersion = toVersion;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < toVersion;
+		}
+
+		@Override
+		public DomainEvent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			long position = positions[next++];
+			MappedByteBuffer buffer = segments[(int) (position >>> 32)].buffer;
+			int offset = (int) position + EVENT_HEADER_SIZE;
+			return DomainEventCodec.decode(buffer, offset);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package creditcard_eventsourcing.persistence;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Repository;
+
+import creditcard_eventsourcing.model.CreditCardSnapshot;
+
+/**
+ * Stores the latest snapshot of each credit card. A snapshot is taken every
+ * time the number of events of a card passes a multiple of the snapshot
+ * interval.
+ * 
+ * <p>
+ * The store is thread-safe. If snapshots of the same card are saved
+ * concurrently, it keeps the one with the highest version.
+ * 
+ * @author b_muth
+ *
+ */
+@Repository
+public class SnapshotStore {
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+
+	private final ConcurrentMap<UUID, CreditCardSnapshot> snapshots = new ConcurrentHashMap<>();
+	private final int snapshotInterval;
+
+	public SnapshotStore() {
+		this(DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * Creates a store that takes a snapshot every specified number of events.
+	 * 
+	 * @param snapshotInterval the number of events between snapshots
+	 */
+	public SnapshotStore(int snapshotInterval) {
+		if (snapshotInterval < 1) {
+			throw new IllegalArgumentException("snapshotInterval must be positive, but is " + snapshotInterval);
+		}
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public boolean isSnapshotDue(int previousVersion, int version) {
+		return previousVersion / snapshotInterval < version / snapshotInterval;
+	}
+
+	public void save(CreditCardSnapshot snapshot) {
+		snapshots.merge(snapshot.uuid(), snapshot,
+			(savedSnapshot, newSnapshot) -> newSnapshot.version() > savedSnapshot.version() ? newSnapshot : savedSnapshot);
+	}
+
+	public Optional<CreditCardSnapshot> loadSnapshot(UUID uuid) {
+		return Optional.ofNullable(snapshots.get(uuid));
+	}
+}
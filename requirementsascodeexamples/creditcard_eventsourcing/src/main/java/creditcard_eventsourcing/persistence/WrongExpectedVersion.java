@@ -0,0 +1,19 @@
+package creditcard_eventsourcing.persistence;
+
+import java.util.UUID;
+
+/**
+ * Thrown when events are appended to a stream that has changed since the
+ * caller read it, e.g. because another command for the same card has been
+ * handled in the meantime.
+ * 
+ * @author b_muth
+ *
+ */
+public class WrongExpectedVersion extends RuntimeException {
+	private static final long serialVersionUID = -3017342861950371243L;
+
+	public WrongExpectedVersion(UUID uuid, int expectedVersion, int actualVersion) {
+		super("Expected version " + expectedVersion + " of stream " + uuid + ", but it has version " + actualVersion);
+	}
+}
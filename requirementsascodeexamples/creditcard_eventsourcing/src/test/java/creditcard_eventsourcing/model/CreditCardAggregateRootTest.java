@@ -1,6 +1,7 @@
 package creditcard_eventsourcing.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
@@ -14,18 +15,22 @@ import creditcard_eventsourcing.model.command.RequestRepay;
 import creditcard_eventsourcing.model.command.RequestToAssignLimit;
 import creditcard_eventsourcing.model.command.RequestWithdrawal;
 import creditcard_eventsourcing.persistence.EventStore;
+import creditcard_eventsourcing.persistence.InMemoryEventStore;
+import creditcard_eventsourcing.persistence.SnapshotStore;
 
 public class CreditCardAggregateRootTest {
 	private EventStore eventStore;
+	private SnapshotStore snapshotStore;
 	private UUID uuid;
 
 	@Before
 	public void setUp() throws Exception {
-		this.eventStore = new EventStore();
+		this.eventStore = new InMemoryEventStore();
 		this.uuid = uuid();
 	}
 	private CreditCardAggregateRoot aggregateRoot() {
-		CreditCardAggregateRoot aggregateRoot = new CreditCardAggregateRoot(uuid, eventStore);
+		CreditCardAggregateRoot aggregateRoot = snapshotStore == null ? new CreditCardAggregateRoot(uuid, eventStore)
+			: new CreditCardAggregateRoot(uuid, eventStore, snapshotStore);
 		return aggregateRoot;
 	}
 	
@@ -152,6 +157,71 @@ public class CreditCardAggregateRootTest {
 		assertEquals(new BigDecimal(8), aggregateRoot.loadCreditCard().getAvailableLimit());
 	}
 
+	@Test
+	public void takesSnapshotEveryFewEvents() {
+		snapshotStore = new SnapshotStore(2);
+		requestToAssignLimit(BigDecimal.TEN);
+		assertFalse(snapshotStore.loadSnapshot(uuid).isPresent());
+
+		requestWithdrawal(BigDecimal.ONE);
+		requestWithdrawal(BigDecimal.ONE);
+		assertEquals(2, snapshotStore.loadSnapshot(uuid).get().version());
+
+		requestWithdrawal(BigDecimal.ONE);
+		assertEquals(4, snapshotStore.loadSnapshot(uuid).get().version());
+	}
+
+	@Test
+	public void loadingFromSnapshotEqualsReplayingAllEvents() {
+		snapshotStore = new SnapshotStore(3);
+		requestToAssignLimit(BigDecimal.TEN);
+		requestWithdrawal(BigDecimal.ONE);
+		requestRepay(BigDecimal.TEN);
+		requestWithdrawal(new BigDecimal(2));
+		CreditCardAggregateRoot aggregateRoot = requestWithdrawal(new BigDecimal(3));
+
+		CreditCard replayedCreditCard = new CreditCard(uuid, eventStore.read(uuid, 0));
+		assertEquals(replayedCreditCard.getAvailableLimit(), aggregateRoot.loadCreditCard().getAvailableLimit());
+		assertEquals(replayedCreditCard.version(), aggregateRoot.loadCreditCard().version());
+	}
+
+	@Test
+	public void withdrawingAgainWorksAfterRepayingWhenLoadedFromSnapshot() {
+		snapshotStore = new SnapshotStore(1);
+		requestToAssignLimit(BigDecimal.TEN);
+		requestWithdrawal(BigDecimal.ONE);
+		requestRepay(BigDecimal.ONE);
+		CreditCardAggregateRoot aggregateRoot = requestWithdrawal(BigDecimal.ONE);
+		assertEquals(new BigDecimal(9), aggregateRoot.loadCreditCard().getAvailableLimit());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void withdrawingTooOftenThrowsExceptionWhenLoadedFromSnapshot() {
+		snapshotStore = new SnapshotStore(10);
+		requestToAssignLimit(new BigDecimal(100));
+
+		for (int i = 1; i <= 46; i++) {
+			requestWithdrawal(BigDecimal.ONE);
+		}
+	}
+
+	@Test
+	public void keepsNewerSnapshotWhenOlderOneIsSaved() {
+		snapshotStore = new SnapshotStore(1);
+		requestToAssignLimit(BigDecimal.TEN);
+		CreditCardSnapshot olderSnapshot = snapshotStore.loadSnapshot(uuid).get();
+		requestWithdrawal(BigDecimal.ONE);
+
+		snapshotStore.save(olderSnapshot);
+
+		assertEquals(2, snapshotStore.loadSnapshot(uuid).get().version());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void snapshotIntervalMustBePositive() {
+		new SnapshotStore(0);
+	}
+
 	private CreditCardAggregateRoot requestToAssignLimit(BigDecimal amount) {
 		CreditCardAggregateRoot aggregateRoot = aggregateRoot();
 		aggregateRoot.accept(new RequestToAssignLimit(amount));
@@ -0,0 +1,177 @@
+package creditcard_eventsourcing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import creditcard_eventsourcing.model.event.CardRepaid;
+import creditcard_eventsourcing.model.event.CardWithdrawn;
+import creditcard_eventsourcing.model.event.CycleClosed;
+import creditcard_eventsourcing.model.event.DomainEvent;
+import creditcard_eventsourcing.model.event.LimitAssigned;
+
+public abstract class AbstractEventStoreTestCase {
+	protected EventStore eventStore;
+	protected UUID uuid;
+
+	protected abstract EventStore createEventStore() throws Exception;
+
+	@Before
+	public void setUp() throws Exception {
+		this.eventStore = createEventStore();
+		this.uuid = UUID.randomUUID();
+	}
+
+	@Test
+	public void readsNoEventsOfUnknownCard() {
+		assertFalse(eventStore.read(uuid, 0).hasNext());
+		assertEquals(0, eventStore.version(uuid));
+	}
+
+	@Test
+	public void readsAppendedEventsInOrder() {
+		List<DomainEvent> events = repaidEvents(3);
+		assertEquals(2, eventStore.append(uuid, 0, events.subList(0, 2)));
+		assertEquals(3, eventStore.append(uuid, 2, events.subList(2, 3)));
+
+		assertEventsEqual(events, toList(eventStore.read(uuid, 0)));
+		assertEquals(3, eventStore.version(uuid));
+	}
+
+	@Test
+	public void readsEventsFromVersion() {
+		List<DomainEvent> events = repaidEvents(100);
+		eventStore.append(uuid, 0, events);
+
+		assertEventsEqual(events.subList(40, 100), toList(eventStore.read(uuid, 40)));
+		assertFalse(eventStore.read(uuid, 100).hasNext());
+	}
+
+	@Test
+	public void iteratorDoesNotSeeEventsAppendedLater() {
+		eventStore.append(uuid, 0, repaidEvents(1));
+		Iterator<DomainEvent> events = eventStore.read(uuid, 0);
+		eventStore.append(uuid, 1, repaidEvents(100));
+
+		assertEquals(1, toList(events).size());
+	}
+
+	@Test(expected = WrongExpectedVersion.class)
+	public void doesNotAppendIfVersionIsNotExpected() {
+		eventStore.append(uuid, 0, repaidEvents(1));
+		eventStore.append(uuid, 0, repaidEvents(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotReadFromNegativeVersion() {
+		eventStore.read(uuid, -1);
+	}
+
+	@Test
+	public void appendsToStreamsOfManyThreads() throws Exception {
+		int threadCount = 8;
+		int appendsPerThread = appendsPerThread();
+		UUID sharedUuid = UUID.randomUUID();
+		List<UUID> uuids = Collections.synchronizedList(new ArrayList<>());
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadCount; thread++) {
+				futures.add(executor.submit(() -> {
+					UUID ownUuid = UUID.randomUUID();
+					uuids.add(ownUuid);
+					for (int i = 0; i < appendsPerThread; i++) {
+						eventStore.append(ownUuid, i, repaidEvents(1));
+						appendWithRetry(sharedUuid);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (UUID ownUuid : uuids) {
+			assertEquals(appendsPerThread, toList(eventStore.read(ownUuid, 0)).size());
+		}
+		assertEquals(threadCount * appendsPerThread, toList(eventStore.read(sharedUuid, 0)).size());
+	}
+
+	protected int appendsPerThread() {
+		return 1_000;
+	}
+
+	private void appendWithRetry(UUID uuid) {
+		while (true) {
+			try {
+				eventStore.append(uuid, eventStore.version(uuid), repaidEvents(1));
+				return;
+			} catch (WrongExpectedVersion e) {
+				// Another thread appended in the meantime, try again
+			}
+		}
+	}
+
+	protected List<DomainEvent> repaidEvents(int count) {
+		DomainEvent[] events = new DomainEvent[count];
+		for (int i = 0; i < count; i++) {
+			events[i] = new CardRepaid(uuid, BigDecimal.valueOf(i), Instant.now());
+		}
+		return Arrays.asList(events);
+	}
+
+	protected List<DomainEvent> toList(Iterator<DomainEvent> events) {
+		List<DomainEvent> list = new ArrayList<>();
+		events.forEachRemaining(list::add);
+		return list;
+	}
+
+	protected void assertEventsEqual(List<DomainEvent> expectedEvents, List<DomainEvent> actualEvents) {
+		assertEquals(describe(expectedEvents), describe(actualEvents));
+	}
+
+	private List<String> describe(List<DomainEvent> events) {
+		List<String> descriptions = new ArrayList<>();
+		for (DomainEvent event : events) {
+			descriptions.add(describe(event));
+		}
+		return descriptions;
+	}
+
+	private String describe(DomainEvent event) {
+		if (event instanceof LimitAssigned) {
+			LimitAssigned limitAssigned = (LimitAssigned) event;
+			return describe(event, limitAssigned.getCardNo(), limitAssigned.getAmount(), limitAssigned.getTimestamp());
+		} else if (event instanceof CardWithdrawn) {
+			CardWithdrawn cardWithdrawn = (CardWithdrawn) event;
+			return describe(event, cardWithdrawn.getCardNo(), cardWithdrawn.getAmount(), cardWithdrawn.getTimestamp());
+		} else if (event instanceof CardRepaid) {
+			CardRepaid cardRepaid = (CardRepaid) event;
+			return describe(event, cardRepaid.getCardNo(), cardRepaid.getAmount(), cardRepaid.getTimestamp());
+		}
+		CycleClosed cycleClosed = (CycleClosed) event;
+		return describe(event, cycleClosed.getCardNo(), null, cycleClosed.getTimestamp());
+	}
+
+	private String describe(DomainEvent event, UUID cardNo, BigDecimal amount, Instant timestamp) {
+		return event.getType() + " " + cardNo + " " + amount + " " + timestamp;
+	}
+}
@@ -0,0 +1,172 @@
+package creditcard_eventsourcing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import creditcard_eventsourcing.model.event.DomainEvent;
+
+public class GroupCommitEventStoreTest extends AbstractEventStoreTestCase {
+	private static final int SEGMENT_SIZE = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+
+	@Override
+	protected EventStore createEventStore() throws IOException {
+		this.directory = temporaryFolder.newFolder().toPath();
+		return new GroupCommitEventStore(new MappedFileEventStore(directory, SEGMENT_SIZE), 16, 0, TimeUnit.MICROSECONDS);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		groupCommitEventStore().close();
+	}
+
+	// Each append waits for the disk, so fewer appends keep the test fast
+	@Override
+	protected int appendsPerThread() {
+		return 100;
+	}
+
+	@Test
+	public void commitsFullBatchWithoutWaitingForMaxWaitTime() throws Exception {
+		groupCommitEventStore().close();
+		this.eventStore = new GroupCommitEventStore(new MappedFileEventStore(directory, SEGMENT_SIZE), 3, 1,
+			TimeUnit.HOURS);
+
+		List<CompletableFuture<Integer>> versions = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			versions.add(groupCommitEventStore().appendAsync(UUID.randomUUID(), 0, repaidEvents(2)));
+		}
+
+		for (CompletableFuture<Integer> version : versions) {
+			assertEquals(2, (int) version.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void commitsPendingAppendsWhenClosing() throws Exception {
+		groupCommitEventStore().close();
+		this.eventStore = new GroupCommitEventStore(new MappedFileEventStore(directory, SEGMENT_SIZE), 100, 1,
+			TimeUnit.HOURS);
+		CompletableFuture<Integer> version = groupCommitEventStore().appendAsync(uuid, 0, repaidEvents(1));
+
+		groupCommitEventStore().close();
+
+		assertEquals(1, (int) version.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void commitsEventsOfListThatIsClearedAfterAppending() throws Exception {
+		groupCommitEventStore().close();
+		this.eventStore = new GroupCommitEventStore(new MappedFileEventStore(directory, SEGMENT_SIZE), 100, 1,
+			TimeUnit.HOURS);
+		List<DomainEvent> events = repaidEvents(2);
+		List<DomainEvent> reusedList = new ArrayList<>(events);
+		CompletableFuture<Integer> version = groupCommitEventStore().appendAsync(uuid, 0, reusedList);
+		reusedList.clear();
+
+		groupCommitEventStore().close();
+
+		assertEquals(2, (int) version.get(5, TimeUnit.SECONDS));
+		try (MappedFileEventStore reopenedEventStore = new MappedFileEventStore(directory, SEGMENT_SIZE)) {
+			assertEventsEqual(events, toList(reopenedEventStore.read(uuid, 0)));
+		}
+	}
+
+	@Test
+	public void appendedEventsAreInStoreAfterReopening() throws IOException {
+		List<DomainEvent> events = repaidEvents(5);
+		eventStore.append(uuid, 0, events.subList(0, 2));
+		eventStore.append(uuid, 2, events.subList(2, 5));
+		groupCommitEventStore().close();
+
+		try (MappedFileEventStore reopenedEventStore = new MappedFileEventStore(directory, SEGMENT_SIZE)) {
+			assertEventsEqual(events, toList(reopenedEventStore.read(uuid, 0)));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void doesNotAppendAfterClosing() throws IOException {
+		groupCommitEventStore().close();
+		eventStore.append(uuid, 0, repaidEvents(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotAcceptEmptyBatches() throws IOException {
+		try (MappedFileEventStore mappedFileEventStore = new MappedFileEventStore(temporaryFolder.newFolder().toPath())) {
+			new GroupCommitEventStore(mappedFileEventStore, 0, 0, TimeUnit.MICROSECONDS);
+		}
+	}
+
+	@Test
+	public void failsAppendAndKeepsEventsAppendedWhenForceFails() throws IOException {
+		failToForce();
+
+		try {
+			eventStore.append(uuid, 0, repaidEvents(1));
+			fail();
+		} catch (UncheckedIOException e) {
+			assertEquals(1, eventStore.version(uuid));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void doesNotAppendAfterForceFailed() throws IOException {
+		failToForce();
+		try {
+			eventStore.append(uuid, 0, repaidEvents(1));
+		} catch (UncheckedIOException e) {
+			eventStore.append(UUID.randomUUID(), 0, repaidEvents(1));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void doesNotAppendAfterCommitFailedWithError() throws IOException {
+		groupCommitEventStore().close();
+		MappedFileEventStore failingEventStore = new MappedFileEventStore(directory, SEGMENT_SIZE) {
+			@Override
+			public int append(UUID uuid, int expectedVersion, List<? extends DomainEvent> events) {
+				throw new InternalError("Append failed");
+			}
+		};
+		this.eventStore = new GroupCommitEventStore(failingEventStore, 16, 0, TimeUnit.MICROSECONDS);
+		try {
+			eventStore.append(uuid, 0, repaidEvents(1));
+			fail();
+		} catch (InternalError e) {
+			eventStore.append(uuid, 0, repaidEvents(1));
+		}
+	}
+
+	private void failToForce() throws IOException {
+		groupCommitEventStore().close();
+		MappedFileEventStore failingEventStore = new MappedFileEventStore(directory, SEGMENT_SIZE) {
+			@Override
+			public void force() {
+				throw new UncheckedIOException(new IOException("Force failed"));
+			}
+		};
+		this.eventStore = new GroupCommitEventStore(failingEventStore, 16, 0, TimeUnit.MICROSECONDS);
+	}
+
+	private GroupCommitEventStore groupCommitEventStore() {
+		return (GroupCommitEventStore) eventStore;
+	}
+}
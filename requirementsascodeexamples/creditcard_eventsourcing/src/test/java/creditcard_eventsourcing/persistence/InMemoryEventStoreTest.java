@@ -0,0 +1,8 @@
+package creditcard_eventsourcing.persistence;
+
+public class InMemoryEventStoreTest extends AbstractEventStoreTestCase {
+	@Override
+	protected EventStore createEventStore() {
+		return new InMemoryEventStore();
+	}
+}
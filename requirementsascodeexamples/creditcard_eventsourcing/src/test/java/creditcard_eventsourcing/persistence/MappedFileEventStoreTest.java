@@ -0,0 +1,216 @@
+package creditcard_eventsourcing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import creditcard_eventsourcing.model.event.CardRepaid;
+import creditcard_eventsourcing.model.event.CardWithdrawn;
+import creditcard_eventsourcing.model.event.CycleClosed;
+import creditcard_eventsourcing.model.event.DomainEvent;
+import creditcard_eventsourcing.model.event.LimitAssigned;
+
+public class MappedFileEventStoreTest extends AbstractEventStoreTestCase {
+	private static final int SEGMENT_SIZE = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+
+	@Override
+	protected EventStore createEventStore() throws IOException {
+		this.directory = temporaryFolder.newFolder().toPath();
+		return new MappedFileEventStore(directory, SEGMENT_SIZE);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		mappedFileEventStore().close();
+	}
+
+	@Test
+	public void encodesAllEventTypes() {
+		List<DomainEvent> events = Arrays.asList(
+			new LimitAssigned(uuid, new BigDecimal("1000.50"), Instant.now()),
+			new CardWithdrawn(uuid, new BigDecimal(BigInteger.TEN.pow(30), 2), Instant.now()),
+			new CardRepaid(uuid, new BigDecimal("-1E+3"), Instant.ofEpochSecond(-1, 5)),
+			new CycleClosed(uuid, Instant.now()));
+		eventStore.append(uuid, 0, events);
+
+		assertEventsEqual(events, toList(eventStore.read(uuid, 0)));
+	}
+
+	@Test
+	public void recoversStreamsAfterReopening() throws IOException {
+		List<DomainEvent> events = repaidEvents(10);
+		eventStore.append(uuid, 0, events);
+
+		reopen(SEGMENT_SIZE);
+
+		assertEquals(10, eventStore.version(uuid));
+		assertEventsEqual(events, toList(eventStore.read(uuid, 0)));
+		assertEquals(11, eventStore.append(uuid, 10, repaidEvents(1)));
+	}
+
+	@Test
+	public void rollsSegmentsWhenFull() throws IOException {
+		reopenInNewDirectory(4 * batchSize(1));
+		List<DomainEvent> events = repaidEvents(10);
+		for (int i = 0; i < events.size(); i++) {
+			eventStore.append(uuid, i, events.subList(i, i + 1));
+		}
+		assertEquals(3, segmentFileCount());
+
+		reopen(4 * batchSize(1));
+
+		assertEventsEqual(events, toList(eventStore.read(uuid, 0)));
+	}
+
+	@Test
+	public void rollsSegmentBeforeBatchThatDoesNotFit() throws IOException {
+		reopenInNewDirectory(batchSize(3));
+		List<DomainEvent> events = repaidEvents(4);
+		eventStore.append(uuid, 0, events.subList(0, 1));
+		eventStore.append(uuid, 1, events.subList(1, 4));
+		assertEquals(2, segmentFileCount());
+
+		reopen(batchSize(3));
+
+		assertEventsEqual(events, toList(eventStore.read(uuid, 0)));
+	}
+
+	@Test
+	public void dropsPartlyWrittenBatchAsAWhole() throws IOException {
+		List<DomainEvent> events = repaidEvents(3);
+		eventStore.append(uuid, 0, events);
+		mappedFileEventStore().close();
+		// Corrupt a byte of the last event, as if the process had crashed while
+		// writing it
+		writeToFirstSegment(batchSize(3) - 1, (byte) 0x7F);
+
+		reopen(SEGMENT_SIZE);
+		assertEquals(0, eventStore.version(uuid));
+		eventStore.append(uuid, 0, events);
+
+		reopen(SEGMENT_SIZE);
+		assertEventsEqual(events, toList(eventStore.read(uuid, 0)));
+	}
+
+	@Test
+	public void keepsBatchesBeforePartlyWrittenBatch() throws IOException {
+		List<DomainEvent> events = repaidEvents(5);
+		eventStore.append(uuid, 0, events.subList(0, 2));
+		eventStore.append(uuid, 2, events.subList(2, 5));
+		mappedFileEventStore().close();
+		writeToFirstSegment(batchSize(2) + batchSize(3) / 2, (byte) 0x7F);
+
+		reopen(SEGMENT_SIZE);
+
+		assertEquals(2, eventStore.version(uuid));
+		assertEventsEqual(events.subList(0, 2), toList(eventStore.read(uuid, 0)));
+	}
+
+	@Test
+	public void dropsLaterSegmentsAfterCorruptBatch() throws IOException {
+		reopenInNewDirectory(2 * batchSize(1));
+		List<DomainEvent> events = repaidEvents(4);
+		for (int i = 0; i < events.size(); i++) {
+			eventStore.append(uuid, i, events.subList(i, i + 1));
+		}
+		assertEquals(2, segmentFileCount());
+		mappedFileEventStore().close();
+		writeToFirstSegment(2 * batchSize(1) - 1, (byte) 0x7F);
+
+		reopen(2 * batchSize(1));
+
+		assertEquals(1, eventStore.version(uuid));
+		assertEquals(1, segmentFileCount());
+		assertEventsEqual(events.subList(0, 1), toList(eventStore.read(uuid, 0)));
+		assertEquals(2, eventStore.append(uuid, 1, events.subList(1, 2)));
+	}
+
+	@Test
+	public void dropsBatchWithLengthButWithoutPayload() throws IOException {
+		eventStore.append(uuid, 0, repaidEvents(1));
+		mappedFileEventStore().close();
+		writeToFirstSegment(batchSize(1), (byte) 42);
+
+		reopen(SEGMENT_SIZE);
+
+		assertEquals(1, eventStore.version(uuid));
+		assertEquals(2, eventStore.append(uuid, 1, repaidEvents(1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotAppendEventLargerThanSegment() throws IOException {
+		reopenInNewDirectory(batchSize(1) - 1);
+		eventStore.append(uuid, 0, repaidEvents(1));
+	}
+
+	@Test
+	public void doesNotAppendBatchLargerThanSegment() throws IOException {
+		reopenInNewDirectory(batchSize(2));
+		try {
+			eventStore.append(uuid, 0, repaidEvents(3));
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+
+		assertEquals(0, eventStore.version(uuid));
+		assertEquals(2, eventStore.append(uuid, 0, repaidEvents(2)));
+	}
+
+	private void reopen(int segmentSize) throws IOException {
+		mappedFileEventStore().close();
+		this.eventStore = new MappedFileEventStore(directory, segmentSize);
+	}
+
+	private void reopenInNewDirectory(int segmentSize) throws IOException {
+		mappedFileEventStore().close();
+		this.directory = temporaryFolder.newFolder().toPath();
+		this.eventStore = new MappedFileEventStore(directory, segmentSize);
+	}
+
+	private MappedFileEventStore mappedFileEventStore() {
+		return (MappedFileEventStore) eventStore;
+	}
+
+	// The size of a batch of repaid events: length, checksum, stream id, event
+	// count, and each event with its length
+	private int batchSize(int eventCount) {
+		int eventSize = Integer.BYTES + DomainEventCodec.encodedSize(repaidEvents(1).get(0));
+		return 3 * Integer.BYTES + 2 * Long.BYTES + eventCount * eventSize;
+	}
+
+	private void writeToFirstSegment(int offset, byte value) throws IOException {
+		Path firstSegment = directory.resolve("0000000000.segment");
+		assertTrue(Files.exists(firstSegment));
+		try (FileChannel channel = FileChannel.open(firstSegment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { value }), offset);
+		}
+	}
+
+	private long segmentFileCount() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+}
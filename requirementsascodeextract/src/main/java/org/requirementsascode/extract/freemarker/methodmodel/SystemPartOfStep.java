@@ -7,9 +7,10 @@ import static org.requirementsascode.extract.freemarker.methodmodel.util.Steps.h
 import static org.requirementsascode.extract.freemarker.methodmodel.util.Steps.hasSystemUser;
 import static org.requirementsascode.extract.freemarker.methodmodel.util.Words.getLowerCaseWordsOfClassName;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.requirementsascode.AbstractActor;
 import org.requirementsascode.Step;
@@ -69,8 +70,9 @@ public class SystemPartOfStep implements TemplateMethodModelEx {
   }
 
   private String getPublishToActorString(Step step) {
-    Optional<AbstractActor> optionalPublishToActor = step.getPublishTo();
-    String publishToString = optionalPublishToActor.map(act -> " to " + act.getName()).orElse("");
+    AbstractActor[] publishToActors = step.getPublishToAll();
+    String publishToString = publishToActors.length == 0 ? ""
+      : Arrays.stream(publishToActors).map(AbstractActor::getName).collect(Collectors.joining(", ", " to ", ""));
     return publishToString;
   }
 